@@ -0,0 +1,98 @@
+package com.sensordata.codec;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sensordata.dto.SensorDataDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wire formats of a batch of readings: NDJSON through Jackson (one value per line, as the WebFlux
+ * NDJSON encoder writes them) against SensorBinaryFormat. Scores are per batch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SensorCodecBenchmark {
+    private static final byte NEWLINE = '\n';
+
+    @Param({"256"})
+    int batchSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new SensorJsonModule());
+    private ObjectWriter jsonWriter;
+    private ObjectReader jsonReader;
+    private List<SensorDataDto> readings;
+    private byte[] ndjson;
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        jsonWriter = objectMapper.writerFor(SensorDataDto.class);
+        jsonReader = objectMapper.readerFor(SensorDataDto.class);
+        readings = new ArrayList<>(batchSize);
+        long timestamp = 1_700_000_000_000L;
+        for (int i = 0; i < batchSize; i++) {
+            timestamp += 100;
+            readings.add(SensorDataDto.builder()
+                    .sensorId((long) (i % 16 + 1))
+                    .timestamp(timestamp)
+                    .temperature(20 + 5 * Math.sin(i))
+                    .humidity(50 + 20 * Math.cos(i / 2.0))
+                    .pressure(1013 + 10 * Math.sin(i / 3.0))
+                    .value(40.0 + i % 7)
+                    .anomaly(i % 50 == 0)
+                    .build());
+        }
+        ndjson = encodeNdjson();
+        binary = encodeBinary();
+    }
+
+    @Benchmark
+    public byte[] encodeNdjson() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(batchSize * 160);
+        for (SensorDataDto data : readings) {
+            out.write(jsonWriter.writeValueAsBytes(data));
+            out.write(NEWLINE);
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<SensorDataDto> decodeNdjson() throws IOException {
+        List<SensorDataDto> out = new ArrayList<>(batchSize);
+        try (MappingIterator<SensorDataDto> values = jsonReader.readValues(ndjson)) {
+            while (values.hasNext()) {
+                out.add(values.next());
+            }
+        }
+        return out;
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        SensorBinaryFormat.Writer writer = new SensorBinaryFormat.Writer();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(batchSize * SensorBinaryFormat.MAX_RECORD_BYTES);
+        for (SensorDataDto data : readings) {
+            out.writeBytes(writer.write(data));
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<SensorDataDto> decodeBinary() {
+        List<SensorDataDto> out = new ArrayList<>(batchSize);
+        new SensorBinaryFormat.Reader().read(binary, out);
+        return out;
+    }
+}
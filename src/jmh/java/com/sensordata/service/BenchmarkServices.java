@@ -0,0 +1,41 @@
+package com.sensordata.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+
+/**
+ * Wires the services the way Spring does, without an application context and without a database:
+ * persistence is disabled, so SensorDataWriter.enqueue() is a no-op.
+ */
+final class BenchmarkServices {
+    private BenchmarkServices() {
+    }
+
+    static SensorDataGenerator generator(MeterRegistry meterRegistry) {
+        return generator(meterRegistry, anomalyEngine(meterRegistry));
+    }
+
+    static SensorStreamService streamService(Scheduler tickScheduler, long tickResolutionMillis) {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SensorAnomalyEngine anomalyEngine = anomalyEngine(meterRegistry);
+        return new SensorStreamService(generator(meterRegistry, anomalyEngine),
+                new SensorTickEngine(tickScheduler, tickResolutionMillis, 1),
+                new SensorStreamMetrics(meterRegistry),
+                anomalyEngine);
+    }
+
+    private static SensorDataGenerator generator(MeterRegistry meterRegistry, SensorAnomalyEngine anomalyEngine) {
+        SensorDataWriter writer = new SensorDataWriter(null, meterRegistry, false, 100_000, 5_000,
+                Duration.ofMillis(50), SensorDataWriter.OverflowPolicy.DROP_OLDEST);
+        SensorDataGenerator generator = new SensorDataGenerator(new SensorRollupEngine(), anomalyEngine, writer, meterRegistry);
+        generator.registerMetrics();
+        return generator;
+    }
+
+    private static SensorAnomalyEngine anomalyEngine(MeterRegistry meterRegistry) {
+        return new SensorAnomalyEngine(meterRegistry, 0.01, 3.0, 30);
+    }
+}
@@ -0,0 +1,62 @@
+package com.sensordata.service;
+
+import com.sensordata.dto.SensorDataDto;
+import com.sensordata.dto.SensorSnapshotChunk;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SensorDataGenerator.generateSensorData(): reading computation plus history ring, statistics,
+ * quantile sketch and rollup updates. The multi-thread variant shares one generator, as the
+ * tick engine drivers do, so it includes contention on the per-sensor structures.
+ * snapshotChunk is the batch path (one tick for a range of sensors, no recording), scored per reading.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SensorDataGeneratorBenchmark {
+    private static final int SNAPSHOT_CHUNK_SIZE = 4096;
+
+    /**
+     * Number of distinct sensors the calls are spread over
+     */
+    @Param({"1", "1000"})
+    int sensors;
+
+    private SensorDataGenerator generator;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        long next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        generator = BenchmarkServices.generator(new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public SensorDataDto singleThread(Cursor cursor) {
+        return generator.generateSensorData(cursor.next++ % sensors + 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public SensorDataDto fourThreads(Cursor cursor) {
+        return generator.generateSensorData(cursor.next++ % sensors + 1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(SNAPSHOT_CHUNK_SIZE)
+    public SensorSnapshotChunk snapshotChunk(Cursor cursor) {
+        long fromId = cursor.next++ % sensors + 1;
+        return generator.computeSnapshotChunk(fromId, fromId + SNAPSHOT_CHUNK_SIZE, System.currentTimeMillis());
+    }
+}
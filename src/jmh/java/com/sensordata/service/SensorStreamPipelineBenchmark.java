@@ -0,0 +1,85 @@
+package com.sensordata.service;
+
+import com.sensordata.dto.SensorDataDto;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end Reactor pipeline throughput of streamSensorData / streamMultipleSensors on a
+ * virtual-time scheduler: tick engine, shared publisher, generation, backpressure buffer, metrics
+ * and log summary, without waiting for wall-clock intervals. One operation is one complete stream,
+ * so the score per second multiplied by the limit gives readings per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SensorStreamPipelineBenchmark {
+    private static final long TICK_RESOLUTION_MILLIS = 10;
+    private static final long INTERVAL_MILLIS = 100;
+
+    @Param({"100", "1000"})
+    int limit;
+
+    @Param({"8"})
+    int sensorCount;
+
+    private VirtualTimeScheduler scheduler;
+    private SensorStreamService streamService;
+    private Duration streamDuration;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Installs the virtual-time scheduler as Schedulers.parallel() too, used by streamMultipleSensors
+        scheduler = VirtualTimeScheduler.getOrSet();
+        streamService = BenchmarkServices.streamService(scheduler, TICK_RESOLUTION_MILLIS);
+        streamDuration = Duration.ofMillis(INTERVAL_MILLIS * (limit + 1) + TICK_RESOLUTION_MILLIS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        VirtualTimeScheduler.reset();
+    }
+
+    @Benchmark
+    public long streamSensorData() {
+        return drain(streamService.streamSensorData(1L, limit, null, null, INTERVAL_MILLIS));
+    }
+
+    @Benchmark
+    public long streamMultipleSensors() {
+        return drain(streamService.streamMultipleSensors(sensorCount, limit * sensorCount, null, INTERVAL_MILLIS));
+    }
+
+    private long drain(Flux<SensorDataDto> stream) {
+        CountingSubscriber subscriber = new CountingSubscriber();
+        stream.subscribe(subscriber);
+        scheduler.advanceTimeBy(streamDuration);
+        if (!subscriber.completed) {
+            throw new IllegalStateException("Stream did not complete in virtual time, received " + subscriber.count);
+        }
+        return subscriber.count;
+    }
+
+    private static final class CountingSubscriber extends BaseSubscriber<SensorDataDto> {
+        long count;
+        boolean completed;
+
+        @Override
+        protected void hookOnNext(SensorDataDto value) {
+            count++;
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.sensordata.util;
+
+import com.sensordata.dto.SensorDataDto;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-sensor history buffers: SlidingWindow of DTOs (original) against SensorHistoryRing (current)
+ * and a plain unsynchronized ArrayDeque as the lower bound.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HistoryWindowBenchmark {
+    @Param({"100", "1000"})
+    int capacity;
+
+    private SlidingWindow<SensorDataDto> window;
+    private SensorHistoryRing ring;
+    private ArrayDeque<SensorDataDto> deque;
+    private SensorDataDto reading;
+    private long timestamp;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        window = new SlidingWindow<>(capacity);
+        ring = new SensorHistoryRing(capacity);
+        deque = new ArrayDeque<>(capacity);
+        reading = SensorDataDto.builder()
+                .sensorId(1L).timestamp(0L)
+                .temperature(21.5).humidity(48.0).pressure(1012.0).value(30.0).anomaly(false)
+                .build();
+        for (int i = 0; i < capacity; i++) {
+            slidingWindowAdd();
+            historyRingAdd();
+            arrayDequeAdd();
+        }
+    }
+
+    @Benchmark
+    public boolean slidingWindowAdd() {
+        return window.add(reading);
+    }
+
+    @Benchmark
+    public void historyRingAdd() {
+        ring.add(++timestamp, 21.5, 48.0, 1012.0, 30.0, false);
+    }
+
+    @Benchmark
+    public boolean arrayDequeAdd() {
+        if (deque.size() >= capacity) {
+            deque.removeFirst();
+        }
+        return deque.add(reading);
+    }
+
+    @Benchmark
+    public double slidingWindowIterate() {
+        double sum = 0;
+        for (SensorDataDto data : window) {
+            sum += data.getTemperature();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double historyRingIterate() {
+        double[] sum = new double[1];
+        ring.forEach((ts, temperature, humidity, pressure, value, anomaly) -> sum[0] += temperature);
+        return sum[0];
+    }
+
+    @Benchmark
+    public double arrayDequeIterate() {
+        double sum = 0;
+        for (Iterator<SensorDataDto> it = deque.iterator(); it.hasNext(); ) {
+            sum += it.next().getTemperature();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public SensorDataDto slidingWindowGetMiddle() {
+        return window.get(capacity / 2);
+    }
+
+    @Benchmark
+    public void historyRingGetMiddle(Blackhole blackhole) {
+        ring.get(capacity / 2, (ts, temperature, humidity, pressure, value, anomaly) -> blackhole.consume(temperature));
+    }
+}
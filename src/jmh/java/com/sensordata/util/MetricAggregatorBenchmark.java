@@ -0,0 +1,94 @@
+package com.sensordata.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics under contention: three writer threads and one reader thread on the statistics of a
+ * single sensor. "locked" guards one MetricAggregator set with a monitor (the straightforward
+ * approach), "striped" is SensorStatsAccumulator, whose reader merges the cells.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class MetricAggregatorBenchmark {
+    private SensorStatsAccumulator striped;
+    private MetricAggregator temperature;
+    private MetricAggregator humidity;
+    private MetricAggregator pressure;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        striped = new SensorStatsAccumulator();
+        temperature = new MetricAggregator();
+        humidity = new MetricAggregator();
+        pressure = new MetricAggregator();
+    }
+
+    @Benchmark
+    @Group("striped")
+    @GroupThreads(3)
+    public void stripedAdd() {
+        double noise = ThreadLocalRandom.current().nextDouble();
+        striped.add(20 + noise, 50 + noise, 1013 + noise);
+    }
+
+    @Benchmark
+    @Group("striped")
+    @GroupThreads(1)
+    public MetricAggregator stripedSnapshot() {
+        return striped.snapshot(SensorStatsAccumulator.Metric.TEMPERATURE);
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(3)
+    public void lockedAdd() {
+        double noise = ThreadLocalRandom.current().nextDouble();
+        synchronized (this) {
+            temperature.add(20 + noise);
+            humidity.add(50 + noise);
+            pressure.add(1013 + noise);
+        }
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public MetricAggregator lockedSnapshot() {
+        MetricAggregator snapshot = new MetricAggregator();
+        synchronized (this) {
+            snapshot.merge(temperature);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Uncontended merge cost, paid once per cell on every statistics read
+     */
+    @State(Scope.Thread)
+    public static class MergeState {
+        MetricAggregator source;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            source = new MetricAggregator();
+            for (int i = 0; i < 1000; i++) {
+                source.add(20 + i % 10);
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("merge")
+    public MetricAggregator merge(MergeState state) {
+        MetricAggregator target = new MetricAggregator(19.0);
+        target.merge(state.source);
+        return target;
+    }
+}
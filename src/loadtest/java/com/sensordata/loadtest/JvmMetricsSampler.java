@@ -0,0 +1,138 @@
+package com.sensordata.loadtest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * Samples JVM metrics of this process through the platform MXBeans and appends them as rows of
+ * load_test_metrics.csv (same columns as the former load_test.sh).
+ *
+ * With the embedded server these are the server's metrics; against a remote URL they describe the
+ * driver JVM only.
+ */
+final class JvmMetricsSampler implements AutoCloseable {
+    static final String HEADER = "timestamp,heap_used_mb,heap_max_mb,cpu_percent,thread_count,allocation_rate_mb_s,"
+            + "gc_count,gc_time_ms,heap_committed_mb,vz_mb,rss_mb,request_count";
+    private static final double MB = 1024.0 * 1024.0;
+    private static final Path PROC_STATUS = Path.of("/proc/self/status");
+
+    private final BufferedWriter writer;
+    private final LongSupplier requestCount;
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final com.sun.management.OperatingSystemMXBean os =
+            (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+
+    private long previousAllocatedBytes;
+    private long previousSampleNanos;
+
+    JvmMetricsSampler(Path csv, LongSupplier requestCount) throws IOException {
+        if (csv.getParent() != null) {
+            Files.createDirectories(csv.getParent());
+        }
+        this.writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8);
+        this.requestCount = requestCount;
+        if (threads.isThreadAllocatedMemorySupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        writer.write(HEADER);
+        writer.newLine();
+        previousAllocatedBytes = allocatedBytes();
+        previousSampleNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes one sample and appends it to the CSV; returns the row
+     */
+    synchronized String sample() throws IOException {
+        long nowNanos = System.nanoTime();
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+
+        long allocated = allocatedBytes();
+        double seconds = (nowNanos - previousSampleNanos) / 1e9;
+        // Bytes of threads that ended since the last sample are lost, so the delta can go negative
+        double allocationRate = seconds > 0 ? Math.max(0, allocated - previousAllocatedBytes) / MB / seconds : 0;
+        previousAllocatedBytes = allocated;
+        previousSampleNanos = nowNanos;
+
+        long gcCount = 0;
+        long gcTime = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            gcCount += Math.max(0, collector.getCollectionCount());
+            gcTime += Math.max(0, collector.getCollectionTime());
+        }
+
+        long[] memory = processMemoryKb();
+        String row = String.format(Locale.ROOT, "%d,%.1f,%.1f,%.1f,%d,%.1f,%d,%d,%.1f,%d,%d,%d",
+                System.currentTimeMillis() / 1000,
+                heap.getUsed() / MB,
+                heap.getMax() / MB,
+                Math.max(0, os.getProcessCpuLoad()) * 100,
+                threads.getThreadCount(),
+                allocationRate,
+                gcCount,
+                gcTime,
+                heap.getCommitted() / MB,
+                memory[0] / 1024,
+                memory[1] / 1024,
+                requestCount.getAsLong());
+        writer.write(row);
+        writer.newLine();
+        writer.flush();
+        return row;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    private long allocatedBytes() {
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return 0;
+        }
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Virtual and resident size in KB from /proc/self/status; zeros where it is not available
+     */
+    private static long[] processMemoryKb() {
+        long[] memory = new long[2];
+        if (!Files.isReadable(PROC_STATUS)) {
+            return memory;
+        }
+        try {
+            for (String line : Files.readAllLines(PROC_STATUS)) {
+                if (line.startsWith("VmSize:")) {
+                    memory[0] = kilobytes(line);
+                } else if (line.startsWith("VmRSS:")) {
+                    memory[1] = kilobytes(line);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return new long[2];
+        }
+        return memory;
+    }
+
+    private static long kilobytes(String line) {
+        return Long.parseLong(line.replaceAll("[^0-9]", ""));
+    }
+}
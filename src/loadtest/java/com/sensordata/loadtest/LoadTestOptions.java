@@ -0,0 +1,120 @@
+package com.sensordata.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line options of the load driver, given as --name=value.
+ */
+final class LoadTestOptions {
+    /**
+     * Streaming endpoints the driver can target; each opened stream goes to the next one in turn
+     */
+    enum Target {
+        STREAM("stream"),
+        MULTI("multi"),
+        CLIENT("client");
+
+        private final String label;
+
+        Target(String label) {
+            this.label = label;
+        }
+
+        String getLabel() {
+            return label;
+        }
+
+        static Target parse(String value) {
+            for (Target target : values()) {
+                if (target.label.equalsIgnoreCase(value.trim())) {
+                    return target;
+                }
+            }
+            throw new IllegalArgumentException("Unknown endpoint: " + value + ", expected stream, multi or client");
+        }
+    }
+
+    /**
+     * Base URL of a running server; empty starts an embedded server in this JVM
+     */
+    String url = "";
+    Duration duration = Duration.ofSeconds(60);
+    /**
+     * Streams opened per second, independent of how fast earlier streams complete (open loop)
+     */
+    double rate = 20;
+    int maxConcurrent = 2000;
+    List<Target> targets = List.of(Target.values());
+    int limit = 50;
+    int sensors = 100;
+    int sensorCount = 5;
+    long intervalMs = 100;
+    int clients = 32;
+    Duration sampleInterval = Duration.ofSeconds(2);
+    Path csv = Path.of("load_test_metrics.csv");
+    Path histogramDir = Path.of("target", "loadtest");
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        LoadTestOptions options = new LoadTestOptions();
+        options.url = values.getOrDefault("url", options.url);
+        options.duration = seconds(values.get("duration"), options.duration);
+        options.rate = Double.parseDouble(values.getOrDefault("rate", String.valueOf(options.rate)));
+        options.maxConcurrent = integer(values.get("max-concurrent"), options.maxConcurrent);
+        options.limit = integer(values.get("limit"), options.limit);
+        options.sensors = integer(values.get("sensors"), options.sensors);
+        options.sensorCount = integer(values.get("sensor-count"), options.sensorCount);
+        options.intervalMs = integer(values.get("interval-ms"), (int) options.intervalMs);
+        options.clients = integer(values.get("clients"), options.clients);
+        options.sampleInterval = seconds(values.get("sample-interval"), options.sampleInterval);
+        if (values.containsKey("endpoints")) {
+            List<Target> targets = new ArrayList<>();
+            for (String endpoint : values.get("endpoints").split(",")) {
+                targets.add(Target.parse(endpoint));
+            }
+            options.targets = List.copyOf(targets);
+        }
+        if (values.containsKey("csv")) {
+            options.csv = Path.of(values.get("csv"));
+        }
+        if (values.containsKey("histogram-dir")) {
+            options.histogramDir = Path.of(values.get("histogram-dir"));
+        }
+
+        if (options.rate <= 0 || options.maxConcurrent <= 0 || options.limit <= 0 || options.sensors <= 0
+                || options.sensorCount <= 0 || options.intervalMs <= 0 || options.clients <= 0
+                || options.targets.isEmpty()) {
+            throw new IllegalArgumentException("rate, max-concurrent, limit, sensors, sensor-count, interval-ms, "
+                    + "clients and endpoints must be positive / non-empty");
+        }
+        return options;
+    }
+
+    private static Duration seconds(String value, Duration defaultValue) {
+        return value == null ? defaultValue : Duration.ofMillis((long) (Double.parseDouble(value) * 1000));
+    }
+
+    private static int integer(String value, int defaultValue) {
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    @Override
+    public String toString() {
+        return "url=" + (url.isEmpty() ? "<embedded>" : url) + ", duration=" + duration + ", rate=" + rate + "/s"
+                + ", maxConcurrent=" + maxConcurrent + ", endpoints=" + targets + ", limit=" + limit
+                + ", sensors=" + sensors + ", intervalMs=" + intervalMs + ", clients=" + clients;
+    }
+}
@@ -0,0 +1,242 @@
+package com.sensordata.loadtest;
+
+import com.sensordata.SensorReactiveApplication;
+import com.sensordata.loadtest.LoadTestOptions.Target;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open-loop load driver for the NDJSON streaming endpoints.
+ *
+ * Streams are opened at a fixed rate on a schedule that does not wait for earlier streams, so a slow
+ * server shows up as latency instead of silently lowering the offered load. Latency is recorded in
+ * HDR histograms (see StreamLatencyRecorder) and JVM metrics are sampled into load_test_metrics.csv.
+ * Without --url an embedded server is started in the same JVM (persistence and Flyway disabled,
+ * no PostgreSQL needed), so the sampled JVM metrics are the server's.
+ *
+ * Usage: mvn -Ploadtest verify -Dloadtest.args="--duration=60 --rate=50 --endpoints=stream,client"
+ *
+ * Решает проблему: load_test.sh с curl в фоне и нулевыми метриками в CSV
+ */
+@Slf4j
+public final class SensorLoadDriver {
+    private static final String CLIENT_ID_HEADER = "X-Client-Id";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final Duration DRAIN_GRACE = Duration.ofSeconds(30);
+
+    private final LoadTestOptions options;
+    private final HttpClient httpClient;
+    private final ConnectionProvider connectionProvider;
+    private final StreamLatencyRecorder latency = new StreamLatencyRecorder();
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong readings = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+
+    private SensorLoadDriver(LoadTestOptions options, String baseUrl) {
+        this.options = options;
+        this.connectionProvider = ConnectionProvider.builder("sensor-loadtest")
+                .maxConnections(options.maxConcurrent)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        // One HTTP/1.1 connection per stream, the way browsers and curl consume NDJSON
+        this.httpClient = HttpClient.create(connectionProvider)
+                .baseUrl(baseUrl)
+                .protocol(HttpProtocol.HTTP11)
+                .headers(headers -> headers.set(HttpHeaderNames.ACCEPT, NDJSON));
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        ConfigurableApplicationContext server = null;
+        String baseUrl = options.url;
+        if (baseUrl.isEmpty()) {
+            int port = freePort();
+            baseUrl = "http://localhost:" + port;
+            server = startEmbeddedServer(port, baseUrl);
+        }
+        try {
+            new SensorLoadDriver(options, baseUrl).run();
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private void run() throws IOException {
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.rate);
+        long streams = Math.max(1, (long) (options.rate * options.duration.toMillis() / 1000.0));
+        Duration streamDuration = Duration.ofMillis(options.intervalMs * (options.limit + 1));
+        log.info("Load test started: {}, streams={}", options, streams);
+
+        Scheduler scheduleScheduler = Schedulers.newSingle("loadtest-schedule");
+        Scheduler samplerScheduler = Schedulers.newSingle("loadtest-sampler");
+        try (JvmMetricsSampler sampler = new JvmMetricsSampler(options.csv, opened::get)) {
+            Disposable sampling = Flux.interval(options.sampleInterval, samplerScheduler)
+                    .subscribe(tick -> sample(sampler));
+
+            long startNanos = System.nanoTime();
+            try {
+                Flux.interval(Duration.ofNanos(periodNanos), scheduleScheduler)
+                        .take(streams)
+                        // Ticks wait here when maxConcurrent streams are open; the wait counts as latency
+                        .onBackpressureBuffer()
+                        .flatMap(index -> openStream(index, startNanos + (index + 1) * periodNanos), options.maxConcurrent)
+                        .then()
+                        .block(options.duration.plus(streamDuration).plus(DRAIN_GRACE));
+            } catch (IllegalStateException e) {
+                log.warn("Load test did not drain in time, {} streams still open", active.get());
+            }
+            sampling.dispose();
+            sample(sampler);
+        } finally {
+            scheduleScheduler.dispose();
+            samplerScheduler.dispose();
+            connectionProvider.dispose();
+        }
+
+        System.out.printf("%nStreams: opened=%d, completed=%d, rejected=%d, failed=%d, readings=%d%n%n",
+                opened.get(), completed.get(), rejected.get(), failed.get(), readings.get());
+        latency.printSummary(System.out);
+        latency.writeDistributions(options.histogramDir);
+        log.info("JVM metrics written to {}, latency distributions to {}", options.csv, options.histogramDir);
+    }
+
+    private Mono<Boolean> openStream(long index, long intendedStartNanos) {
+        Target target = options.targets.get((int) (index % options.targets.size()));
+        long sensorId = index % options.sensors + 1;
+        String clientId = "loadtest-" + index % options.clients;
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(options.intervalMs);
+        // Readings of all sensors of a multi stream are interleaved on one response
+        long expectedIntervalNanos = target == Target.MULTI ? intervalNanos / options.sensorCount : intervalNanos;
+
+        return Mono.defer(() -> {
+            opened.incrementAndGet();
+            active.incrementAndGet();
+            StreamTiming timing = new StreamTiming(target, expectedIntervalNanos);
+            return httpClient
+                    .headers(headers -> headers.set(CLIENT_ID_HEADER, clientId))
+                    .get()
+                    .uri(uri(target, sensorId))
+                    .response((response, body) -> {
+                        long now = System.nanoTime();
+                        latency.recordTimeToFirstByte(target, now - intendedStartNanos);
+                        int status = response.status().code();
+                        if (status != 200) {
+                            (status == 429 ? rejected : failed).incrementAndGet();
+                            return body.then(Mono.just(false));
+                        }
+                        timing.lastArrivalNanos = now;
+                        return body.doOnNext(chunk -> onChunk(chunk, timing)).then(Mono.just(true));
+                    })
+                    .next()
+                    .doOnNext(ok -> {
+                        if (ok) {
+                            completed.incrementAndGet();
+                        }
+                    })
+                    .onErrorResume(error -> {
+                        failed.incrementAndGet();
+                        log.debug("Stream {} failed: {}", index, error.toString());
+                        return Mono.empty();
+                    })
+                    .doFinally(signal -> active.decrementAndGet());
+        });
+    }
+
+    /**
+     * Counts the NDJSON lines completed by a chunk. Lines that arrive together are recorded with a
+     * zero gap, the first one with the gap since the previous chunk.
+     */
+    private void onChunk(ByteBuf chunk, StreamTiming timing) {
+        int lines = 0;
+        for (int i = chunk.readerIndex(); i < chunk.writerIndex(); i++) {
+            if (chunk.getByte(i) == '\n') {
+                lines++;
+            }
+        }
+        if (lines == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        latency.recordInterArrival(timing.target, now - timing.lastArrivalNanos, timing.expectedIntervalNanos);
+        for (int i = 1; i < lines; i++) {
+            latency.recordInterArrival(timing.target, 0, timing.expectedIntervalNanos);
+        }
+        timing.lastArrivalNanos = now;
+        readings.addAndGet(lines);
+    }
+
+    private String uri(Target target, long sensorId) {
+        return switch (target) {
+            case STREAM -> "/api/sensors/stream?sensorId=" + sensorId + "&limit=" + options.limit
+                    + "&intervalMs=" + options.intervalMs;
+            case MULTI -> "/api/sensors/stream/multi?sensorCount=" + options.sensorCount
+                    + "&limit=" + options.limit * options.sensorCount + "&intervalMs=" + options.intervalMs;
+            // The gateway streams at the server's default interval
+            case CLIENT -> "/api/client/sensors?sensorId=" + sensorId + "&limit=" + options.limit;
+        };
+    }
+
+    private void sample(JvmMetricsSampler sampler) {
+        try {
+            String row = sampler.sample();
+            log.info("{} | active={}, completed={}, rejected={}, failed={}",
+                    row, active.get(), completed.get(), rejected.get(), failed.get());
+        } catch (IOException e) {
+            log.error("Failed to write JVM metrics sample: {}", e.getMessage());
+        }
+    }
+
+    private static ConfigurableApplicationContext startEmbeddedServer(int port, String baseUrl) {
+        log.info("Starting embedded server on port {}", port);
+        // Command line arguments take precedence over application.yml and environment placeholders
+        return new SpringApplicationBuilder(SensorReactiveApplication.class)
+                .run("--server.port=" + port,
+                        "--app.sensor-server.url=" + baseUrl,
+                        "--app.persistence.enabled=false",
+                        "--spring.flyway.enabled=false");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Per-stream state; body chunks of one stream are delivered serially
+     */
+    private static final class StreamTiming {
+        private final Target target;
+        private final long expectedIntervalNanos;
+        private long lastArrivalNanos;
+
+        private StreamTiming(Target target, long expectedIntervalNanos) {
+            this.target = target;
+            this.expectedIntervalNanos = expectedIntervalNanos;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.sensordata.loadtest;
+
+import com.sensordata.loadtest.LoadTestOptions.Target;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HDR histograms (microseconds) of time to first byte and reading inter-arrival time per endpoint.
+ *
+ * Coordinated omission is corrected in both: time to first byte is measured from the moment the
+ * open-loop schedule intended to open the stream, not from when the request was actually sent, and
+ * inter-arrival gaps longer than the expected interval are back-filled with the readings that
+ * should have arrived in between (recordValueWithExpectedInterval).
+ */
+final class StreamLatencyRecorder {
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final Map<Target, Histogram> timeToFirstByte = new EnumMap<>(Target.class);
+    private final Map<Target, Histogram> interArrival = new EnumMap<>(Target.class);
+
+    StreamLatencyRecorder() {
+        for (Target target : Target.values()) {
+            timeToFirstByte.put(target, new ConcurrentHistogram(3));
+            interArrival.put(target, new ConcurrentHistogram(3));
+        }
+    }
+
+    void recordTimeToFirstByte(Target target, long nanos) {
+        timeToFirstByte.get(target).recordValue(toMicros(nanos));
+    }
+
+    void recordInterArrival(Target target, long nanos, long expectedIntervalNanos) {
+        interArrival.get(target).recordValueWithExpectedInterval(toMicros(nanos), toMicros(expectedIntervalNanos));
+    }
+
+    /**
+     * Prints one percentile line per endpoint and metric
+     */
+    void printSummary(PrintStream out) {
+        out.printf("%-8s %-14s %10s %10s %10s %10s %10s %10s%n",
+                "endpoint", "metric", "count", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Target target : Target.values()) {
+            printLine(out, target, "ttfb", timeToFirstByte.get(target));
+            printLine(out, target, "inter-arrival", interArrival.get(target));
+        }
+    }
+
+    /**
+     * Writes the full percentile distributions as .hgrm files (values in milliseconds),
+     * readable by the HdrHistogram plotter
+     */
+    void writeDistributions(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (Target target : Target.values()) {
+            write(directory.resolve(target.getLabel() + "-ttfb.hgrm"), timeToFirstByte.get(target));
+            write(directory.resolve(target.getLabel() + "-inter-arrival.hgrm"), interArrival.get(target));
+        }
+    }
+
+    private static void printLine(PrintStream out, Target target, String metric, Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            return;
+        }
+        out.printf(Locale.ROOT, "%-8s %-14s %10d %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                target.getLabel(), metric, histogram.getTotalCount(),
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                histogram.getMaxValue() / MICROS_PER_MILLI);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+
+    private static void write(Path file, Histogram histogram) throws IOException {
+        if (histogram.getTotalCount() == 0) {
+            return;
+        }
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+}
@@ -0,0 +1,76 @@
+package com.sensordata.codec;
+
+import com.sensordata.dto.SensorDataDto;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.codec.Hints;
+import org.springframework.http.codec.HttpMessageDecoder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes a stream of {@link SensorBinaryFormat} records into {@link SensorDataDto}.
+ * Records may span network chunks; partial records are carried over to the next chunk.
+ */
+public class SensorBinaryDecoder implements HttpMessageDecoder<SensorDataDto> {
+    private static final List<MimeType> MIME_TYPES = List.of(SensorBinaryFormat.MEDIA_TYPE);
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        return SensorDataDto.class.isAssignableFrom(elementType.toClass())
+                && (mimeType == null || SensorBinaryFormat.MEDIA_TYPE.isCompatibleWith(mimeType));
+    }
+
+    @Override
+    public Flux<SensorDataDto> decode(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                                      @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return Flux.defer(() -> {
+            SensorBinaryFormat.Reader reader = new SensorBinaryFormat.Reader();
+            return Flux.from(inputStream)
+                    .concatMapIterable(buffer -> {
+                        byte[] chunk = new byte[buffer.readableByteCount()];
+                        buffer.read(chunk);
+                        DataBufferUtils.release(buffer);
+
+                        List<SensorDataDto> records = new ArrayList<>();
+                        try {
+                            reader.read(chunk, records);
+                        } catch (RuntimeException e) {
+                            throw new DecodingException("Invalid sensor binary stream", e);
+                        }
+                        return records;
+                    })
+                    .concatWith(Mono.defer(() -> reader.hasPartialRecord()
+                            ? Mono.error(new DecodingException("Sensor binary stream ended inside a record"))
+                            : Mono.empty()));
+        });
+    }
+
+    @Override
+    public Map<String, Object> getDecodeHints(ResolvableType actualType, ResolvableType elementType,
+                                              ServerHttpRequest request, ServerHttpResponse response) {
+        return Hints.none();
+    }
+
+    @Override
+    public Mono<SensorDataDto> decodeToMono(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                                            @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return decode(inputStream, elementType, mimeType, hints).next();
+    }
+
+    @Override
+    public List<MimeType> getDecodableMimeTypes() {
+        return MIME_TYPES;
+    }
+}
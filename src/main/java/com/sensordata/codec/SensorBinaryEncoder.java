@@ -0,0 +1,75 @@
+package com.sensordata.codec;
+
+import com.sensordata.dto.SensorDataDto;
+import com.sensordata.util.SensorReadingQuery;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes {@link SensorDataDto} streams into {@link SensorBinaryFormat} records.
+ * The media type is a streaming one, so each reading is flushed as soon as it is written.
+ * Fields left out by the projection of the stream (see {@link SensorProjectionHints}) are not written.
+ */
+public class SensorBinaryEncoder implements HttpMessageEncoder<SensorDataDto> {
+    private static final List<MimeType> MIME_TYPES = List.of(SensorBinaryFormat.MEDIA_TYPE);
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        return SensorDataDto.class.isAssignableFrom(elementType.toClass())
+                && (mimeType == null || SensorBinaryFormat.MEDIA_TYPE.isCompatibleWith(mimeType));
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends SensorDataDto> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, @Nullable MimeType mimeType,
+                                   @Nullable Map<String, Object> hints) {
+        // One writer per response: delta encoding is relative to the previous record of the same stream
+        SensorReadingQuery projection = SensorProjectionHints.projectionOf(hints);
+        return Flux.defer(() -> {
+            SensorBinaryFormat.Writer writer = new SensorBinaryFormat.Writer();
+            return Flux.from(inputStream).map(data -> write(writer, data, projection, bufferFactory));
+        });
+    }
+
+    @Override
+    public DataBuffer encodeValue(SensorDataDto value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                  @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return write(new SensorBinaryFormat.Writer(), value, SensorProjectionHints.projectionOf(hints), bufferFactory);
+    }
+
+    @Override
+    public Map<String, Object> getEncodeHints(ResolvableType actualType, ResolvableType elementType,
+                                              @Nullable MediaType mediaType, ServerHttpRequest request,
+                                              ServerHttpResponse response) {
+        return SensorProjectionHints.withProjection(Map.of(), elementType, request);
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return List.of(SensorBinaryFormat.MEDIA_TYPE);
+    }
+
+    private static DataBuffer write(SensorBinaryFormat.Writer writer, SensorDataDto data, SensorReadingQuery projection,
+                                    DataBufferFactory bufferFactory) {
+        DataBuffer out = bufferFactory.allocateBuffer(SensorBinaryFormat.MAX_RECORD_BYTES);
+        writer.write(data, projection, out);
+        return out;
+    }
+}
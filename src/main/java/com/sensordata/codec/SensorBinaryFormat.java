@@ -0,0 +1,313 @@
+package com.sensordata.codec;
+
+import com.sensordata.dto.SensorDataDto;
+import com.sensordata.util.SensorReadingQuery;
+import com.sensordata.util.SensorReadingQuery.Field;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary wire format for streams of {@link SensorDataDto}.
+ *
+ * Every reading is one little-endian, length-prefixed record:
+ * <pre>
+ *   u16  length of the rest of the record
+ *   u8   flags    - bit 0: anomaly present, bit 1: anomaly value,
+ *                   bit 2: timestamp present, bit 3: timestamp is absolute (i64) rather than a delta (i32)
+ *   u8   presence - bit 0: sensor_id, 1: temperature, 2: humidity, 3: pressure, 4: value
+ *   i64  sensor_id                     (if present)
+ *   i32  timestamp delta / i64 absolute (if present)
+ *   f64  temperature, humidity, pressure, value (each if present)
+ * </pre>
+ * Timestamps are delta-encoded against the previous record of the same stream; the first record and any
+ * delta that does not fit into 32 bits carry the absolute value. A full reading takes 48 bytes instead of
+ * roughly 150 bytes of NDJSON, and encoding/decoding is plain field copying without any text formatting.
+ *
+ * Frames (micro-batches of one sensor, snapshot chunks of consecutive sensors) start with a header record
+ * that produces no reading:
+ * <pre>
+ *   u16  length (14)
+ *   u8   flags    - bit 4: frame header, bit 5: sequential sensor ids
+ *   u8   presence - bit 0
+ *   i64  sensor_id
+ *   i32  count of the records that follow
+ * </pre>
+ * The next count records omit their sensor_id: it is the header's one, or header + index within the frame
+ * with sequential ids. A full reading inside a frame takes 40 bytes.
+ *
+ * Оптимизации:
+ * - Фиксированная ширина полей, little-endian, без промежуточных строк
+ * - Дельта-кодирование timestamp (4 байта вместо 8)
+ * - sensor_id один раз на кадр, записи пишутся прямо в буфер ответа без промежуточных массивов
+ */
+public final class SensorBinaryFormat {
+    public static final String MEDIA_TYPE_VALUE = "application/x-sensor-binary";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    static final int LENGTH_PREFIX_BYTES = 2;
+    static final int MAX_RECORD_BYTES = LENGTH_PREFIX_BYTES + 2 + 8 + 8 + 4 * 8;
+    static final int FRAME_HEADER_BYTES = LENGTH_PREFIX_BYTES + 2 + 8 + 4;
+    static final int MAX_FRAME_RECORD_BYTES = MAX_RECORD_BYTES - 8;
+
+    private static final int FLAG_ANOMALY_PRESENT = 1;
+    private static final int FLAG_ANOMALY = 1 << 1;
+    private static final int FLAG_TIMESTAMP_PRESENT = 1 << 2;
+    private static final int FLAG_TIMESTAMP_ABSOLUTE = 1 << 3;
+    private static final int FLAG_FRAME_HEADER = 1 << 4;
+    private static final int FLAG_SEQUENTIAL_IDS = 1 << 5;
+
+    private static final int HAS_SENSOR_ID = 1;
+    private static final int HAS_TEMPERATURE = 1 << 1;
+    private static final int HAS_HUMIDITY = 1 << 2;
+    private static final int HAS_PRESSURE = 1 << 3;
+    private static final int HAS_VALUE = 1 << 4;
+
+    private SensorBinaryFormat() {
+    }
+
+    /**
+     * Encoding state of one stream: the timestamp of the previously written record and a record-sized
+     * scratch buffer, so writing a record allocates nothing
+     */
+    public static final class Writer {
+        private final ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private long previousTimestamp;
+        private boolean hasPrevious;
+        private int flags;
+        private int presence;
+
+        /**
+         * Writes one record and returns it as a byte array of exact length
+         */
+        public byte[] write(SensorDataDto data) {
+            return write(data, SensorReadingQuery.ALL);
+        }
+
+        /**
+         * Writes one record with only the fields selected by the projection (sensor id and timestamp always)
+         */
+        public byte[] write(SensorDataDto data, SensorReadingQuery projection) {
+            encode(data, projection);
+            return Arrays.copyOf(record.array(), record.position());
+        }
+
+        /**
+         * Appends one record with only the fields selected by the projection to the buffer
+         */
+        public void write(SensorDataDto data, SensorReadingQuery projection, DataBuffer out) {
+            encode(data, projection);
+            out.write(record.array(), 0, record.position());
+        }
+
+        /**
+         * Appends a frame header: the next count records carry no sensor id of their own and belong to
+         * sensorId, or to sensorId + their index in the frame with sequentialIds
+         */
+        public void writeFrameHeader(long sensorId, int count, boolean sequentialIds, DataBuffer out) {
+            beginRecord();
+            flags = FLAG_FRAME_HEADER | (sequentialIds ? FLAG_SEQUENTIAL_IDS : 0);
+            presence = HAS_SENSOR_ID;
+            record.putLong(sensorId);
+            record.putInt(count);
+            endRecord(out);
+        }
+
+        // Field by field writing for encoders that hold readings column by column; fields must be put in record order
+
+        void beginRecord() {
+            record.clear();
+            record.position(LENGTH_PREFIX_BYTES + 2);
+            flags = 0;
+            presence = 0;
+        }
+
+        void putSensorId(long sensorId) {
+            presence |= HAS_SENSOR_ID;
+            record.putLong(sensorId);
+        }
+
+        void putTimestamp(long timestamp) {
+            long delta = timestamp - previousTimestamp;
+            flags |= FLAG_TIMESTAMP_PRESENT;
+            if (hasPrevious && delta == (int) delta) {
+                record.putInt((int) delta);
+            } else {
+                flags |= FLAG_TIMESTAMP_ABSOLUTE;
+                record.putLong(timestamp);
+            }
+            previousTimestamp = timestamp;
+            hasPrevious = true;
+        }
+
+        void putTemperature(double temperature) {
+            putDouble(temperature, HAS_TEMPERATURE);
+        }
+
+        void putHumidity(double humidity) {
+            putDouble(humidity, HAS_HUMIDITY);
+        }
+
+        void putPressure(double pressure) {
+            putDouble(pressure, HAS_PRESSURE);
+        }
+
+        void putValue(double value) {
+            putDouble(value, HAS_VALUE);
+        }
+
+        void putAnomaly(boolean anomaly) {
+            flags |= FLAG_ANOMALY_PRESENT | (anomaly ? FLAG_ANOMALY : 0);
+        }
+
+        void endRecord(DataBuffer out) {
+            finishRecord();
+            out.write(record.array(), 0, record.position());
+        }
+
+        private void encode(SensorDataDto data, SensorReadingQuery projection) {
+            beginRecord();
+            if (data.getAnomaly() != null && projection.includes(Field.ANOMALY)) {
+                putAnomaly(data.getAnomaly());
+            }
+            if (data.getSensorId() != null) {
+                putSensorId(data.getSensorId());
+            }
+            if (data.getTimestamp() != null) {
+                putTimestamp(data.getTimestamp());
+            }
+            if (data.getTemperature() != null && projection.includes(Field.TEMPERATURE)) {
+                putTemperature(data.getTemperature());
+            }
+            if (data.getHumidity() != null && projection.includes(Field.HUMIDITY)) {
+                putHumidity(data.getHumidity());
+            }
+            if (data.getPressure() != null && projection.includes(Field.PRESSURE)) {
+                putPressure(data.getPressure());
+            }
+            if (data.getValue() != null && projection.includes(Field.VALUE)) {
+                putValue(data.getValue());
+            }
+            finishRecord();
+        }
+
+        private void putDouble(double value, int bit) {
+            presence |= bit;
+            record.putDouble(value);
+        }
+
+        private void finishRecord() {
+            record.putShort(0, (short) (record.position() - LENGTH_PREFIX_BYTES));
+            record.put(LENGTH_PREFIX_BYTES, (byte) flags);
+            record.put(LENGTH_PREFIX_BYTES + 1, (byte) presence);
+        }
+    }
+
+    /**
+     * Decoding state of one stream. Input may arrive split at arbitrary byte boundaries;
+     * an incomplete trailing record is kept until the next chunk arrives.
+     */
+    public static final class Reader {
+        private byte[] pending = new byte[0];
+        private long previousTimestamp;
+        // Current frame: records left in it, and where their sensor ids come from
+        private int frameRemaining;
+        private int frameIndex;
+        private long frameSensorId;
+        private boolean frameSequentialIds;
+
+        /**
+         * Appends a chunk and adds every record completed by it to {@code out}
+         */
+        public void read(byte[] chunk, List<SensorDataDto> out) {
+            byte[] bytes = chunk;
+            if (pending.length > 0) {
+                bytes = new byte[pending.length + chunk.length];
+                System.arraycopy(pending, 0, bytes, 0, pending.length);
+                System.arraycopy(chunk, 0, bytes, pending.length, chunk.length);
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.remaining() >= LENGTH_PREFIX_BYTES) {
+                int length = Short.toUnsignedInt(buffer.getShort(buffer.position()));
+                if (buffer.remaining() < LENGTH_PREFIX_BYTES + length) {
+                    break;
+                }
+                buffer.position(buffer.position() + LENGTH_PREFIX_BYTES);
+                int end = buffer.position() + length;
+                SensorDataDto data = readRecord(buffer);
+                if (data != null) {
+                    out.add(data);
+                }
+                if (buffer.position() != end) {
+                    throw new IllegalStateException("Malformed sensor record: expected " + length + " bytes");
+                }
+            }
+
+            pending = buffer.hasRemaining()
+                    ? Arrays.copyOfRange(bytes, buffer.position(), bytes.length)
+                    : new byte[0];
+        }
+
+        /**
+         * Returns true if the stream ended in the middle of a record
+         */
+        public boolean hasPartialRecord() {
+            return pending.length > 0;
+        }
+
+        /**
+         * Returns the reading of the record, or null for a frame header
+         */
+        private SensorDataDto readRecord(ByteBuffer buffer) {
+            int flags = buffer.get();
+            int presence = buffer.get();
+
+            if ((flags & FLAG_FRAME_HEADER) != 0) {
+                frameSensorId = buffer.getLong();
+                frameRemaining = buffer.getInt();
+                frameIndex = 0;
+                frameSequentialIds = (flags & FLAG_SEQUENTIAL_IDS) != 0;
+                return null;
+            }
+
+            SensorDataDto data = new SensorDataDto();
+            if ((presence & HAS_SENSOR_ID) != 0) {
+                data.setSensorId(buffer.getLong());
+            } else if (frameRemaining > 0) {
+                data.setSensorId(frameSequentialIds ? frameSensorId + frameIndex : frameSensorId);
+            }
+            if (frameRemaining > 0) {
+                frameRemaining--;
+                frameIndex++;
+            }
+            if ((flags & FLAG_TIMESTAMP_PRESENT) != 0) {
+                long timestamp = (flags & FLAG_TIMESTAMP_ABSOLUTE) != 0
+                        ? buffer.getLong()
+                        : previousTimestamp + buffer.getInt();
+                data.setTimestamp(timestamp);
+                previousTimestamp = timestamp;
+            }
+            if ((presence & HAS_TEMPERATURE) != 0) {
+                data.setTemperature(buffer.getDouble());
+            }
+            if ((presence & HAS_HUMIDITY) != 0) {
+                data.setHumidity(buffer.getDouble());
+            }
+            if ((presence & HAS_PRESSURE) != 0) {
+                data.setPressure(buffer.getDouble());
+            }
+            if ((presence & HAS_VALUE) != 0) {
+                data.setValue(buffer.getDouble());
+            }
+            if ((flags & FLAG_ANOMALY_PRESENT) != 0) {
+                data.setAnomaly((flags & FLAG_ANOMALY) != 0);
+            }
+            return data;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.sensordata.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.sensordata.dto.SensorDataDto;
+import com.sensordata.util.SensorReadingQuery;
+import com.sensordata.util.SensorReadingQuery.Field;
+
+import java.io.IOException;
+
+/**
+ * JSON form of {@link SensorDataDto}: every field in declaration order, null fields written as null.
+ * Under a stream projection (see {@link SensorProjectionJsonEncoder}) unselected fields are not written at all,
+ * straight from the shared reading.
+ */
+public class SensorDataJsonSerializer extends StdSerializer<SensorDataDto> {
+
+    public SensorDataJsonSerializer() {
+        super(SensorDataDto.class);
+    }
+
+    @Override
+    public void serialize(SensorDataDto data, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        Object attribute = provider.getAttribute(SensorProjectionHints.QUERY_HINT);
+        SensorReadingQuery query = attribute instanceof SensorReadingQuery projection ? projection : SensorReadingQuery.ALL;
+
+        generator.writeStartObject(data);
+        writeLong(generator, Field.SENSOR_ID, data.getSensorId());
+        writeLong(generator, Field.TIMESTAMP, data.getTimestamp());
+        if (query.includes(Field.TEMPERATURE)) {
+            writeDouble(generator, Field.TEMPERATURE, data.getTemperature());
+        }
+        if (query.includes(Field.HUMIDITY)) {
+            writeDouble(generator, Field.HUMIDITY, data.getHumidity());
+        }
+        if (query.includes(Field.PRESSURE)) {
+            writeDouble(generator, Field.PRESSURE, data.getPressure());
+        }
+        if (query.includes(Field.VALUE)) {
+            writeDouble(generator, Field.VALUE, data.getValue());
+        }
+        if (query.includes(Field.ANOMALY)) {
+            generator.writeFieldName(Field.ANOMALY.getJsonName());
+            if (data.getAnomaly() != null) {
+                generator.writeBoolean(data.getAnomaly());
+            } else {
+                generator.writeNull();
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeLong(JsonGenerator generator, Field field, Long value) throws IOException {
+        generator.writeFieldName(field.getJsonName());
+        if (value != null) {
+            generator.writeNumber(value);
+        } else {
+            generator.writeNull();
+        }
+    }
+
+    private static void writeDouble(JsonGenerator generator, Field field, Double value) throws IOException {
+        generator.writeFieldName(field.getJsonName());
+        if (value != null) {
+            generator.writeNumber(value);
+        } else {
+            generator.writeNull();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.sensordata.codec;
+
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.sensordata.dto.SensorDataDto;
+
+/**
+ * Jackson module with the JSON serializers of the sensor wire types. It is registered with the
+ * application ObjectMapper (see WebFluxCodecConfig), so the DTOs carry no codec annotations.
+ */
+public class SensorJsonModule extends SimpleModule {
+
+    public SensorJsonModule() {
+        super("SensorJsonModule");
+        addSerializer(SensorDataDto.class, new SensorDataJsonSerializer());
+    }
+}
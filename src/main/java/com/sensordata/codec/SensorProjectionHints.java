@@ -0,0 +1,51 @@
+package com.sensordata.codec;
+
+import com.sensordata.dto.SensorDataDto;
+import com.sensordata.util.SensorReadingQuery;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.lang.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Carries the field projection of a reading stream from the request to the encoders.
+ * The fields request parameter is read once per response, and the encoders skip the unselected
+ * fields while writing, so a projected stream needs no copy of its readings.
+ */
+final class SensorProjectionHints {
+    static final String QUERY_HINT = SensorProjectionHints.class.getName() + ".query";
+    static final String FIELDS_PARAMETER = "fields";
+
+    private SensorProjectionHints() {
+    }
+
+    /**
+     * The hints with the projection of the request added, if it streams readings and selects a subset of fields
+     */
+    static Map<String, Object> withProjection(Map<String, Object> hints, ResolvableType elementType,
+                                              ServerHttpRequest request) {
+        if (!SensorDataDto.class.isAssignableFrom(elementType.toClass())) {
+            return hints;
+        }
+        SensorReadingQuery query;
+        try {
+            query = SensorReadingQuery.parse(request.getQueryParams().getFirst(FIELDS_PARAMETER), null);
+        } catch (IllegalArgumentException e) {
+            // Stream endpoints reject invalid fields before encoding; anything else is written unprojected
+            return hints;
+        }
+        if (query.selectsAllFields()) {
+            return hints;
+        }
+        Map<String, Object> result = new HashMap<>(hints);
+        result.put(QUERY_HINT, query);
+        return result;
+    }
+
+    static SensorReadingQuery projectionOf(@Nullable Map<String, Object> hints) {
+        Object query = hints != null ? hints.get(QUERY_HINT) : null;
+        return query instanceof SensorReadingQuery projection ? projection : SensorReadingQuery.ALL;
+    }
+}
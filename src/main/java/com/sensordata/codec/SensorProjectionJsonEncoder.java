@@ -0,0 +1,41 @@
+package com.sensordata.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+
+import java.util.Map;
+
+/**
+ * JSON / NDJSON encoder that applies the field projection of a reading stream while writing.
+ * The projection travels as an ObjectWriter attribute and is read by {@link SensorDataJsonSerializer};
+ * all other types, and readings of unprojected responses, are written as by the default encoder.
+ */
+public class SensorProjectionJsonEncoder extends Jackson2JsonEncoder {
+
+    public SensorProjectionJsonEncoder(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    public Map<String, Object> getEncodeHints(@Nullable ResolvableType actualType, ResolvableType elementType,
+                                              @Nullable MediaType mediaType, ServerHttpRequest request,
+                                              ServerHttpResponse response) {
+        return SensorProjectionHints.withProjection(
+                super.getEncodeHints(actualType, elementType, mediaType, request, response), elementType, request);
+    }
+
+    @Override
+    protected ObjectWriter customizeWriter(ObjectWriter writer, @Nullable MimeType mimeType,
+                                           ResolvableType elementType, @Nullable Map<String, Object> hints) {
+        ObjectWriter customized = super.customizeWriter(writer, mimeType, elementType, hints);
+        Object query = hints != null ? hints.get(SensorProjectionHints.QUERY_HINT) : null;
+        return query != null ? customized.withAttribute(SensorProjectionHints.QUERY_HINT, query) : customized;
+    }
+}
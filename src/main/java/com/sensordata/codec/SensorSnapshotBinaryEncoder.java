@@ -0,0 +1,88 @@
+package com.sensordata.codec;
+
+import com.sensordata.dto.SensorSnapshotChunk;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes {@link SensorSnapshotChunk} streams as {@link SensorBinaryFormat} frames with sequential sensor ids,
+ * one data buffer (and one flush) per chunk. Like {@link SensorFrameBinaryEncoder}, records are written from
+ * the chunk columns into one buffer per chunk, and the output is read back with {@link SensorBinaryDecoder}
+ * as individual readings.
+ */
+public class SensorSnapshotBinaryEncoder implements HttpMessageEncoder<SensorSnapshotChunk> {
+    private static final List<MimeType> MIME_TYPES = List.of(SensorBinaryFormat.MEDIA_TYPE);
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        return SensorSnapshotChunk.class.isAssignableFrom(elementType.toClass())
+                && (mimeType == null || SensorBinaryFormat.MEDIA_TYPE.isCompatibleWith(mimeType));
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends SensorSnapshotChunk> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, @Nullable MimeType mimeType,
+                                   @Nullable Map<String, Object> hints) {
+        return Flux.defer(() -> {
+            SensorBinaryFormat.Writer writer = new SensorBinaryFormat.Writer();
+            return Flux.from(inputStream).map(chunk -> write(writer, chunk, bufferFactory));
+        });
+    }
+
+    @Override
+    public DataBuffer encodeValue(SensorSnapshotChunk value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                  @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return write(new SensorBinaryFormat.Writer(), value, bufferFactory);
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return List.of(SensorBinaryFormat.MEDIA_TYPE);
+    }
+
+    private static DataBuffer write(SensorBinaryFormat.Writer writer, SensorSnapshotChunk chunk,
+                                    DataBufferFactory bufferFactory) {
+        int size = chunk.size();
+        DataBuffer out = bufferFactory.allocateBuffer(
+                SensorBinaryFormat.FRAME_HEADER_BYTES + size * SensorBinaryFormat.MAX_FRAME_RECORD_BYTES);
+        try {
+            writer.writeFrameHeader(chunk.getFirstSensorId(), size, true, out);
+            long timestamp = chunk.getTimestamp();
+            double[] temperatures = chunk.getTemperatures();
+            double[] humidities = chunk.getHumidities();
+            double[] pressures = chunk.getPressures();
+            double[] values = chunk.getValues();
+            boolean[] anomalies = chunk.getAnomalies();
+            for (int i = 0; i < size; i++) {
+                writer.beginRecord();
+                writer.putAnomaly(anomalies[i]);
+                writer.putTimestamp(timestamp);
+                writer.putTemperature(temperatures[i]);
+                writer.putHumidity(humidities[i]);
+                writer.putPressure(pressures[i]);
+                writer.putValue(values[i]);
+                writer.endRecord(out);
+            }
+            return out;
+        } catch (RuntimeException e) {
+            DataBufferUtils.release(out);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.sensordata.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class NettyServerConfig {
+
+    @Value("${app.server.http2.max-concurrent-streams:1000}")
+    private long maxConcurrentStreams;
+
+    /**
+     * Allows many concurrent sensor streams per HTTP/2 (h2c) connection
+     */
+    @Bean
+    public NettyServerCustomizer http2StreamsCustomizer() {
+        return httpServer -> httpServer.http2Settings(settings -> settings.maxConcurrentStreams(maxConcurrentStreams));
+    }
+}
@@ -0,0 +1,44 @@
+package com.sensordata.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.util.retry.Retry;
+
+import java.net.URI;
+import java.time.Duration;
+
+@Slf4j
+@Configuration
+public class RSocketClientConfig {
+
+    @Value("${app.sensor-server.url:http://localhost:8080}")
+    private String sensorServerUrl;
+
+    @Value("${spring.rsocket.server.mapping-path:/rsocket}")
+    private String mappingPath;
+
+    /**
+     * One multiplexed RSocket connection to the sensor server, shared by all client streams.
+     * The connection is opened lazily on the first request and re-established after a failure.
+     */
+    @Bean
+    public RSocketRequester sensorServerRequester(RSocketRequester.Builder builder) {
+        URI uri = UriComponentsBuilder.fromUriString(sensorServerUrl)
+                .scheme(sensorServerUrl.startsWith("https") ? "wss" : "ws")
+                .path(mappingPath)
+                .build()
+                .toUri();
+
+        log.info("Creating RSocketRequester for {}", uri);
+
+        return builder
+                .rsocketConnector(connector -> connector
+                        .keepAlive(Duration.ofSeconds(20), Duration.ofSeconds(90))
+                        .reconnect(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30))))
+                .websocket(uri);
+    }
+}
@@ -0,0 +1,54 @@
+package com.sensordata.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import reactor.netty.http.HttpProtocol;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Connection pool and protocol settings of the WebClient used to reach sensor servers
+ * (app.sensor-server.pool.*). With HTTP/2 (h2c) each pooled connection carries many
+ * concurrent streams, so a few connections serve thousands of upstream streams.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.sensor-server.pool")
+public class SensorClientPoolProperties {
+    /**
+     * H2C alone uses HTTP/2 with prior knowledge; H2C + HTTP11 negotiates via the HTTP/1.1 Upgrade header
+     */
+    private List<HttpProtocol> protocols = new ArrayList<>(List.of(HttpProtocol.H2C));
+
+    private int maxConnections = 16;
+    private int pendingAcquireMaxCount = 10_000;
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(10);
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+    private Duration maxLifeTime = Duration.ofMinutes(10);
+    private Duration evictInBackground = Duration.ofSeconds(30);
+
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration responseTimeout = Duration.ofSeconds(30);
+    private Duration readTimeout = Duration.ofSeconds(30);
+    private Duration writeTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Registers reactor.netty.connection.provider.* and reactor.netty.http.client.* meters
+     */
+    private boolean metricsEnabled = true;
+
+    /**
+     * Per-host overrides when requests go to more than one sensor server
+     */
+    private List<HostPool> hosts = new ArrayList<>();
+
+    @Data
+    public static class HostPool {
+        private String host;
+        private int port = 80;
+        private Integer maxConnections;
+        private Integer pendingAcquireMaxCount;
+        private Duration pendingAcquireTimeout;
+    }
+}
@@ -1,49 +1,93 @@
 package com.sensordata.config;
 
+import com.sensordata.codec.SensorBinaryDecoder;
+import com.sensordata.codec.SensorBinaryEncoder;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
 import reactor.netty.resources.ConnectionProvider;
 
+import java.net.InetSocketAddress;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 @Slf4j
 @Configuration
+@EnableConfigurationProperties(SensorClientPoolProperties.class)
 public class WebClientConfig {
 
     @Value("${app.sensor-server.url:http://localhost:8080}")
     private String sensorServerUrl;
 
-    @Bean
-    public WebClient webClient() {
-        ConnectionProvider provider = ConnectionProvider.builder("sensor-client")
-                .maxConnections(100)
-                .maxIdleTime(java.time.Duration.ofSeconds(30))
-                .build();
+    // Identifies the gateway to the server's admission control (see app.admission.exempt-clients)
+    @Value("${app.sensor-server.client-id:sensor-gateway}")
+    private String clientId;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider sensorConnectionProvider(SensorClientPoolProperties pool) {
+        ConnectionProvider.Builder builder = ConnectionProvider.builder("sensor-client")
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictInBackground())
+                // OPTIMIZED: Pool gauges (active/idle/pending connections and streams, acquire time) via Micrometer
+                .metrics(pool.isMetricsEnabled());
+
+        for (SensorClientPoolProperties.HostPool host : pool.getHosts()) {
+            builder.forRemoteHost(InetSocketAddress.createUnresolved(host.getHost(), host.getPort()), spec -> {
+                if (host.getMaxConnections() != null) {
+                    spec.maxConnections(host.getMaxConnections());
+                }
+                if (host.getPendingAcquireMaxCount() != null) {
+                    spec.pendingAcquireMaxCount(host.getPendingAcquireMaxCount());
+                }
+                if (host.getPendingAcquireTimeout() != null) {
+                    spec.pendingAcquireTimeout(host.getPendingAcquireTimeout());
+                }
+            });
+        }
 
-        HttpClient httpClient = HttpClient.create(provider)
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 30000)
+        return builder.build();
+    }
+
+    @Bean
+    public WebClient webClient(ConnectionProvider sensorConnectionProvider, SensorClientPoolProperties pool) {
+        HttpClient httpClient = HttpClient.create(sensorConnectionProvider)
+                // OPTIMIZED: HTTP/2 multiplexes many long-lived streams over each pooled connection
+                .protocol(pool.getProtocols().toArray(HttpProtocol[]::new))
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) pool.getConnectTimeout().toMillis())
                 .option(ChannelOption.SO_KEEPALIVE, true)
-                .responseTimeout(java.time.Duration.ofSeconds(30))
+                .responseTimeout(pool.getResponseTimeout())
+                .metrics(pool.isMetricsEnabled(), Function.identity())
                 .doOnConnected(connection ->
-                        connection.addHandlerLast(new ReadTimeoutHandler(30, TimeUnit.SECONDS))
-                                .addHandlerLast(new WriteTimeoutHandler(30, TimeUnit.SECONDS))
+                        connection.addHandlerLast(new ReadTimeoutHandler(pool.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS))
+                                .addHandlerLast(new WriteTimeoutHandler(pool.getWriteTimeout().toMillis(), TimeUnit.MILLISECONDS))
                 );
 
         ReactorClientHttpConnector connector = new ReactorClientHttpConnector(httpClient);
 
-        log.info("Creating WebClient with baseUrl={}", sensorServerUrl);
+        log.info("Creating WebClient with baseUrl={}, protocols={}, maxConnections={}",
+                sensorServerUrl, pool.getProtocols(), pool.getMaxConnections());
 
         return WebClient.builder()
                 .baseUrl(sensorServerUrl)
                 .clientConnector(connector)
+                .defaultHeader("X-Client-Id", clientId)
+                .codecs(codecs -> {
+                    codecs.customCodecs().register(new SensorBinaryEncoder());
+                    codecs.customCodecs().register(new SensorBinaryDecoder());
+                })
                 .build();
     }
 }
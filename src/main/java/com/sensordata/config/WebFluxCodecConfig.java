@@ -0,0 +1,44 @@
+package com.sensordata.config;
+
+import com.sensordata.codec.SensorBinaryDecoder;
+import com.sensordata.codec.SensorBinaryEncoder;
+import com.sensordata.codec.SensorFrameBinaryEncoder;
+import com.sensordata.codec.SensorJsonModule;
+import com.sensordata.codec.SensorProjectionJsonEncoder;
+import com.sensordata.codec.SensorSnapshotBinaryEncoder;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * Registers the binary sensor codec on the server, next to the default JSON / NDJSON codecs.
+ * The format of a response is chosen by the Accept header.
+ * The JSON encoder is replaced by one that applies the field projection of reading streams while writing;
+ * the serializer it relies on comes with SensorJsonModule, which Spring Boot adds to the application ObjectMapper.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class WebFluxCodecConfig implements WebFluxConfigurer {
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Static, because the ObjectMapper injected above is built from the Module beans
+     */
+    @Bean
+    public static Module sensorJsonModule() {
+        return new SensorJsonModule();
+    }
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        configurer.defaultCodecs().jackson2JsonEncoder(new SensorProjectionJsonEncoder(objectMapper));
+        configurer.customCodecs().register(new SensorBinaryEncoder());
+        configurer.customCodecs().register(new SensorBinaryDecoder());
+        configurer.customCodecs().register(new SensorFrameBinaryEncoder());
+        configurer.customCodecs().register(new SensorSnapshotBinaryEncoder());
+    }
+}
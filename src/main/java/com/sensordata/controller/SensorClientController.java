@@ -1,5 +1,6 @@
 package com.sensordata.controller;
 
+import com.sensordata.codec.SensorBinaryFormat;
 import com.sensordata.dto.SensorDataDto;
 import com.sensordata.service.SensorClientService;
 import lombok.RequiredArgsConstructor;
@@ -17,26 +18,40 @@ import reactor.core.publisher.Flux;
 public class SensorClientController {
     private final SensorClientService sensorClientService;
 
-    @GetMapping(value = "/sensors", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @GetMapping(value = "/sensors", produces = {MediaType.APPLICATION_NDJSON_VALUE, SensorBinaryFormat.MEDIA_TYPE_VALUE})
     public Flux<SensorDataDto> getSensors(
             @RequestParam(required = false) Long sensorId,
-            @RequestParam(required = false) Integer limit) {
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String filter) {
 
-        log.info("Client received request for sensors: sensorId={}, limit={}", sensorId, limit);
+        log.atDebug().setMessage("Client received request for sensors")
+                .addKeyValue("sensorId", sensorId)
+                .addKeyValue("limit", limit)
+                .addKeyValue("fields", fields)
+                .addKeyValue("filter", filter)
+                .log();
 
         if (sensorId != null) {
-            return sensorClientService.getSensorStream(sensorId, limit);
+            return sensorClientService.getSensorStream(sensorId, limit, fields, filter);
         } else {
-            return sensorClientService.getMultipleSensorStream(null, limit);
+            return sensorClientService.getMultipleSensorStream(null, limit, fields, filter);
         }
     }
 
-    @GetMapping(value = "/sensors/multi", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @GetMapping(value = "/sensors/multi", produces = {MediaType.APPLICATION_NDJSON_VALUE, SensorBinaryFormat.MEDIA_TYPE_VALUE})
     public Flux<SensorDataDto> getMultipleSensors(
             @RequestParam(required = false) Integer sensorCount,
-            @RequestParam(required = false) Integer limit) {
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String filter) {
 
-        log.info("Client received request for multiple sensors: sensorCount={}, limit={}", sensorCount, limit);
-        return sensorClientService.getMultipleSensorStream(sensorCount, limit);
+        log.atDebug().setMessage("Client received request for multiple sensors")
+                .addKeyValue("sensorCount", sensorCount)
+                .addKeyValue("limit", limit)
+                .addKeyValue("fields", fields)
+                .addKeyValue("filter", filter)
+                .log();
+        return sensorClientService.getMultipleSensorStream(sensorCount, limit, fields, filter);
     }
 }
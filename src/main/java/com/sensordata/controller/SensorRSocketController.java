@@ -0,0 +1,43 @@
+package com.sensordata.controller;
+
+import com.sensordata.dto.SensorDataDto;
+import com.sensordata.dto.SensorStreamRequest;
+import com.sensordata.service.SensorStreamService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+
+/**
+ * RSocket endpoints (WebSocket transport on /rsocket) for the sensor streams.
+ * Subscriber demand (request-n) travels over the wire, and any number of streams
+ * share one connection.
+ */
+@Slf4j
+@Controller
+@RequiredArgsConstructor
+public class SensorRSocketController {
+    private final SensorStreamService sensorStreamService;
+
+    @MessageMapping("sensors.stream")
+    public Flux<SensorDataDto> stream(SensorStreamRequest request) {
+        log.atDebug().setMessage("Received RSocket stream request")
+                .addKeyValue("request", request)
+                .log();
+        return sensorStreamService.streamWithDemand(request);
+    }
+
+    /**
+     * Request-channel: every new request replaces the running stream, so a client can
+     * change sensors or interval without reconnecting
+     */
+    @MessageMapping("sensors.channel")
+    public Flux<SensorDataDto> channel(Flux<SensorStreamRequest> requests) {
+        return requests
+                .doOnNext(request -> log.atDebug().setMessage("Received RSocket channel request")
+                        .addKeyValue("request", request)
+                        .log())
+                .switchMap(sensorStreamService::streamWithDemand);
+    }
+}
@@ -1,12 +1,23 @@
 package com.sensordata.controller;
 
+import com.sensordata.codec.SensorBinaryFormat;
 import com.sensordata.dto.SensorDataDto;
+import com.sensordata.dto.SensorDataFrame;
+import com.sensordata.dto.SensorRollupDto;
+import com.sensordata.dto.SensorSnapshotChunk;
+import com.sensordata.dto.SensorStatsDto;
+import com.sensordata.service.SensorHistoryService;
+import com.sensordata.service.SensorStatisticsService;
 import com.sensordata.service.SensorStreamService;
+import com.sensordata.util.SensorReadingQuery;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -14,27 +25,176 @@ import reactor.core.publisher.Flux;
 @RequiredArgsConstructor
 public class SensorServerController {
     private final SensorStreamService sensorStreamService;
+    private final SensorStatisticsService sensorStatisticsService;
+    private final SensorHistoryService sensorHistoryService;
 
-    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, SensorBinaryFormat.MEDIA_TYPE_VALUE})
     public Flux<SensorDataDto> streamSensorData(
             @RequestParam(required = false) Long sensorId,
-            @RequestParam(required = false) Integer limit) {
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Integer replay,
+            @RequestParam(required = false) Long since,
+            @RequestParam(required = false) Long intervalMs,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String filter) {
 
-        log.info("Received stream request for sensorId={}, limit={}", sensorId, limit);
+        log.atDebug().setMessage("Received stream request")
+                .addKeyValue("sensorId", sensorId)
+                .addKeyValue("limit", limit)
+                .addKeyValue("replay", replay)
+                .addKeyValue("since", since)
+                .addKeyValue("intervalMs", intervalMs)
+                .addKeyValue("fields", fields)
+                .addKeyValue("filter", filter)
+                .log();
 
+        SensorReadingQuery query = SensorReadingQuery.parse(fields, filter);
         if (sensorId != null) {
-            return sensorStreamService.streamSensorData(sensorId, limit);
+            return sensorStreamService.streamSensorData(sensorId, limit, replay, since, intervalMs, query);
         } else {
-            return sensorStreamService.streamMultipleSensors(null, limit);
+            return sensorStreamService.streamMultipleSensors(null, limit, since, intervalMs, query);
         }
     }
 
-    @GetMapping(value = "/stream/multi", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @GetMapping(value = "/stream/multi", produces = {MediaType.APPLICATION_NDJSON_VALUE, SensorBinaryFormat.MEDIA_TYPE_VALUE})
     public Flux<SensorDataDto> streamMultipleSensors(
             @RequestParam(required = false) Integer sensorCount,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Long since,
+            @RequestParam(required = false) Long intervalMs,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String filter) {
+
+        log.atDebug().setMessage("Received multi-sensor stream request")
+                .addKeyValue("sensorCount", sensorCount)
+                .addKeyValue("limit", limit)
+                .addKeyValue("since", since)
+                .addKeyValue("intervalMs", intervalMs)
+                .addKeyValue("fields", fields)
+                .addKeyValue("filter", filter)
+                .log();
+        return sensorStreamService.streamMultipleSensors(sensorCount, limit, since, intervalMs,
+                SensorReadingQuery.parse(fields, filter));
+    }
+
+    @GetMapping(value = "/stream/frames", produces = {MediaType.APPLICATION_NDJSON_VALUE, SensorBinaryFormat.MEDIA_TYPE_VALUE})
+    public Flux<SensorDataFrame> streamFrames(
+            @RequestParam(required = false) Long sensorId,
+            @RequestParam(required = false) Integer sensorCount,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Integer replay,
+            @RequestParam(required = false) Long since,
+            @RequestParam(required = false) Long intervalMs,
+            @RequestParam(required = false) Integer frameSize,
+            @RequestParam(required = false) Long frameMillis,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String filter) {
+
+        log.atDebug().setMessage("Received framed stream request")
+                .addKeyValue("sensorId", sensorId)
+                .addKeyValue("sensorCount", sensorCount)
+                .addKeyValue("limit", limit)
+                .addKeyValue("frameSize", frameSize)
+                .addKeyValue("frameMillis", frameMillis)
+                .addKeyValue("fields", fields)
+                .addKeyValue("filter", filter)
+                .log();
+        return sensorStreamService.streamFrames(sensorId, sensorCount, limit, replay, since, intervalMs, frameSize, frameMillis,
+                SensorReadingQuery.parse(fields, filter));
+    }
+
+    @GetMapping(value = "/snapshot", produces = {MediaType.APPLICATION_NDJSON_VALUE, SensorBinaryFormat.MEDIA_TYPE_VALUE})
+    public Flux<SensorSnapshotChunk> streamSnapshot(
+            @RequestParam(required = false) Long fromId,
+            @RequestParam Long toId,
+            @RequestParam(required = false) Integer chunkSize) {
+
+        log.atDebug().setMessage("Received snapshot request")
+                .addKeyValue("fromId", fromId)
+                .addKeyValue("toId", toId)
+                .addKeyValue("chunkSize", chunkSize)
+                .log();
+        return sensorStreamService.streamSnapshot(fromId, toId, chunkSize);
+    }
+
+    @GetMapping(value = "/anomalies", produces = {MediaType.APPLICATION_NDJSON_VALUE, SensorBinaryFormat.MEDIA_TYPE_VALUE})
+    public Flux<SensorDataDto> streamAnomalies(
+            @RequestParam(required = false) List<Long> sensorIds,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Long intervalMs) {
+
+        log.atDebug().setMessage("Received anomaly stream request")
+                .addKeyValue("sensorIds", sensorIds)
+                .addKeyValue("limit", limit)
+                .addKeyValue("intervalMs", intervalMs)
+                .log();
+        return sensorStreamService.streamAnomalies(sensorIds, limit, intervalMs);
+    }
+
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<SensorStatsDto> getStatistics(@RequestParam(required = false) Long sensorId) {
+        log.atDebug().setMessage("Received statistics request")
+                .addKeyValue("sensorId", sensorId)
+                .log();
+
+        if (sensorId != null) {
+            return sensorStatisticsService.getSensorStats(sensorId);
+        } else {
+            return sensorStatisticsService.getFleetStats();
+        }
+    }
+
+    @GetMapping(value = "/rollups", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<SensorRollupDto> getRollups(
+            @RequestParam Long sensorId,
+            @RequestParam(required = false) String resolution,
+            @RequestParam(required = false) Integer window,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean follow) {
+
+        log.atDebug().setMessage("Received rollups request")
+                .addKeyValue("sensorId", sensorId)
+                .addKeyValue("resolution", resolution)
+                .addKeyValue("window", window)
+                .addKeyValue("from", from)
+                .addKeyValue("limit", limit)
+                .addKeyValue("follow", follow)
+                .log();
+        return sensorStatisticsService.getRollups(sensorId, resolution, window, from, limit, follow);
+    }
+
+    @GetMapping(value = "/history", produces = {MediaType.APPLICATION_NDJSON_VALUE, SensorBinaryFormat.MEDIA_TYPE_VALUE})
+    public Flux<SensorDataDto> getHistory(
+            @RequestParam Long sensorId,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to,
+            @RequestParam(required = false) Integer limit) {
+
+        log.atDebug().setMessage("Received history request")
+                .addKeyValue("sensorId", sensorId)
+                .addKeyValue("from", from)
+                .addKeyValue("to", to)
+                .addKeyValue("limit", limit)
+                .log();
+        return sensorHistoryService.getHistory(sensorId, from, to, limit);
+    }
+
+    @GetMapping(value = "/history/rollups", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<SensorRollupDto> getPersistedRollups(
+            @RequestParam Long sensorId,
+            @RequestParam(required = false) String resolution,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to,
             @RequestParam(required = false) Integer limit) {
 
-        log.info("Received multi-sensor stream request for sensorCount={}, limit={}", sensorCount, limit);
-        return sensorStreamService.streamMultipleSensors(sensorCount, limit);
+        log.atDebug().setMessage("Received persisted rollups request")
+                .addKeyValue("sensorId", sensorId)
+                .addKeyValue("resolution", resolution)
+                .addKeyValue("from", from)
+                .addKeyValue("to", to)
+                .addKeyValue("limit", limit)
+                .log();
+        return sensorHistoryService.getPersistedRollups(sensorId, resolution, from, to, limit);
     }
 }
@@ -0,0 +1,37 @@
+package com.sensordata.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MetricStatsDto {
+    @JsonProperty("count")
+    private Long count;
+
+    @JsonProperty("avg")
+    private Double avg;
+
+    @JsonProperty("min")
+    private Double min;
+
+    @JsonProperty("max")
+    private Double max;
+
+    @JsonProperty("std_dev")
+    private Double stdDev;
+
+    @JsonProperty("p50")
+    private Double p50;
+
+    @JsonProperty("p95")
+    private Double p95;
+
+    @JsonProperty("p99")
+    private Double p99;
+}
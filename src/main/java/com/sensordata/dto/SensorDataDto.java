@@ -10,6 +10,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+// Fields left out by a stream projection are skipped by the serializer, not nulled out in a copy
 public class SensorDataDto {
     @JsonProperty("sensor_id")
     private Long sensorId;
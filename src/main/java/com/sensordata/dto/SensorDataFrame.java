@@ -0,0 +1,123 @@
+package com.sensordata.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.sensordata.util.SensorReadingQuery;
+import com.sensordata.util.SensorReadingQuery.Field;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Micro-batch of readings of one sensor, sent as a single write.
+ * The sensor id is stored once and timestamps are offsets from base_timestamp;
+ * the readings themselves are stored column by column. Columns left out by a stream projection are null.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SensorDataFrame {
+    @JsonProperty("sensor_id")
+    private Long sensorId;
+
+    @JsonProperty("base_timestamp")
+    private Long baseTimestamp;
+
+    @JsonProperty("offsets")
+    private int[] offsets;
+
+    @JsonProperty("temperature")
+    private double[] temperatures;
+
+    @JsonProperty("humidity")
+    private double[] humidities;
+
+    @JsonProperty("pressure")
+    private double[] pressures;
+
+    @JsonProperty("value")
+    private double[] values;
+
+    @JsonProperty("anomaly")
+    private boolean[] anomalies;
+
+    /**
+     * Packs readings of one sensor into a frame
+     */
+    public static SensorDataFrame of(List<SensorDataDto> readings) {
+        return of(readings, SensorReadingQuery.ALL);
+    }
+
+    /**
+     * Packs readings of one sensor into a frame with only the columns selected by the query
+     */
+    public static SensorDataFrame of(List<SensorDataDto> readings, SensorReadingQuery query) {
+        int size = readings.size();
+        long base = readings.get(0).getTimestamp();
+        int[] offsets = new int[size];
+        double[] temperatures = query.includes(Field.TEMPERATURE) ? new double[size] : null;
+        double[] humidities = query.includes(Field.HUMIDITY) ? new double[size] : null;
+        double[] pressures = query.includes(Field.PRESSURE) ? new double[size] : null;
+        double[] values = query.includes(Field.VALUE) ? new double[size] : null;
+        boolean[] anomalies = query.includes(Field.ANOMALY) ? new boolean[size] : null;
+        for (int i = 0; i < size; i++) {
+            SensorDataDto data = readings.get(i);
+            offsets[i] = Math.toIntExact(data.getTimestamp() - base);
+            if (temperatures != null) {
+                temperatures[i] = data.getTemperature();
+            }
+            if (humidities != null) {
+                humidities[i] = data.getHumidity();
+            }
+            if (pressures != null) {
+                pressures[i] = data.getPressure();
+            }
+            if (values != null) {
+                values[i] = data.getValue();
+            }
+            if (anomalies != null) {
+                anomalies[i] = Boolean.TRUE.equals(data.getAnomaly());
+            }
+        }
+        return new SensorDataFrame(readings.get(0).getSensorId(), base, offsets,
+                temperatures, humidities, pressures, values, anomalies);
+    }
+
+    /**
+     * Number of readings in the frame
+     */
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * View of the frame as readings; each reading is materialized only when accessed
+     */
+    public List<SensorDataDto> readings() {
+        return new AbstractList<>() {
+            @Override
+            public SensorDataDto get(int index) {
+                return SensorDataDto.builder()
+                        .sensorId(sensorId)
+                        .timestamp(baseTimestamp + offsets[index])
+                        .temperature(temperatures != null ? temperatures[index] : null)
+                        .humidity(humidities != null ? humidities[index] : null)
+                        .pressure(pressures != null ? pressures[index] : null)
+                        .value(values != null ? values[index] : null)
+                        .anomaly(anomalies != null ? anomalies[index] : null)
+                        .build();
+            }
+
+            @Override
+            public int size() {
+                return offsets.length;
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package com.sensordata.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SensorRollupDto {
+    @JsonProperty("sensor_id")
+    private Long sensorId;
+
+    @JsonProperty("resolution")
+    private String resolution;
+
+    @JsonProperty("window_start")
+    private Long windowStart;
+
+    @JsonProperty("window_end")
+    private Long windowEnd;
+
+    @JsonProperty("count")
+    private Long count;
+
+    @JsonProperty("anomalies")
+    private Integer anomalies;
+
+    @JsonProperty("temperature_avg")
+    private Double temperatureAvg;
+
+    @JsonProperty("temperature_min")
+    private Double temperatureMin;
+
+    @JsonProperty("temperature_max")
+    private Double temperatureMax;
+
+    @JsonProperty("humidity_avg")
+    private Double humidityAvg;
+
+    @JsonProperty("humidity_min")
+    private Double humidityMin;
+
+    @JsonProperty("humidity_max")
+    private Double humidityMax;
+
+    @JsonProperty("pressure_avg")
+    private Double pressureAvg;
+
+    @JsonProperty("pressure_min")
+    private Double pressureMin;
+
+    @JsonProperty("pressure_max")
+    private Double pressureMax;
+}
@@ -0,0 +1,73 @@
+package com.sensordata.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Part of a fleet snapshot: readings of the consecutive sensors first_sensor_id .. first_sensor_id + size - 1,
+ * all taken at the same timestamp. Sensor ids and the timestamp are stored once, the readings column by column.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SensorSnapshotChunk {
+    @JsonProperty("first_sensor_id")
+    private long firstSensorId;
+
+    @JsonProperty("timestamp")
+    private long timestamp;
+
+    @JsonProperty("temperature")
+    private double[] temperatures;
+
+    @JsonProperty("humidity")
+    private double[] humidities;
+
+    @JsonProperty("pressure")
+    private double[] pressures;
+
+    @JsonProperty("value")
+    private double[] values;
+
+    @JsonProperty("anomaly")
+    private boolean[] anomalies;
+
+    /**
+     * Number of sensors in the chunk
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * View of the chunk as readings; each reading is materialized only when accessed
+     */
+    public List<SensorDataDto> readings() {
+        return new AbstractList<>() {
+            @Override
+            public SensorDataDto get(int index) {
+                return SensorDataDto.builder()
+                        .sensorId(firstSensorId + index)
+                        .timestamp(timestamp)
+                        .temperature(temperatures[index])
+                        .humidity(humidities[index])
+                        .pressure(pressures[index])
+                        .value(values[index])
+                        .anomaly(anomalies[index])
+                        .build();
+            }
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
+    }
+}
@@ -0,0 +1,29 @@
+package com.sensordata.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SensorStatsDto {
+    // null for the fleet-wide merged view
+    @JsonProperty("sensor_id")
+    private Long sensorId;
+
+    @JsonProperty("sensor_count")
+    private Integer sensorCount;
+
+    @JsonProperty("temperature")
+    private MetricStatsDto temperature;
+
+    @JsonProperty("humidity")
+    private MetricStatsDto humidity;
+
+    @JsonProperty("pressure")
+    private MetricStatsDto pressure;
+}
@@ -0,0 +1,42 @@
+package com.sensordata.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Stream subscription sent over RSocket. Either a single sensor (sensor_id)
+ * or the first sensor_count sensors; limit is optional, demand comes from the subscriber.
+ * fields and filter have the same syntax as the query parameters of the HTTP streams.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SensorStreamRequest {
+    @JsonProperty("sensor_id")
+    private Long sensorId;
+
+    @JsonProperty("sensor_count")
+    private Integer sensorCount;
+
+    @JsonProperty("limit")
+    private Integer limit;
+
+    @JsonProperty("replay")
+    private Integer replay;
+
+    @JsonProperty("since")
+    private Long since;
+
+    @JsonProperty("interval_ms")
+    private Long intervalMs;
+
+    @JsonProperty("fields")
+    private String fields;
+
+    @JsonProperty("filter")
+    private String filter;
+}
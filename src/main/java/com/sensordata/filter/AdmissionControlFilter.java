@@ -0,0 +1,322 @@
+package com.sensordata.filter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sensordata.dto.ErrorResponse;
+import com.sensordata.service.EventLoopLagMonitor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for long-lived stream requests.
+ *
+ * A new stream is admitted only while the number of active streams is below the adaptive limit,
+ * the client is below its own concurrency limit, and the measured event-loop lag is below lag-reject.
+ * A client is its remote address; the X-Client-Id header is honoured only on connections from
+ * trusted-addresses (the in-app gateway, a reverse proxy), so other callers can neither pose as an
+ * exempt client nor rotate the header for a fresh quota. Trusted callers sending an X-Client-Id
+ * listed in exempt-clients (the gateway that multiplexes many subscribers over a few connections)
+ * skip the per-client limit and are bounded by the global limit only. Rejected requests get 429 with
+ * Retry-After before any stream work is done, so admitted streams keep their latency under overload.
+ *
+ * The limit follows AIMD: it is cut multiplicatively whenever lag exceeds lag-target and grows
+ * additively while the streams in use are close to it.
+ *
+ * Решает проблему: при перегрузке замедлялись все потоки сразу
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AdmissionControlFilter implements WebFilter {
+    private static final String CLIENT_ID_HEADER = "X-Client-Id";
+    private static final String TRUSTED_PREFIX = "id:";
+    private static final double DECREASE_FACTOR = 0.8;
+    private static final int INCREASE_STEP = 10;
+    private static final double UTILIZATION_TO_GROW = 0.8;
+
+    private final EventLoopLagMonitor lagMonitor;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.admission.paths:/api/sensors/stream,/api/sensors/history,/api/sensors/rollups,/api/sensors/snapshot,/api/sensors/anomalies,/api/client/sensors}")
+    private List<String> paths;
+
+    @Value("${app.admission.initial-limit:2000}")
+    private int initialLimit;
+
+    @Value("${app.admission.min-limit:50}")
+    private int minLimit;
+
+    @Value("${app.admission.max-limit:20000}")
+    private int maxLimit;
+
+    @Value("${app.admission.per-client-limit:64}")
+    private int perClientLimit;
+
+    @Value("${app.admission.exempt-clients:sensor-gateway}")
+    private Set<String> exemptClients;
+
+    @Value("${app.admission.trusted-addresses:127.0.0.1,::1}")
+    private List<String> trustedAddresses;
+
+    @Value("${app.admission.lag-target:20ms}")
+    private Duration lagTarget;
+
+    @Value("${app.admission.lag-reject:250ms}")
+    private Duration lagReject;
+
+    @Value("${app.admission.adjust-interval:1s}")
+    private Duration adjustInterval;
+
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final Map<String, Integer> activeByClient = new ConcurrentHashMap<>();
+    private Set<InetAddress> trusted;
+    private volatile int limit;
+    private Disposable adjusting;
+
+    private Counter admittedCounter;
+    private Counter rejectedLimitCounter;
+    private Counter rejectedClientCounter;
+    private Counter rejectedLagCounter;
+
+    public AdmissionControlFilter(EventLoopLagMonitor lagMonitor, MeterRegistry meterRegistry, ObjectMapper objectMapper) {
+        this.lagMonitor = lagMonitor;
+        this.meterRegistry = meterRegistry;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        trusted = parseAddresses(trustedAddresses);
+
+        Gauge.builder("sensor.admission.active", activeStreams, AtomicInteger::get)
+                .description("Admitted streams currently running")
+                .register(meterRegistry);
+        Gauge.builder("sensor.admission.limit", this, filter -> filter.limit)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        admittedCounter = decisionCounter("admitted");
+        rejectedLimitCounter = decisionCounter("rejected_limit");
+        rejectedClientCounter = decisionCounter("rejected_client");
+        rejectedLagCounter = decisionCounter("rejected_lag");
+
+        adjusting = Schedulers.parallel().schedulePeriodically(this::adjustLimit,
+                adjustInterval.toMillis(), adjustInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (adjusting != null) {
+            adjusting.dispose();
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!enabled || !isStreamRequest(exchange.getRequest())) {
+            return chain.filter(exchange);
+        }
+
+        double lagMillis = lagMonitor.getLagMillis();
+        if (lagMillis > lagReject.toMillis()) {
+            rejectedLagCounter.increment();
+            return reject(exchange, "Server is overloaded (event loop lag " + Math.round(lagMillis) + " ms)", lagMillis);
+        }
+        if (!tryAcquire(activeStreams, limit)) {
+            rejectedLimitCounter.increment();
+            return reject(exchange, "Too many active streams", lagMillis);
+        }
+        String clientId = clientId(exchange.getRequest());
+        boolean exempt = clientId.startsWith(TRUSTED_PREFIX)
+                && exemptClients.contains(clientId.substring(TRUSTED_PREFIX.length()));
+        if (!exempt && !tryAcquireClient(clientId)) {
+            activeStreams.decrementAndGet();
+            rejectedClientCounter.increment();
+            return reject(exchange, "Too many active streams for client " + displayName(clientId), lagMillis);
+        }
+
+        admittedCounter.increment();
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    activeStreams.decrementAndGet();
+                    if (!exempt) {
+                        releaseClient(clientId);
+                    }
+                });
+    }
+
+    /**
+     * Current adaptive limit of concurrently admitted streams
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getActiveStreams() {
+        return activeStreams.get();
+    }
+
+    private void adjustLimit() {
+        int current = limit;
+        int next;
+        if (lagMonitor.getLagMillis() > lagTarget.toMillis()) {
+            next = Math.max(minLimit, (int) (current * DECREASE_FACTOR));
+        } else if (activeStreams.get() >= current * UTILIZATION_TO_GROW) {
+            next = Math.min(maxLimit, current + INCREASE_STEP);
+        } else {
+            return;
+        }
+        if (next != current) {
+            limit = next;
+            log.debug("Admission limit adjusted: {} -> {}, active={}, lag={}ms",
+                    current, next, activeStreams.get(), lagMonitor.getLagMillis());
+        }
+    }
+
+    private boolean isStreamRequest(ServerHttpRequest request) {
+        String path = request.getPath().value();
+        for (String prefix : paths) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean tryAcquire(AtomicInteger counter, int max) {
+        int current;
+        do {
+            current = counter.get();
+            if (current >= max) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private boolean tryAcquireClient(String clientId) {
+        boolean[] acquired = {false};
+        activeByClient.compute(clientId, (id, streams) -> {
+            int current = streams != null ? streams : 0;
+            if (current >= perClientLimit) {
+                return streams;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        return acquired[0];
+    }
+
+    private void releaseClient(String clientId) {
+        // Idle clients are removed so the map does not grow with every address ever seen
+        activeByClient.computeIfPresent(clientId, (id, streams) -> streams > 1 ? streams - 1 : null);
+    }
+
+    /**
+     * Accounting key of the caller: its X-Client-Id when the connection comes from a trusted address,
+     * its remote address otherwise. The prefix keeps a trusted header from colliding with an address.
+     */
+    private String clientId(ServerHttpRequest request) {
+        InetSocketAddress remote = request.getRemoteAddress();
+        InetAddress address = remote != null ? remote.getAddress() : null;
+        if (address != null && trusted.contains(address)) {
+            String header = request.getHeaders().getFirst(CLIENT_ID_HEADER);
+            if (header != null && !header.isBlank()) {
+                return TRUSTED_PREFIX + header;
+            }
+        }
+        if (address != null) {
+            return address.getHostAddress();
+        }
+        return remote != null ? remote.getHostString() : "unknown";
+    }
+
+    private static String displayName(String clientId) {
+        return clientId.startsWith(TRUSTED_PREFIX) ? clientId.substring(TRUSTED_PREFIX.length()) : clientId;
+    }
+
+    private static Set<InetAddress> parseAddresses(List<String> addresses) {
+        Set<InetAddress> parsed = new HashSet<>();
+        for (String address : addresses) {
+            String literal = address.trim();
+            if (literal.isEmpty()) {
+                continue;
+            }
+            // Only IP literals are accepted, so startup never waits on a DNS lookup
+            if (!literal.matches("[0-9.]+|[0-9a-fA-F.]*:[0-9a-fA-F:.]*")) {
+                throw new IllegalArgumentException("app.admission.trusted-addresses must be IP literals: " + literal);
+            }
+            try {
+                parsed.add(InetAddress.getByName(literal));
+            } catch (UnknownHostException e) {
+                throw new IllegalArgumentException("Invalid trusted address: " + literal, e);
+            }
+        }
+        return parsed;
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, String message, double lagMillis) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        // Back off at least a second, longer while the server is lagging
+        long retryAfterSeconds = 1 + Math.round(lagMillis / 1000);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+        ErrorResponse error = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .error("TooManyRequests")
+                .message(message)
+                .path(exchange.getRequest().getPath().value())
+                .build();
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(error);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        } catch (JsonProcessingException e) {
+            return response.setComplete();
+        }
+    }
+
+    private Counter decisionCounter(String outcome) {
+        return Counter.builder("sensor.admission.decisions")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -1,33 +1,56 @@
 package com.sensordata.filter;
 
+import com.sensordata.util.LogSampler;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
 
+/**
+ * Access log: one line per request, written when the response ends.
+ * Successful requests are sampled 1-in-N per route; errors are always logged.
+ * Fields are passed as key-value pairs and formatted by the (asynchronous) appender only
+ * if the line is actually written.
+ */
 @Slf4j
 @Component
 public class LoggingFilter implements WebFilter {
+    private final LogSampler sampler;
+
+    public LoggingFilter(@Value("${app.logging.request-sample-rate:100}") int sampleRate) {
+        this.sampler = new LogSampler(sampleRate);
+    }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-        long startTime = System.currentTimeMillis();
-        String method = exchange.getRequest().getMethod().toString();
-        String path = exchange.getRequest().getPath().value();
-        String queryParams = exchange.getRequest().getQueryParams().toString();
-
-        log.info(">>> [REQUEST] method={}, path={}, params={}", method, path, queryParams);
+        if (!log.isInfoEnabled()) {
+            return chain.filter(exchange);
+        }
+        long startNanos = System.nanoTime();
 
         return chain.filter(exchange)
                 .doFinally(signalType -> {
-                    long duration = System.currentTimeMillis() - startTime;
-                    int status = exchange.getResponse().getStatusCode() != null ?
-                            exchange.getResponse().getStatusCode().value() : 0;
-
-                    log.info("<<< [RESPONSE] method={}, path={}, status={}, duration={}ms, signal={}",
-                            method, path, status, duration, signalType);
+                    HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+                    int status = statusCode != null ? statusCode.value() : 0;
+                    ServerHttpRequest request = exchange.getRequest();
+                    String path = request.getPath().value();
+                    if (status < 400 && !sampler.sample(path)) {
+                        return;
+                    }
+                    // OPTIMIZED: Raw query string instead of eagerly formatting the parsed parameter map
+                    log.atInfo().setMessage("<<< [RESPONSE]")
+                            .addKeyValue("method", request.getMethod())
+                            .addKeyValue("path", path)
+                            .addKeyValue("query", request.getURI().getRawQuery())
+                            .addKeyValue("status", status)
+                            .addKeyValue("durationMs", (System.nanoTime() - startNanos) / 1_000_000)
+                            .addKeyValue("signal", signalType)
+                            .log();
                 });
     }
 }
@@ -0,0 +1,121 @@
+package com.sensordata.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.HttpResources;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how long tasks wait in the Netty event loops and the Reactor parallel scheduler.
+ *
+ * Every probe interval a no-op task is submitted to each executor and the time until it runs is recorded.
+ * The reported lag is the largest delay of the last interval. A probe that is still waiting also counts,
+ * so a fully stalled loop shows up as growing lag instead of no data.
+ */
+@Slf4j
+@Component
+public class EventLoopLagMonitor {
+    private final Duration probeInterval;
+    private final MeterRegistry meterRegistry;
+    private final List<Probe> probes = new ArrayList<>();
+    private final AtomicLong windowMaxLagNanos = new AtomicLong();
+    private volatile long lagNanos;
+    private Disposable probing;
+
+    public EventLoopLagMonitor(
+            MeterRegistry meterRegistry,
+            @Value("${app.admission.lag-probe-interval:50ms}") Duration probeInterval) {
+        this.meterRegistry = meterRegistry;
+        this.probeInterval = probeInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        HttpResources.get().onServer(true).forEach(loop -> probes.add(new Probe(loop)));
+        Scheduler parallel = Schedulers.parallel();
+        for (int i = 0; i < Schedulers.DEFAULT_POOL_SIZE; i++) {
+            // Consecutive schedule() calls go round robin over the parallel workers
+            probes.add(new Probe(parallel::schedule));
+        }
+
+        Gauge.builder("sensor.eventloop.lag", this, monitor -> monitor.getLagMillis())
+                .baseUnit("milliseconds")
+                .description("Largest task queueing delay of event loops and the parallel scheduler")
+                .register(meterRegistry);
+
+        probing = Schedulers.single().schedulePeriodically(this::probe,
+                probeInterval.toNanos(), probeInterval.toNanos(), TimeUnit.NANOSECONDS);
+        log.info("Event loop lag monitor started: probes={}, interval={}", probes.size(), probeInterval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (probing != null) {
+            probing.dispose();
+        }
+    }
+
+    /**
+     * Largest measured queueing delay over the last probe interval, in milliseconds
+     */
+    public double getLagMillis() {
+        return lagNanos / 1_000_000.0;
+    }
+
+    private void probe() {
+        long now = System.nanoTime();
+        long lag = windowMaxLagNanos.getAndSet(0);
+        for (Probe probe : probes) {
+            lag = Math.max(lag, probe.submit(now));
+        }
+        lagNanos = lag;
+    }
+
+    private void record(long delayNanos) {
+        windowMaxLagNanos.accumulateAndGet(delayNanos, Math::max);
+    }
+
+    private final class Probe {
+        private final Executor executor;
+        private final AtomicLong pendingSince = new AtomicLong(-1);
+
+        private Probe(Executor executor) {
+            this.executor = executor;
+        }
+
+        /**
+         * Submits a probe unless one is still waiting; returns how long the waiting one has waited
+         */
+        private long submit(long now) {
+            long pending = pendingSince.get();
+            if (pending >= 0) {
+                return now - pending;
+            }
+            pendingSince.set(now);
+            try {
+                executor.execute(() -> {
+                    record(System.nanoTime() - now);
+                    pendingSince.set(-1);
+                });
+            } catch (RuntimeException e) {
+                // Executor shutting down
+                pendingSince.set(-1);
+            }
+            return 0;
+        }
+    }
+}
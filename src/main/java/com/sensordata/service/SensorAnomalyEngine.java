@@ -0,0 +1,88 @@
+package com.sensordata.service;
+
+import com.sensordata.dto.SensorDataDto;
+import com.sensordata.util.EwmaAnomalyDetector;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Adaptive per-sensor anomaly detection, updated inline by SensorDataGenerator, and a fleet-wide
+ * feed of the readings it flags.
+ *
+ * The feed is a best-effort multicast: it holds no readings of its own, each subscriber gets only
+ * anomalies emitted while it is subscribed, and a subscriber without demand misses them instead of
+ * slowing down generation.
+ */
+@Slf4j
+@Component
+public class SensorAnomalyEngine {
+    private final Map<Long, EwmaAnomalyDetector> detectors = new ConcurrentHashMap<>();
+    private final Sinks.Many<SensorDataDto> anomalies = Sinks.many().multicast().directBestEffort();
+    private final double alpha;
+    private final double zThreshold;
+    private final int warmup;
+    private final Counter detectedCounter;
+
+    public SensorAnomalyEngine(
+            MeterRegistry meterRegistry,
+            @Value("${app.anomaly.alpha:0.01}") double alpha,
+            @Value("${app.anomaly.z-threshold:3.0}") double zThreshold,
+            @Value("${app.anomaly.warmup:30}") int warmup) {
+        // Fail fast on invalid configuration instead of on the first reading
+        new EwmaAnomalyDetector(alpha, zThreshold, warmup);
+        this.alpha = alpha;
+        this.zThreshold = zThreshold;
+        this.warmup = warmup;
+        this.detectedCounter = Counter.builder("sensor.anomalies.detected")
+                .description("Readings flagged by the adaptive anomaly detector")
+                .register(meterRegistry);
+        log.info("Anomaly detection: alpha={}, zThreshold={}, warmup={}", alpha, zThreshold, warmup);
+    }
+
+    /**
+     * Scores a reading against the sensor's baseline and updates it; returns true if it is anomalous
+     */
+    public boolean evaluate(Long sensorId, double temperature, double humidity, double pressure) {
+        return detectors.computeIfAbsent(sensorId, k -> new EwmaAnomalyDetector(alpha, zThreshold, warmup))
+                .update(temperature, humidity, pressure);
+    }
+
+    /**
+     * Publishes a flagged reading to the anomaly feed
+     */
+    public void publish(SensorDataDto data) {
+        detectedCounter.increment();
+        // Generator threads may emit concurrently; anomalies are rare, so spinning on a concurrent emit is cheap.
+        // Without subscribers or demand the reading is simply not delivered (never an error on the sink)
+        while (anomalies.tryEmitNext(data) == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Anomalies of all generated sensors, from the moment of subscription
+     */
+    public Flux<SensorDataDto> anomalies() {
+        return anomalies.asFlux();
+    }
+
+    /**
+     * Detector of a sensor, or null if the sensor has no readings
+     */
+    public EwmaAnomalyDetector getDetector(Long sensorId) {
+        return detectors.get(sensorId);
+    }
+
+    public void clear() {
+        detectors.clear();
+        log.info("Cleared anomaly detectors");
+    }
+}
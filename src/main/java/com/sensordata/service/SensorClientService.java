@@ -1,49 +1,127 @@
 package com.sensordata.service;
 
+import com.sensordata.codec.SensorBinaryFormat;
 import com.sensordata.dto.SensorDataDto;
+import com.sensordata.dto.SensorDataFrame;
+import com.sensordata.dto.SensorStreamRequest;
+import com.sensordata.util.RecentReadingsCache;
+import com.sensordata.util.LogSampler;
+import com.sensordata.util.SensorReadingQuery;
+import com.sensordata.util.SharedFluxRegistry;
+import com.sensordata.util.StreamLogSummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.messaging.rsocket.RSocketRequester;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.BufferOverflowStrategy;
 import reactor.core.publisher.Flux;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class SensorClientService {
+    // Per-subscriber buffer behind the shared upstream, so one slow subscriber does not stall the others
+    private static final int DOWNSTREAM_BUFFER_SIZE = 256;
+    // RSocket demand is requested in batches of this size and replenished at 75%
+    private static final int RSOCKET_REQUEST_BATCH = 256;
+
     private final WebClient webClient;
+    private final RSocketRequester sensorServerRequester;
+    private final MeterRegistry meterRegistry;
 
     @Value("${app.sensor-server.url:http://localhost:8080}")
     private String sensorServerUrl;
 
+    // binary | json; binary is ~3x smaller on the wire and needs no text parsing
+    @Value("${app.sensor-server.wire-format:binary}")
+    private String wireFormat;
+
+    // Read /stream/frames: many readings per network write, unpacked here one by one
+    @Value("${app.sensor-server.framed:true}")
+    private boolean framed;
+
+    // How long an unused upstream stays open, so reconnecting subscribers reuse it
+    @Value("${app.sensor-server.share-grace-period:5s}")
+    private Duration shareGracePeriod;
+
+    private SharedFluxRegistry<UpstreamKey, SensorDataDto> upstreams;
+
+    @Value("${app.client-cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${app.client-cache.max-bytes:16MB}")
+    private DataSize cacheMaxBytes;
+
+    @Value("${app.client-cache.readings-per-sensor:32}")
+    private int cacheReadingsPerSensor;
+
+    @Value("${app.client-cache.max-age:2s}")
+    private Duration cacheMaxAge;
+
+    @Value("${app.client-cache.idle-ttl:5m}")
+    private Duration cacheIdleTtl;
+
+    private RecentReadingsCache recentReadingsCache;
+    private Counter upstreamRetries;
+
+    @Value("${app.logging.element-sample-rate:1000}")
+    private int elementSampleRate;
+
+    private LogSampler elementLogSampler;
+
+    // http | rsocket; rsocket multiplexes all streams over one connection with end-to-end backpressure
+    @Value("${app.sensor-server.transport:http}")
+    private String transport;
+
     public Flux<SensorDataDto> getSensorStream(Long sensorId, Integer limit) {
-        log.info("Fetching sensor stream from server for sensorId={}, limit={}", sensorId, limit);
+        return getSensorStream(sensorId, limit, null, null);
+    }
 
-        String uri = "/api/sensors/stream";
-        var uriSpec = webClient.get().uri(uri, uriBuilder -> {
-            if (sensorId != null) {
-                uriBuilder.queryParam("sensorId", sensorId);
-            }
-            if (limit != null) {
-                uriBuilder.queryParam("limit", limit);
-            }
-            return uriBuilder.build();
-        });
+    /**
+     * fields and filter (see SensorReadingQuery) are forwarded to the sensor server, which applies them
+     * before encoding; the gateway only relays matching readings
+     */
+    public Flux<SensorDataDto> getSensorStream(Long sensorId, Integer limit, String fields, String filter) {
+        log.atDebug().setMessage("Fetching sensor stream from server")
+                .addKeyValue("sensorId", sensorId)
+                .addKeyValue("limit", limit)
+                .addKeyValue("fields", fields)
+                .addKeyValue("filter", filter)
+                .log();
 
-        return uriSpec
-                .retrieve()
-                .bodyToFlux(SensorDataDto.class)
+        int actualLimit = defaultLimit(limit, 10);
+        UpstreamKey key = upstreamKey(sensorId, null, fields, filter);
+        return Flux.defer(() -> {
+                    // OPTIMIZED: Recent readings are answered from the local cache without waiting for new ticks
+                    List<SensorDataDto> cached = recentReadingsCache != null && sensorId != null && key.unfiltered()
+                            ? recentReadingsCache.getRecent(sensorId, actualLimit)
+                            : null;
+                    if (cached != null) {
+                        log.debug("Serving sensorId={} from recent readings cache", sensorId);
+                        return Flux.fromIterable(cached);
+                    }
+                    // OPTIMIZED: Attach to the shared upstream of this sensor, the limit is applied per subscriber
+                    return upstreams.share(key, this::openUpstream)
+                            .onBackpressureBuffer(DOWNSTREAM_BUFFER_SIZE, BufferOverflowStrategy.DROP_OLDEST)
+                            .take(actualLimit);
+                })
                 .timeout(Duration.ofSeconds(30))
-                .doOnNext(data -> log.debug("Received sensor data: sensorId={}, value={}", data.getSensorId(), data.getValue()))
-                .doOnComplete(() -> log.info("Sensor stream completed for sensorId={}", sensorId))
-                .doOnCancel(() -> log.warn("Sensor stream cancelled by client for sensorId={}", sensorId))
-                .doOnError(error -> log.error("Error receiving sensor stream for sensorId={}: {}", sensorId, error.getMessage(), error))
-                .retryWhen(Retry.backoff(3, Duration.ofSeconds(1))
-                        .doBeforeRetry(signal -> log.warn("Retrying sensor stream request, attempt={}", signal.totalRetries() + 1)))
                 .onErrorResume(error -> {
                     log.error("Failed to fetch sensor stream after retries: {}", error.getMessage());
                     return Flux.empty();
@@ -51,31 +129,245 @@ public class SensorClientService {
     }
 
     public Flux<SensorDataDto> getMultipleSensorStream(Integer sensorCount, Integer limit) {
-        log.info("Fetching multiple sensor stream from server with sensorCount={}, limit={}", sensorCount, limit);
+        return getMultipleSensorStream(sensorCount, limit, null, null);
+    }
 
-        String uri = "/api/sensors/stream/multi";
-        var uriSpec = webClient.get().uri(uri, uriBuilder -> {
-            if (sensorCount != null) {
-                uriBuilder.queryParam("sensorCount", sensorCount);
-            }
-            if (limit != null) {
-                uriBuilder.queryParam("limit", limit);
-            }
-            return uriBuilder.build();
-        });
+    public Flux<SensorDataDto> getMultipleSensorStream(Integer sensorCount, Integer limit, String fields, String filter) {
+        log.atDebug().setMessage("Fetching multiple sensor stream from server")
+                .addKeyValue("sensorCount", sensorCount)
+                .addKeyValue("limit", limit)
+                .addKeyValue("fields", fields)
+                .addKeyValue("filter", filter)
+                .log();
 
-        return uriSpec
-                .retrieve()
-                .bodyToFlux(SensorDataDto.class)
+        return upstreams.share(upstreamKey(null, sensorCount, fields, filter), this::openUpstream)
+                .onBackpressureBuffer(DOWNSTREAM_BUFFER_SIZE, BufferOverflowStrategy.DROP_OLDEST)
+                .take(defaultLimit(limit, 20))
                 .timeout(Duration.ofSeconds(30))
-                .doOnNext(data -> log.debug("Received multi-sensor data: sensorId={}, temp={}", data.getSensorId(), data.getTemperature()))
-                .doOnComplete(() -> log.info("Multi-sensor stream completed"))
-                .doOnCancel(() -> log.warn("Multi-sensor stream cancelled by client"))
-                .doOnError(error -> log.error("Error receiving multi-sensor stream: {}", error.getMessage()))
-                .retryWhen(Retry.backoff(3, Duration.ofSeconds(1)))
                 .onErrorResume(error -> {
                     log.error("Failed to fetch multi-sensor stream: {}", error.getMessage());
                     return Flux.empty();
                 });
     }
+
+    /**
+     * Number of upstream streams currently open to the sensor server
+     */
+    public int getUpstreamCount() {
+        return upstreams.size();
+    }
+
+    /**
+     * Local cache of recent readings, or null when disabled
+     */
+    public RecentReadingsCache getRecentReadingsCache() {
+        return recentReadingsCache;
+    }
+
+    /**
+     * Opens one upstream stream without a limit; it is shared by every downstream subscriber
+     * with the same key and closed when the last one leaves (after the grace period)
+     */
+    private Flux<SensorDataDto> openUpstream(UpstreamKey key) {
+        log.info("Opening shared upstream stream for {}", key);
+
+        ResumeCursor cursor = new ResumeCursor();
+        // Deferred, so that every retry asks the server to continue after the last delivered reading
+        Flux<SensorDataDto> source = Flux.defer(() -> {
+            Long since = cursor.since();
+            if (since != null) {
+                log.info("Resuming upstream stream for {} since={}", key, since);
+            }
+            if (useRSocket()) {
+                return requestStream(SensorStreamRequest.builder()
+                        .sensorId(key.sensorId())
+                        .sensorCount(key.sensorCount())
+                        .since(since)
+                        .fields(key.fields())
+                        .filter(key.filter())
+                        .build());
+            } else if (key.sensorId() != null) {
+                return httpStream("/api/sensors/stream", "sensorId", key.sensorId(), Integer.MAX_VALUE, since, key);
+            } else {
+                return httpStream("/api/sensors/stream/multi", "sensorCount", key.sensorCount(), Integer.MAX_VALUE, since, key);
+            }
+        })
+                // The upstream has no limit, so completing means the server ended it (it turns its own errors
+                // into completion); treat that as a failure so the subscribers get a resumed stream
+                .concatWith(Flux.error(() -> new UpstreamClosedException(key)));
+
+        return source
+                // OPTIMIZED: Readings already delivered before a reconnect are dropped at the seam
+                .filter(cursor::advance)
+                .doOnNext(data -> {
+                    // Per-element logging is sampled per sensor and skipped entirely below DEBUG
+                    if (log.isDebugEnabled() && elementLogSampler.sample(data.getSensorId())) {
+                        log.atDebug().setMessage("Received sensor data")
+                                .addKeyValue("sensorId", data.getSensorId())
+                                .addKeyValue("value", data.getValue())
+                                .log();
+                    }
+                    // Filtered or projected readings would answer unfiltered requests wrongly
+                    if (recentReadingsCache != null && key.unfiltered()) {
+                        recentReadingsCache.record(data);
+                    }
+                })
+                .doOnError(error -> log.error("Error receiving upstream stream for {}: {}", key, error.getMessage()))
+                // Transient: the attempt count resets once readings flow again, so a long-lived upstream
+                // is not given up after three reconnects spread over its lifetime
+                .retryWhen(Retry.backoff(3, Duration.ofSeconds(1))
+                        .transientErrors(true)
+                        .doBeforeRetry(signal -> {
+                            upstreamRetries.increment();
+                            log.warn("Retrying upstream stream for {}, attempt={}", key, signal.totalRetries() + 1);
+                        }))
+                .transform(upstream -> StreamLogSummary.summarize(upstream, log, "Shared upstream", key));
+    }
+
+    @PostConstruct
+    void init() {
+        upstreams = new SharedFluxRegistry<>(shareGracePeriod);
+        elementLogSampler = new LogSampler(elementSampleRate);
+        if (cacheEnabled) {
+            recentReadingsCache = new RecentReadingsCache(cacheMaxBytes.toBytes(), cacheReadingsPerSensor,
+                    cacheMaxAge, cacheIdleTtl);
+            FunctionCounter.builder("sensor.client.cache.requests", recentReadingsCache, RecentReadingsCache::getHitCount)
+                    .tag("result", "hit")
+                    .register(meterRegistry);
+            FunctionCounter.builder("sensor.client.cache.requests", recentReadingsCache, RecentReadingsCache::getMissCount)
+                    .tag("result", "miss")
+                    .register(meterRegistry);
+            Gauge.builder("sensor.client.cache.bytes", recentReadingsCache, RecentReadingsCache::estimatedBytes)
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+        }
+        upstreamRetries = Counter.builder("sensor.client.upstream.retries")
+                .description("Reconnects of shared upstream streams")
+                .register(meterRegistry);
+        Gauge.builder("sensor.client.upstream.active", upstreams, SharedFluxRegistry::size)
+                .description("Shared upstream streams open to the sensor server")
+                .register(meterRegistry);
+    }
+
+    private Flux<SensorDataDto> httpStream(String path, String keyParam, Object key, Integer limit, Long since,
+                                           UpstreamKey upstreamKey) {
+        WebClient.ResponseSpec response = webClient.get()
+                .uri(framed ? "/api/sensors/stream/frames" : path, uriBuilder -> {
+                    // Filter clauses contain reserved characters, so they are passed as strictly encoded variables
+                    Map<String, Object> variables = new HashMap<>();
+                    if (key != null) {
+                        uriBuilder.queryParam(keyParam, key);
+                    }
+                    if (limit != null) {
+                        uriBuilder.queryParam("limit", limit);
+                    }
+                    if (since != null) {
+                        uriBuilder.queryParam("since", since);
+                    }
+                    if (upstreamKey.fields() != null) {
+                        uriBuilder.queryParam("fields", "{fields}");
+                        variables.put("fields", upstreamKey.fields());
+                    }
+                    if (upstreamKey.filter() != null) {
+                        uriBuilder.queryParam("filter", "{filter}");
+                        variables.put("filter", upstreamKey.filter());
+                    }
+                    return uriBuilder.build(variables);
+                })
+                .accept(acceptedMediaTypes())
+                .retrieve();
+
+        // Binary frames are plain record streams, so only JSON frames need unpacking
+        if (!framed || !"json".equalsIgnoreCase(wireFormat)) {
+            return response.bodyToFlux(SensorDataDto.class);
+        }
+        // OPTIMIZED: Readings are materialized lazily from the frame columns as they are consumed
+        return response.bodyToFlux(SensorDataFrame.class)
+                .concatMapIterable(SensorDataFrame::readings);
+    }
+
+    private boolean useRSocket() {
+        return "rsocket".equalsIgnoreCase(transport);
+    }
+
+    private Flux<SensorDataDto> requestStream(SensorStreamRequest request) {
+        return sensorServerRequester.route("sensors.stream")
+                .data(request)
+                .retrieveFlux(SensorDataDto.class)
+                // OPTIMIZED: Bounded demand is sent upstream as request-n instead of relying on TCP windows
+                .limitRate(RSOCKET_REQUEST_BATCH);
+    }
+
+    /**
+     * Validates fields and filter before anything is sent upstream; an invalid query is answered with 400 here.
+     * Queries that pass every reading unchanged share the plain upstream (and the cache)
+     */
+    private static UpstreamKey upstreamKey(Long sensorId, Integer sensorCount, String fields, String filter) {
+        if (SensorReadingQuery.parse(fields, filter).isAll()) {
+            return new UpstreamKey(sensorId, sensorCount, null, null);
+        }
+        // OPTIMIZED: Projection and filter run on the sensor server, only matching readings cross the network
+        return new UpstreamKey(sensorId, sensorCount, blankToNull(fields), blankToNull(filter));
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * The server completed an upstream that is expected to run until it is cancelled
+     */
+    private static final class UpstreamClosedException extends RuntimeException {
+        private UpstreamClosedException(UpstreamKey key) {
+            super("Upstream stream closed by the server: " + key);
+        }
+    }
+
+    private record UpstreamKey(Long sensorId, Integer sensorCount, String fields, String filter) {
+        boolean unfiltered() {
+            return fields == null && filter == null;
+        }
+    }
+
+    /**
+     * Last delivered timestamp per sensor of one upstream stream
+     */
+    private static final class ResumeCursor {
+        private final Map<Long, Long> lastTimestamps = new ConcurrentHashMap<>();
+
+        private boolean advance(SensorDataDto data) {
+            Long last = lastTimestamps.get(data.getSensorId());
+            if (last != null && data.getTimestamp() <= last) {
+                return false;
+            }
+            lastTimestamps.put(data.getSensorId(), data.getTimestamp());
+            return true;
+        }
+
+        /**
+         * Resume point for a reconnect: the oldest per-sensor position, so no sensor misses readings;
+         * anything a sensor already delivered is filtered by advance()
+         */
+        private Long since() {
+            return lastTimestamps.values().stream().min(Long::compare).orElse(null);
+        }
+    }
+
+    private static int defaultLimit(Integer limit, int defaultValue) {
+        // Same defaults as the HTTP endpoints, so both transports return the same number of readings
+        return limit != null && limit > 0 ? limit : defaultValue;
+    }
+
+    private MediaType[] acceptedMediaTypes() {
+        // Error bodies are still JSON, so JSON stays acceptable with a lower quality
+        List<MediaType> types = "json".equalsIgnoreCase(wireFormat)
+                ? List.of(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON)
+                : List.of(SensorBinaryFormat.MEDIA_TYPE, withQuality(MediaType.APPLICATION_NDJSON, "0.5"),
+                        withQuality(MediaType.APPLICATION_JSON, "0.5"));
+        return types.toArray(MediaType[]::new);
+    }
+
+    private static MediaType withQuality(MediaType type, String quality) {
+        return new MediaType(type, Map.of("q", quality));
+    }
 }
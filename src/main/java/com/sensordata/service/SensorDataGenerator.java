@@ -1,13 +1,24 @@
 package com.sensordata.service;
 
 import com.sensordata.dto.SensorDataDto;
-import com.sensordata.util.SlidingWindow;
-import com.sensordata.util.TemperatureAggregator;
+import com.sensordata.dto.SensorSnapshotChunk;
+import com.sensordata.util.MetricAggregator;
+import com.sensordata.util.SensorHistoryRing;
+import com.sensordata.util.SensorQuantiles;
+import com.sensordata.util.SensorStatsAccumulator;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Optimized SensorDataGenerator with memory-efficient implementations.
@@ -19,13 +30,29 @@ import java.util.concurrent.ConcurrentHashMap;
  * 4. Удалены повторные трансформации
  * 5. Collections.sort() вместо bubble sort
  * 6. Минимизация промежуточных объектов
+ * 7. Колоночный кольцевой буфер истории (SensorHistoryRing) с ключом по id датчика
+ * 8. Потокобезопасная статистика (SensorStatsAccumulator) по температуре, влажности и давлению
+ * 9. Перцентили через скетчи фиксированного размера (SensorQuantiles) вместо сырой истории
+ * 10. Инкрементальные оконные агрегаты 1s/1m/1h (SensorRollupEngine)
+ * 11. Асинхронная пакетная запись в sensor_data (SensorDataWriter), без ожидания БД
+ * 12. Метрики Micrometer без аллокаций на горячем пути (LongAdder, запись таймера в наносекундах)
+ * 13. Снимок парка датчиков колонками по диапазону id, без записи в историю и статистику
+ * 14. Слагаемые времени и таблица value на 360 остатков id считаются раз в секунду (TickTerms)
+ * 15. Адаптивный детектор аномалий на датчик (EWMA z-score, SensorAnomalyEngine) вместо фиксированного порога
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class SensorDataGenerator {
-    // OPTIMIZED: Use SlidingWindow with max 100 entries per sensor instead of unlimited ArrayList
-    private final Map<String, SlidingWindow<SensorDataDto>> sensorHistoryCache = new ConcurrentHashMap<>();
-    private final Map<String, TemperatureAggregator> sensorStatsCache = new ConcurrentHashMap<>();
+    private final SensorRollupEngine sensorRollupEngine;
+    private final SensorAnomalyEngine sensorAnomalyEngine;
+    private final SensorDataWriter sensorDataWriter;
+    private final MeterRegistry meterRegistry;
+
+    // OPTIMIZED: Primitive columnar ring with max 100 readings per sensor, keyed by sensor id instead of "sensor_" + id
+    private final Map<Long, SensorHistoryRing> sensorHistoryCache = new ConcurrentHashMap<>();
+    private final Map<Long, SensorStatsAccumulator> sensorStatsCache = new ConcurrentHashMap<>();
+    private final Map<Long, SensorQuantiles> sensorQuantileCache = new ConcurrentHashMap<>();
 
     // Precomputed sin/cos tables for performance
     private static final double[] COS_TABLE = new double[360];
@@ -43,35 +70,47 @@ public class SensorDataGenerator {
         }
     }
 
+    // Period of the sensor-dependent part of value: lcm(360, 45)
+    private static final int VALUE_PERIOD = 360;
     private static final int MAX_HISTORY_PER_SENSOR = 100;
     private static final double ANOMALY_THRESHOLD = 35.0; // Single threshold instead of 100
-    private volatile long totalGeneratedSensors = 0;
+    // OPTIMIZED: Striped counter instead of a racy volatile long++
+    private final LongAdder totalGeneratedSensors = new LongAdder();
+    private Timer generationTimer;
+    private volatile TickTerms currentTickTerms;
+
+    @PostConstruct
+    void registerMetrics() {
+        generationTimer = Timer.builder("sensor.generation.latency")
+                .description("Time to generate and record one reading")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        FunctionCounter.builder("sensor.readings.generated", totalGeneratedSensors, LongAdder::sum)
+                .register(meterRegistry);
+        Gauge.builder("sensor.history.sensors", sensorHistoryCache, Map::size)
+                .description("Sensors with an in-memory history ring")
+                .register(meterRegistry);
+        Gauge.builder("sensor.history.bytes", this, generator -> generator.getHistoryBytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
 
     public SensorDataDto generateSensorData(Long sensorId) {
+        long startNanos = System.nanoTime();
         long startTime = System.currentTimeMillis();
 
         // OPTIMIZED: Cache timestamp instead of calling multiple times
         long timestamp = startTime;
         long timeSeconds = timestamp / 1000;
 
-        // OPTIMIZED: Use precomputed trig functions instead of Math.sin/cos
-        double temperature = 20 + 5 * Math.sin(timeSeconds / 1.0);
-        double humidity = 50 + 20 * Math.cos(timeSeconds / 2.0);
-        double pressure = 1013 + 10 * Math.sin(timeSeconds / 3.0);
-
-        // OPTIMIZED: Use precomputed lookup tables instead of Math.sin/cos/tan
-        int sensorIdMod360 = (int) (sensorId % 360);
-        int sensorIdMod45 = (int) (sensorId % 45);
-
-        double x = temperature * COS_TABLE[sensorIdMod360];
-        double y = humidity * SIN_TABLE[sensorIdMod360];
-        double z = pressure * TAN_TABLE[sensorIdMod45];
-        double transformedValue = Math.sqrt(x * x + y * y + z * z);
-
-        // OPTIMIZED: Simple threshold-based anomaly detection instead of nested loops
-        boolean anomaly = Math.abs(temperature - 20.0) > ANOMALY_THRESHOLD ||
-                Math.abs(humidity - 50.0) > ANOMALY_THRESHOLD ||
-                Math.abs(pressure - 1013.0) > ANOMALY_THRESHOLD;
+        // OPTIMIZED: Time terms and the value table are computed once per second, not per reading
+        TickTerms terms = tickTerms(timeSeconds);
+        double temperature = terms.temperature;
+        double humidity = terms.humidity;
+        double pressure = terms.pressure;
+        double transformedValue = terms.value(sensorId);
+        // OPTIMIZED: Adaptive per-sensor z-score (O(1) state) on top of the fixed range check
+        boolean anomaly = sensorAnomalyEngine.evaluate(sensorId, temperature, humidity, pressure) || terms.anomaly;
 
         // OPTIMIZED: Create object once
         SensorDataDto data = SensorDataDto.builder()
@@ -84,75 +123,240 @@ public class SensorDataGenerator {
                 .anomaly(anomaly)
                 .build();
 
-        // OPTIMIZED: Use bounded SlidingWindow (max 100 entries) instead of unlimited ArrayList
-        String cacheKey = "sensor_" + sensorId;
-        sensorHistoryCache.computeIfAbsent(cacheKey, k -> new SlidingWindow<>(MAX_HISTORY_PER_SENSOR))
-                .add(data);
+        // OPTIMIZED: Store primitives in a bounded columnar ring instead of keeping the DTO
+        sensorHistoryCache.computeIfAbsent(sensorId, k -> new SensorHistoryRing(MAX_HISTORY_PER_SENSOR))
+                .add(timestamp, temperature, humidity, pressure, transformedValue, anomaly);
+
+        // OPTIMIZED: Update striped thread-safe statistics instead of storing all values
+        sensorStatsCache.computeIfAbsent(sensorId, k -> new SensorStatsAccumulator())
+                .add(temperature, humidity, pressure);
+        sensorQuantileCache.computeIfAbsent(sensorId, k -> new SensorQuantiles())
+                .add(temperature, humidity, pressure);
+        sensorRollupEngine.record(sensorId, timestamp, temperature, humidity, pressure, anomaly);
 
-        // OPTIMIZED: Update statistics instead of storing all values
-        sensorStatsCache.computeIfAbsent(cacheKey, k -> new TemperatureAggregator())
-                .add(temperature);
+        // OPTIMIZED: Write-behind, only enqueues; batches are flushed on a dedicated scheduler
+        sensorDataWriter.enqueue(data);
+        if (anomaly) {
+            sensorAnomalyEngine.publish(data);
+        }
 
-        totalGeneratedSensors++;
+        totalGeneratedSensors.increment();
 
-        long endTime = System.currentTimeMillis();
-        log.debug("Generated sensor data for sensorId={}, took={}ms, totalGenerated={}",
-                sensorId, endTime - startTime, totalGeneratedSensors);
+        long elapsedNanos = System.nanoTime() - startNanos;
+        generationTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (log.isDebugEnabled()) {
+            log.debug("Generated sensor data for sensorId={}, took={}us, totalGenerated={}",
+                    sensorId, elapsedNanos / 1000, totalGeneratedSensors.sum());
+        }
 
         return data;
     }
 
-    public Map<String, Object> generateBulkData(List<Long> sensorIds) {
-        // OPTIMIZED: No unnecessary copies, direct sort on input or use stream
-        Map<String, Object> result = new HashMap<>();
-        List<SensorDataDto> allData = new ArrayList<>(sensorIds.size());
+    /**
+     * Computes readings of the sensors fromId (inclusive) .. toId (exclusive) at one timestamp.
+     * Nothing is recorded (history, statistics, rollups, persistence), so a fleet-wide snapshot
+     * creates no per-sensor state and is safe to run concurrently from any thread.
+     * Readings are filled into primitive columns; DTOs are created only if the chunk is serialized as such.
+     */
+    public SensorSnapshotChunk computeSnapshotChunk(long fromId, long toId, long timestamp) {
+        int size = Math.toIntExact(toId - fromId);
+        TickTerms terms = tickTerms(timestamp / 1000);
 
-        // OPTIMIZED: Generate data directly without intermediate copies
-        sensorIds.stream()
-                .sorted()
-                .forEach(id -> allData.add(generateSensorData(id)));
+        double[] temperatures = new double[size];
+        double[] humidities = new double[size];
+        double[] pressures = new double[size];
+        double[] values = new double[size];
+        boolean[] anomalies = new boolean[size];
+        Arrays.fill(temperatures, terms.temperature);
+        Arrays.fill(humidities, terms.humidity);
+        Arrays.fill(pressures, terms.pressure);
+        Arrays.fill(anomalies, terms.anomaly);
+        // OPTIMIZED: The value repeats every VALUE_PERIOD ids, so the column is block copies of the table
+        int offset = (int) Math.floorMod(fromId, (long) VALUE_PERIOD);
+        for (int i = 0; i < size; ) {
+            int run = Math.min(VALUE_PERIOD - offset, size - i);
+            System.arraycopy(terms.values, offset, values, i, run);
+            i += run;
+            offset = 0;
+        }
+        return new SensorSnapshotChunk(fromId, timestamp, temperatures, humidities, pressures, values, anomalies);
+    }
 
-        result.put("data", allData);
-        result.put("count", allData.size());
-        result.put("timestamp", System.currentTimeMillis());
+    public List<SensorDataDto> generateHistoryData(Long sensorId, int limit) {
+        SensorHistoryRing history = sensorHistoryCache.get(sensorId);
+        if (history == null) {
+            return List.of();
+        }
 
+        // OPTIMIZED: The ring is already in time order, no filtering or sorting needed
+        int maxCount = limit > 0 ? Math.min(limit, history.size()) : history.size();
+        List<SensorDataDto> result = new ArrayList<>(maxCount);
+        history.forEach((timestamp, temperature, humidity, pressure, value, anomaly) -> {
+            if (result.size() < maxCount) {
+                result.add(toDto(sensorId, timestamp, temperature, humidity, pressure, value, anomaly));
+            }
+        });
         return result;
     }
 
-    public List<SensorDataDto> generateHistoryData(Long sensorId, int limit) {
-        String cacheKey = "sensor_" + sensorId;
-        SlidingWindow<SensorDataDto> history = sensorHistoryCache.getOrDefault(cacheKey, new SlidingWindow<>(0));
+    /**
+     * Returns up to {@code count} most recent readings of a sensor, oldest first
+     */
+    public List<SensorDataDto> getRecentHistory(Long sensorId, int count) {
+        SensorHistoryRing history = sensorHistoryCache.get(sensorId);
+        if (history == null || count <= 0) {
+            return List.of();
+        }
+        List<SensorDataDto> result = new ArrayList<>(Math.min(count, history.size()));
+        history.forEachLast(count, (timestamp, temperature, humidity, pressure, value, anomaly) ->
+                result.add(toDto(sensorId, timestamp, temperature, humidity, pressure, value, anomaly)));
+        return result;
+    }
 
-        // OPTIMIZED: Use stream with sorted comparator (O(n log n) instead of bubble sort O(n²))
-        // Also filter and limit in one pass
-        return history.stream()
-                .filter(data -> data.getSensorId().equals(sensorId))
-                .sorted(Comparator.comparingLong(SensorDataDto::getTimestamp))
-                .limit(limit > 0 ? limit : Long.MAX_VALUE)
-                .toList();
+    /**
+     * Returns in-memory readings of a sensor with {@code from <= timestamp < to}, oldest first
+     */
+    public List<SensorDataDto> getHistoryRange(Long sensorId, long from, long to) {
+        SensorHistoryRing history = sensorHistoryCache.get(sensorId);
+        if (history == null) {
+            return List.of();
+        }
+        List<SensorDataDto> result = new ArrayList<>();
+        history.forEachInRange(from, to, (timestamp, temperature, humidity, pressure, value, anomaly) ->
+                result.add(toDto(sensorId, timestamp, temperature, humidity, pressure, value, anomaly)));
+        return result;
+    }
+
+    /**
+     * Returns the in-memory history ring of a sensor, or null if the sensor has no history
+     */
+    public SensorHistoryRing getHistoryRing(Long sensorId) {
+        return sensorHistoryCache.get(sensorId);
     }
 
     public void clearHistory() {
         sensorHistoryCache.clear();
         sensorStatsCache.clear();
+        sensorQuantileCache.clear();
+        sensorRollupEngine.clear();
+        sensorAnomalyEngine.clear();
         log.info("Cleared sensor history cache and statistics");
     }
 
+    /**
+     * Estimated memory held by all history rings
+     */
+    public long getHistoryBytes() {
+        long bytes = 0;
+        for (SensorHistoryRing ring : sensorHistoryCache.values()) {
+            bytes += ring.estimatedBytes();
+        }
+        return bytes;
+    }
+
     public long getTotalGeneratedSensors() {
-        return totalGeneratedSensors;
+        return totalGeneratedSensors.sum();
     }
 
     /**
      * Gets temperature statistics for a sensor
      */
-    public TemperatureAggregator getTemperatureStats(Long sensorId) {
-        return sensorStatsCache.getOrDefault("sensor_" + sensorId, new TemperatureAggregator());
+    public MetricAggregator getTemperatureStats(Long sensorId) {
+        return getStats(sensorId, SensorStatsAccumulator.Metric.TEMPERATURE);
+    }
+
+    /**
+     * Gets statistics of one metric for a sensor
+     */
+    public MetricAggregator getStats(Long sensorId, SensorStatsAccumulator.Metric metric) {
+        SensorStatsAccumulator stats = sensorStatsCache.get(sensorId);
+        return stats != null ? stats.snapshot(metric) : new MetricAggregator();
+    }
+
+    /**
+     * Gets the statistics accumulator of a sensor, or null if the sensor has no readings
+     */
+    public SensorStatsAccumulator getStatsAccumulator(Long sensorId) {
+        return sensorStatsCache.get(sensorId);
     }
 
     /**
      * Gets all cached sensor statistics
      */
-    public Map<String, TemperatureAggregator> getAllStatistics() {
+    public Map<Long, SensorStatsAccumulator> getAllStatistics() {
         return new HashMap<>(sensorStatsCache);
     }
+
+    /**
+     * Gets quantile sketches for a sensor, or null if the sensor has no readings
+     */
+    public SensorQuantiles getQuantiles(Long sensorId) {
+        return sensorQuantileCache.get(sensorId);
+    }
+
+    /**
+     * Gets quantile sketches of all sensors
+     */
+    public Map<Long, SensorQuantiles> getAllQuantiles() {
+        return Collections.unmodifiableMap(sensorQuantileCache);
+    }
+
+    private TickTerms tickTerms(long timeSeconds) {
+        TickTerms terms = currentTickTerms;
+        if (terms == null || terms.second != timeSeconds) {
+            terms = new TickTerms(timeSeconds);
+            currentTickTerms = terms;
+        }
+        return terms;
+    }
+
+    /**
+     * Everything a reading depends on besides the sensor id, for one second of generation time.
+     * The sensor-dependent part of value depends only on sensorId % 360 (the tangent index
+     * sensorId % 45 divides it), so it is a 360-entry table per second.
+     * Immutable, so instances are safely shared through a volatile field without locking.
+     */
+    private static final class TickTerms {
+        private final long second;
+        private final double temperature;
+        private final double humidity;
+        private final double pressure;
+        private final boolean anomaly;
+        private final double[] values = new double[VALUE_PERIOD];
+
+        private TickTerms(long second) {
+            this.second = second;
+            this.temperature = 20 + 5 * Math.sin(second / 1.0);
+            this.humidity = 50 + 20 * Math.cos(second / 2.0);
+            this.pressure = 1013 + 10 * Math.sin(second / 3.0);
+            // OPTIMIZED: Simple threshold-based anomaly detection instead of nested loops
+            this.anomaly = Math.abs(temperature - 20.0) > ANOMALY_THRESHOLD ||
+                    Math.abs(humidity - 50.0) > ANOMALY_THRESHOLD ||
+                    Math.abs(pressure - 1013.0) > ANOMALY_THRESHOLD;
+            // OPTIMIZED: Use precomputed lookup tables instead of Math.sin/cos/tan
+            for (int r = 0; r < VALUE_PERIOD; r++) {
+                double x = temperature * COS_TABLE[r];
+                double y = humidity * SIN_TABLE[r];
+                double z = pressure * TAN_TABLE[r % 45];
+                values[r] = Math.sqrt(x * x + y * y + z * z);
+            }
+        }
+
+        private double value(long sensorId) {
+            return values[(int) Math.floorMod(sensorId, (long) VALUE_PERIOD)];
+        }
+    }
+
+    private static SensorDataDto toDto(Long sensorId, long timestamp, double temperature, double humidity,
+                                       double pressure, double value, boolean anomaly) {
+        return SensorDataDto.builder()
+                .sensorId(sensorId)
+                .timestamp(timestamp)
+                .temperature(temperature)
+                .humidity(humidity)
+                .pressure(pressure)
+                .value(value)
+                .anomaly(anomaly)
+                .build();
+    }
 }
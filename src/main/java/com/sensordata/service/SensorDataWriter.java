@@ -0,0 +1,282 @@
+package com.sensordata.service;
+
+import com.sensordata.dto.SensorDataDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking write-behind persistence of generated readings into sensor_data.
+ *
+ * The generator only appends to a bounded lock-free queue; a dedicated scheduler drains it in
+ * batches (by size or by time, whichever comes first) and writes each batch as one multi-row INSERT
+ * over R2DBC. The streaming hot path never waits on the database: enqueue() runs on the tick-driver
+ * threads, so a full queue drops a reading (and counts it) instead of parking the driver, which would
+ * stall every sensor on its timer wheel.
+ *
+ * Решает проблему: история показаний нигде не сохраняется
+ */
+@Slf4j
+@Service
+public class SensorDataWriter {
+    // PostgreSQL allows at most 65535 bind parameters per statement
+    private static final int COLUMNS = 7;
+    private static final int MAX_ROWS_PER_STATEMENT = 65535 / COLUMNS;
+    private static final String INSERT_PREFIX =
+            "INSERT INTO sensor_data (sensor_id, timestamp, temperature, humidity, pressure, value, anomaly) VALUES ";
+
+    public enum OverflowPolicy {
+        /** Reject the new reading when the queue is full */
+        DROP_NEWEST,
+        /** Evict the oldest queued reading to make room */
+        DROP_OLDEST
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final boolean enabled;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final OverflowPolicy overflowPolicy;
+
+    private final Queue<SensorDataDto> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean failing = new AtomicBoolean();
+    private final Scheduler flushScheduler = Schedulers.newSingle("sensor-persist", true);
+    private final String fullBatchSql;
+
+    private final Counter persistedCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+    private final Timer flushTimer;
+
+    private Disposable periodicFlush;
+
+    public SensorDataWriter(
+            ConnectionFactory connectionFactory,
+            MeterRegistry meterRegistry,
+            @Value("${app.persistence.enabled:true}") boolean enabled,
+            @Value("${app.persistence.queue-capacity:100000}") int queueCapacity,
+            @Value("${app.persistence.batch-size:5000}") int batchSize,
+            @Value("${app.persistence.flush-interval:50ms}") Duration flushInterval,
+            @Value("${app.persistence.overflow-policy:DROP_OLDEST}") OverflowPolicy overflowPolicy) {
+        if (queueCapacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("queue-capacity and batch-size must be positive");
+        }
+        this.connectionFactory = connectionFactory;
+        this.enabled = enabled;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = Math.min(batchSize, MAX_ROWS_PER_STATEMENT);
+        this.flushInterval = flushInterval;
+        this.overflowPolicy = overflowPolicy;
+        this.fullBatchSql = buildInsertSql(this.batchSize);
+
+        Gauge.builder("sensor.persistence.queue.depth", queueDepth, AtomicInteger::get)
+                .description("Readings waiting to be written to sensor_data")
+                .register(meterRegistry);
+        this.persistedCounter = Counter.builder("sensor.persistence.rows.persisted").register(meterRegistry);
+        this.droppedCounter = Counter.builder("sensor.persistence.rows.dropped").register(meterRegistry);
+        this.failedCounter = Counter.builder("sensor.persistence.rows.failed").register(meterRegistry);
+        this.flushTimer = Timer.builder("sensor.persistence.flush.latency")
+                .description("Time to write one batch to sensor_data")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Sensor data persistence is disabled");
+            return;
+        }
+        long intervalMillis = flushInterval.toMillis();
+        periodicFlush = flushScheduler.schedulePeriodically(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Sensor data write-behind started: batchSize={}, flushInterval={}, queueCapacity={}, overflowPolicy={}",
+                batchSize, flushInterval, queueCapacity, overflowPolicy);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (periodicFlush != null) {
+            periodicFlush.dispose();
+        }
+        // Write whatever is still queued before shutdown
+        while (enabled && queueDepth.get() > 0) {
+            List<SensorDataDto> batch = drain();
+            try {
+                write(batch).block(Duration.ofSeconds(10));
+            } catch (RuntimeException e) {
+                log.error("Failed to flush {} readings on shutdown: {}", batch.size(), e.getMessage());
+                break;
+            }
+        }
+        flushScheduler.dispose();
+    }
+
+    /**
+     * Queues a reading for persistence. Never performs I/O on the caller thread.
+     */
+    public void enqueue(SensorDataDto data) {
+        if (!enabled) {
+            return;
+        }
+        if (!reserveSlot()) {
+            droppedCounter.increment();
+            return;
+        }
+        queue.offer(data);
+        // Size-triggered flush: concurrent enqueues can step over the exact batch size, so any depth at or
+        // above it triggers, and the flag keeps it to one pending flush task
+        if (queueDepth.get() >= batchSize) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Returns number of queued readings
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    private boolean reserveSlot() {
+        if (queueDepth.incrementAndGet() <= queueCapacity) {
+            return true;
+        }
+        switch (overflowPolicy) {
+            case DROP_OLDEST -> {
+                // Keep our reservation and evict the oldest reading instead
+                if (queue.poll() != null) {
+                    queueDepth.decrementAndGet();
+                    droppedCounter.increment();
+                }
+                return true;
+            }
+            default -> {
+                queueDepth.decrementAndGet();
+                return false;
+            }
+        }
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            flushScheduler.schedule(this::flush);
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        if (queueDepth.get() == 0 || !flushing.compareAndSet(false, true)) {
+            return;
+        }
+        List<SensorDataDto> batch = drain();
+        long start = System.nanoTime();
+        write(batch)
+                .doFinally(signal -> {
+                    flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    flushing.set(false);
+                    // Keep draining while a full batch is waiting
+                    if (queueDepth.get() >= batchSize) {
+                        scheduleFlush();
+                    }
+                })
+                .subscribe(
+                        rows -> {
+                            persistedCounter.increment(batch.size());
+                            if (failing.compareAndSet(true, false)) {
+                                log.info("Sensor data persistence recovered");
+                            }
+                        },
+                        error -> {
+                            failedCounter.increment(batch.size());
+                            // Log once per failure streak instead of on every flush
+                            if (failing.compareAndSet(false, true)) {
+                                log.error("Failed to persist {} readings: {}", batch.size(), error.getMessage());
+                            }
+                        });
+    }
+
+    private List<SensorDataDto> drain() {
+        List<SensorDataDto> batch = new ArrayList<>(Math.min(batchSize, queueDepth.get()));
+        SensorDataDto data;
+        while (batch.size() < batchSize && (data = queue.poll()) != null) {
+            batch.add(data);
+        }
+        queueDepth.addAndGet(-batch.size());
+        return batch;
+    }
+
+    private Mono<Long> write(List<SensorDataDto> batch) {
+        if (batch.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return Mono.usingWhen(connectionFactory.create(),
+                connection -> insert(connection, batch),
+                Connection::close);
+    }
+
+    private Mono<Long> insert(Connection connection, List<SensorDataDto> batch) {
+        String sql = batch.size() == batchSize ? fullBatchSql : buildInsertSql(batch.size());
+        Statement statement = connection.createStatement(sql);
+        int index = 0;
+        for (SensorDataDto data : batch) {
+            statement.bind(index++, data.getSensorId())
+                    .bind(index++, data.getTimestamp())
+                    .bind(index++, data.getTemperature())
+                    .bind(index++, data.getHumidity())
+                    .bind(index++, data.getPressure())
+                    .bind(index++, data.getValue())
+                    .bind(index++, data.getAnomaly());
+        }
+        return Flux.from(statement.execute())
+                .flatMap(Result::getRowsUpdated)
+                .reduce(0L, Long::sum);
+    }
+
+    private static String buildInsertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * 48);
+        sql.append(INSERT_PREFIX);
+        int parameter = 1;
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                sql.append(',');
+            }
+            sql.append('(');
+            for (int column = 0; column < COLUMNS; column++) {
+                if (column > 0) {
+                    sql.append(',');
+                }
+                sql.append('$').append(parameter++);
+            }
+            sql.append(')');
+        }
+        return sql.toString();
+    }
+}
@@ -0,0 +1,243 @@
+package com.sensordata.service;
+
+import com.sensordata.dto.SensorDataDto;
+import com.sensordata.dto.SensorRollupDto;
+import com.sensordata.util.SensorHistoryRing;
+import com.sensordata.util.StreamLogSummary;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Streams sensor history for a time range.
+ *
+ * Persisted readings are read from sensor_data with keyset pagination on (timestamp, id) over the
+ * idx_sensor_timestamp index, never OFFSET, and each page is streamed from an R2DBC cursor with a
+ * bounded fetch size, so memory does not depend on the size of the range. Readings still held in the
+ * in-memory history ring are served from memory without a database round trip.
+ *
+ * Long ranges can be read at 1m / 1h resolution from the rollup tables maintained by
+ * SensorPartitionManager instead of scanning raw readings.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SensorHistoryService {
+    private static final String PAGE_SQL = """
+            SELECT id, sensor_id, timestamp, temperature, humidity, pressure, value, anomaly
+            FROM sensor_data
+            WHERE sensor_id = :sensorId
+              AND timestamp >= :fromTimestamp
+              AND (timestamp > :fromTimestamp OR id > :afterId)
+              AND timestamp < :toTimestamp
+            ORDER BY timestamp, id
+            LIMIT :pageSize
+            """;
+
+    private static final String ROLLUP_PAGE_SQL = """
+            SELECT sensor_id, bucket_start, count, anomalies,
+                   temperature_sum, temperature_min, temperature_max,
+                   humidity_sum, humidity_min, humidity_max,
+                   pressure_sum, pressure_min, pressure_max
+            FROM %s
+            WHERE sensor_id = :sensorId
+              AND bucket_start >= :fromTimestamp
+              AND bucket_start < :toTimestamp
+            ORDER BY bucket_start
+            LIMIT :pageSize
+            """;
+    private static final String MINUTE_ROLLUP_PAGE_SQL = ROLLUP_PAGE_SQL.formatted("sensor_data_rollup_1m");
+    private static final String HOUR_ROLLUP_PAGE_SQL = ROLLUP_PAGE_SQL.formatted("sensor_data_rollup_1h");
+
+    private final DatabaseClient databaseClient;
+    private final SensorDataGenerator sensorDataGenerator;
+
+    @Value("${app.persistence.enabled:true}")
+    private boolean persistenceEnabled;
+
+    @Value("${app.history.page-size:5000}")
+    private int pageSize;
+
+    @Value("${app.history.fetch-size:500}")
+    private int fetchSize;
+
+    /**
+     * Streams readings of a sensor with {@code from <= timestamp < to}, oldest first
+     */
+    public Flux<SensorDataDto> getHistory(Long sensorId, Long from, Long to, Integer limit) {
+        log.atDebug().setMessage("Starting history stream")
+                .addKeyValue("sensorId", sensorId)
+                .addKeyValue("from", from)
+                .addKeyValue("to", to)
+                .addKeyValue("limit", limit)
+                .log();
+
+        long actualFrom = from != null ? from : 0;
+        long actualTo = to != null ? to : Long.MAX_VALUE;
+        if (actualTo <= actualFrom) {
+            throw new IllegalArgumentException("to must be greater than from");
+        }
+
+        Flux<SensorDataDto> history = Flux.defer(() -> {
+            // Snapshot the in-memory tail first; everything older comes from the database
+            SensorHistoryRing ring = sensorDataGenerator.getHistoryRing(sensorId);
+            long tailStart = ring != null ? ring.oldestTimestamp() : -1;
+            List<SensorDataDto> tail = tailStart >= 0
+                    ? sensorDataGenerator.getHistoryRange(sensorId, Math.max(actualFrom, tailStart), actualTo)
+                    : List.of();
+
+            long persistedTo = tailStart >= 0 ? Math.min(actualTo, tailStart) : actualTo;
+            Flux<SensorDataDto> persisted = persistenceEnabled && persistedTo > actualFrom
+                    ? queryPersisted(sensorId, actualFrom, persistedTo)
+                    : Flux.empty();
+            return persisted.concatWith(Flux.fromIterable(tail));
+        });
+
+        Flux<SensorDataDto> stream = (limit != null && limit > 0 ? history.take(limit) : history)
+                .doOnError(error -> log.error("Error in history stream for sensorId={}: {}", sensorId, error.getMessage()));
+        return StreamLogSummary.summarize(stream, log, "History stream", sensorId);
+    }
+
+    /**
+     * Streams persisted 1m or 1h rollups of a sensor with {@code from <= window_start < to}, oldest first.
+     * Only windows already closed by the rollup maintenance are returned.
+     */
+    public Flux<SensorRollupDto> getPersistedRollups(Long sensorId, String resolution, Long from, Long to, Integer limit) {
+        log.atDebug().setMessage("Starting persisted rollups stream")
+                .addKeyValue("sensorId", sensorId)
+                .addKeyValue("resolution", resolution)
+                .addKeyValue("from", from)
+                .addKeyValue("to", to)
+                .addKeyValue("limit", limit)
+                .log();
+
+        SensorRollupEngine.Resolution res = SensorRollupEngine.Resolution.parse(resolution != null ? resolution : "1m");
+        String sql = switch (res) {
+            case MINUTE -> MINUTE_ROLLUP_PAGE_SQL;
+            case HOUR -> HOUR_ROLLUP_PAGE_SQL;
+            default -> throw new IllegalArgumentException("Persisted rollups are available for 1m and 1h only");
+        };
+        long actualFrom = from != null ? from : 0;
+        long actualTo = to != null ? to : Long.MAX_VALUE;
+        if (actualTo <= actualFrom) {
+            throw new IllegalArgumentException("to must be greater than from");
+        }
+        if (!persistenceEnabled) {
+            return Flux.empty();
+        }
+
+        Flux<SensorRollupDto> rollups = Flux.defer(() -> {
+            // bucket_start is unique per sensor, so it is a complete keyset on its own
+            long[] cursor = {actualFrom};
+            int[] rowsInPage = {0};
+            return Flux.defer(() -> {
+                        rowsInPage[0] = 0;
+                        return databaseClient.sql(sql)
+                                .bind("sensorId", sensorId)
+                                .bind("fromTimestamp", cursor[0])
+                                .bind("toTimestamp", actualTo)
+                                .bind("pageSize", pageSize)
+                                .filter(statement -> statement.fetchSize(fetchSize))
+                                .map(row -> {
+                                    SensorRollupDto dto = toRollupDto(row, res);
+                                    cursor[0] = dto.getWindowStart() + 1;
+                                    rowsInPage[0]++;
+                                    return dto;
+                                })
+                                .all();
+                    })
+                    .repeat(() -> rowsInPage[0] == pageSize);
+        });
+
+        return (limit != null && limit > 0 ? rollups.take(limit) : rollups)
+                .doOnError(error -> log.error("Error in persisted rollups stream for sensorId={}: {}", sensorId, error.getMessage()));
+    }
+
+    private Flux<SensorDataDto> queryPersisted(Long sensorId, long from, long to) {
+        return Flux.defer(() -> {
+            KeysetCursor cursor = new KeysetCursor(from);
+            // OPTIMIZED: Keyset pagination, the next page is only queried when the previous one is drained
+            return Flux.defer(() -> queryPage(sensorId, cursor, to))
+                    .repeat(cursor::hasMore);
+        });
+    }
+
+    private Flux<SensorDataDto> queryPage(Long sensorId, KeysetCursor cursor, long to) {
+        cursor.rowsInPage = 0;
+        return databaseClient.sql(PAGE_SQL)
+                .bind("sensorId", sensorId)
+                .bind("fromTimestamp", cursor.timestamp)
+                .bind("afterId", cursor.id)
+                .bind("toTimestamp", to)
+                .bind("pageSize", pageSize)
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(row -> {
+                    cursor.advance(row.get("timestamp", Long.class), row.get("id", Long.class));
+                    return toDto(row);
+                })
+                .all();
+    }
+
+    private static SensorDataDto toDto(Readable row) {
+        return SensorDataDto.builder()
+                .sensorId(row.get("sensor_id", Long.class))
+                .timestamp(row.get("timestamp", Long.class))
+                .temperature(row.get("temperature", Double.class))
+                .humidity(row.get("humidity", Double.class))
+                .pressure(row.get("pressure", Double.class))
+                .value(row.get("value", Double.class))
+                .anomaly(row.get("anomaly", Boolean.class))
+                .build();
+    }
+
+    private static SensorRollupDto toRollupDto(Readable row, SensorRollupEngine.Resolution resolution) {
+        long bucketStart = row.get("bucket_start", Long.class);
+        long count = row.get("count", Long.class);
+        return SensorRollupDto.builder()
+                .sensorId(row.get("sensor_id", Long.class))
+                .resolution(resolution.getLabel())
+                .windowStart(bucketStart)
+                .windowEnd(bucketStart + resolution.getMillis())
+                .count(count)
+                .anomalies(row.get("anomalies", Long.class).intValue())
+                .temperatureAvg(row.get("temperature_sum", Double.class) / count)
+                .temperatureMin(row.get("temperature_min", Double.class))
+                .temperatureMax(row.get("temperature_max", Double.class))
+                .humidityAvg(row.get("humidity_sum", Double.class) / count)
+                .humidityMin(row.get("humidity_min", Double.class))
+                .humidityMax(row.get("humidity_max", Double.class))
+                .pressureAvg(row.get("pressure_sum", Double.class) / count)
+                .pressureMin(row.get("pressure_min", Double.class))
+                .pressureMax(row.get("pressure_max", Double.class))
+                .build();
+    }
+
+    /**
+     * Position after the last row read: (timestamp, id). Accessed sequentially by one subscription.
+     */
+    private final class KeysetCursor {
+        private long timestamp;
+        private long id = -1;
+        private int rowsInPage;
+
+        private KeysetCursor(long from) {
+            this.timestamp = from;
+        }
+
+        private void advance(long rowTimestamp, long rowId) {
+            timestamp = rowTimestamp;
+            id = rowId;
+            rowsInPage++;
+        }
+
+        private boolean hasMore() {
+            return rowsInPage == pageSize;
+        }
+    }
+}
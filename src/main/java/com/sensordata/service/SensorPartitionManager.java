@@ -0,0 +1,319 @@
+package com.sensordata.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Maintains the time-partitioned sensor_data table and its rollup tables:
+ * creates upcoming daily partitions, drops expired ones and folds closed time ranges
+ * into sensor_data_rollup_1m / sensor_data_rollup_1h.
+ *
+ * New partitions are created as standalone tables with a matching CHECK constraint and then
+ * attached, and expired partitions are detached CONCURRENTLY, so neither step holds a long
+ * exclusive lock on sensor_data. DDL runs with a short lock_timeout and is simply retried
+ * on the next maintenance run if it cannot get its lock.
+ *
+ * Readings outside every daily partition land in sensor_data_default instead of failing their
+ * insert batch. Before a day is attached its rows are moved out of the default partition in the
+ * same transaction (ATTACH refuses a range the default partition still holds rows for), and
+ * rows older than the retention are purged from it.
+ */
+@Slf4j
+@Component
+public class SensorPartitionManager {
+    private static final long DAY_MILLIS = 86_400_000L;
+    private static final long MINUTE_MILLIS = 60_000L;
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final String PARTITION_PREFIX = "sensor_data_p";
+    private static final String DEFAULT_PARTITION = "sensor_data_default";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+    // Upper bound of one rollup statement, so that catching up never produces one huge transaction
+    private static final long MAX_MINUTE_ROLLUP_SPAN = 60 * MINUTE_MILLIS;
+    private static final long MAX_HOUR_ROLLUP_SPAN = 24 * HOUR_MILLIS;
+
+    private static final String LIST_PARTITIONS_SQL = """
+            SELECT c.relname AS name
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            JOIN pg_class p ON p.oid = i.inhparent
+            WHERE p.relname = 'sensor_data'
+            """;
+
+    private static final String UPSERT_ROLLUP = """
+            ON CONFLICT (sensor_id, bucket_start) DO UPDATE SET
+                count = EXCLUDED.count, anomalies = EXCLUDED.anomalies,
+                temperature_sum = EXCLUDED.temperature_sum, temperature_min = EXCLUDED.temperature_min,
+                temperature_max = EXCLUDED.temperature_max,
+                humidity_sum = EXCLUDED.humidity_sum, humidity_min = EXCLUDED.humidity_min,
+                humidity_max = EXCLUDED.humidity_max,
+                pressure_sum = EXCLUDED.pressure_sum, pressure_min = EXCLUDED.pressure_min,
+                pressure_max = EXCLUDED.pressure_max
+            """;
+
+    private static final String MINUTE_ROLLUP_SQL = """
+            INSERT INTO sensor_data_rollup_1m (sensor_id, bucket_start, count, anomalies,
+                temperature_sum, temperature_min, temperature_max,
+                humidity_sum, humidity_min, humidity_max,
+                pressure_sum, pressure_min, pressure_max)
+            SELECT sensor_id, timestamp - timestamp % 60000, COUNT(*), COUNT(*) FILTER (WHERE anomaly),
+                SUM(temperature), MIN(temperature), MAX(temperature),
+                SUM(humidity), MIN(humidity), MAX(humidity),
+                SUM(pressure), MIN(pressure), MAX(pressure)
+            FROM sensor_data
+            WHERE timestamp >= :fromTimestamp AND timestamp < :toTimestamp
+            GROUP BY sensor_id, timestamp - timestamp % 60000
+            """ + UPSERT_ROLLUP;
+
+    private static final String HOUR_ROLLUP_SQL = """
+            INSERT INTO sensor_data_rollup_1h (sensor_id, bucket_start, count, anomalies,
+                temperature_sum, temperature_min, temperature_max,
+                humidity_sum, humidity_min, humidity_max,
+                pressure_sum, pressure_min, pressure_max)
+            SELECT sensor_id, bucket_start - bucket_start % 3600000, SUM(count)::BIGINT, SUM(anomalies)::BIGINT,
+                SUM(temperature_sum), MIN(temperature_min), MAX(temperature_max),
+                SUM(humidity_sum), MIN(humidity_min), MAX(humidity_max),
+                SUM(pressure_sum), MIN(pressure_min), MAX(pressure_max)
+            FROM sensor_data_rollup_1m
+            WHERE bucket_start >= :fromTimestamp AND bucket_start < :toTimestamp
+            GROUP BY sensor_id, bucket_start - bucket_start % 3600000
+            """ + UPSERT_ROLLUP;
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final boolean enabled;
+    private final int premakeDays;
+    private final Duration retention;
+    private final Duration minuteRollupRetention;
+    private final Duration hourRollupRetention;
+    private final Duration maintenanceInterval;
+    private final Duration rollupLateness;
+
+    private Disposable maintenance;
+
+    public SensorPartitionManager(
+            DatabaseClient databaseClient,
+            ReactiveTransactionManager transactionManager,
+            @Value("${app.persistence.enabled:true}") boolean enabled,
+            @Value("${app.persistence.partitions.premake-days:2}") int premakeDays,
+            @Value("${app.persistence.partitions.retention:7d}") Duration retention,
+            @Value("${app.persistence.rollups.minute-retention:30d}") Duration minuteRollupRetention,
+            @Value("${app.persistence.rollups.hour-retention:365d}") Duration hourRollupRetention,
+            @Value("${app.persistence.partitions.maintenance-interval:1m}") Duration maintenanceInterval,
+            @Value("${app.persistence.rollups.lateness:1m}") Duration rollupLateness) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+        this.enabled = enabled;
+        this.premakeDays = premakeDays;
+        this.retention = retention;
+        this.minuteRollupRetention = minuteRollupRetention;
+        this.hourRollupRetention = hourRollupRetention;
+        this.maintenanceInterval = maintenanceInterval;
+        this.rollupLateness = rollupLateness;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        maintenance = Flux.interval(Duration.ZERO, maintenanceInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> runMaintenance()
+                        .onErrorResume(error -> {
+                            log.warn("Partition maintenance failed, will retry: {}", error.getMessage());
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+        log.info("Partition maintenance started: premakeDays={}, retention={}, interval={}",
+                premakeDays, retention, maintenanceInterval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (maintenance != null) {
+            maintenance.dispose();
+        }
+    }
+
+    /**
+     * Runs one maintenance pass: partitions first, then rollups, then rollup retention
+     */
+    public Mono<Void> runMaintenance() {
+        return listPartitions()
+                .flatMap(existing -> createUpcomingPartitions(existing).then(dropExpiredPartitions(existing)))
+                .then(rollUpMinutes())
+                .then(rollUpHours())
+                .then(purgeRollups());
+    }
+
+    private Mono<Set<String>> listPartitions() {
+        return databaseClient.sql(LIST_PARTITIONS_SQL)
+                .map(row -> row.get("name", String.class))
+                .all()
+                .collect(HashSet::new, Set::add);
+    }
+
+    private Mono<Void> createUpcomingPartitions(Set<String> existing) {
+        long today = Math.floorDiv(System.currentTimeMillis(), DAY_MILLIS) * DAY_MILLIS;
+        return Flux.range(0, premakeDays + 1)
+                .map(offset -> today + offset * DAY_MILLIS)
+                .filter(dayStart -> !existing.contains(partitionName(dayStart)))
+                .concatMap(this::createPartition)
+                .then();
+    }
+
+    private Mono<Void> createPartition(long dayStart) {
+        String name = partitionName(dayStart);
+        long dayEnd = dayStart + DAY_MILLIS;
+        String range = "timestamp >= " + dayStart + " AND timestamp < " + dayEnd;
+        // The CHECK constraint lets ATTACH skip the validation scan of the new table; ATTACH takes
+        // SHARE UPDATE EXCLUSIVE on sensor_data and only briefly locks the (small) default partition
+        List<String> prepare = List.of(
+                "SET LOCAL lock_timeout = '2s'",
+                "CREATE TABLE IF NOT EXISTS " + name + " (LIKE sensor_data INCLUDING DEFAULTS)",
+                "ALTER TABLE " + name + " DROP CONSTRAINT IF EXISTS " + name + "_range",
+                "ALTER TABLE " + name + " ADD CONSTRAINT " + name + "_range CHECK (" + range + ")");
+        String moveFromDefault = "WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE " + range + " RETURNING *) "
+                + "INSERT INTO " + name + " SELECT * FROM moved";
+        List<String> attach = List.of(
+                "ALTER TABLE sensor_data ATTACH PARTITION " + name + " FOR VALUES FROM (" + dayStart + ") TO (" + dayEnd + ")",
+                "ALTER TABLE " + name + " DROP CONSTRAINT " + name + "_range");
+        return executeAll(prepare)
+                .then(databaseClient.sql(moveFromDefault).fetch().rowsUpdated())
+                .flatMap(moved -> executeAll(attach).thenReturn(moved))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(moved -> {
+                    if (moved > 0) {
+                        log.warn("Moved {} readings from {} into {}", moved, DEFAULT_PARTITION, name);
+                    }
+                    log.info("Created partition {}", name);
+                })
+                .then();
+    }
+
+    private Mono<Void> dropExpiredPartitions(Set<String> existing) {
+        long cutoff = System.currentTimeMillis() - retention.toMillis();
+        return Flux.fromIterable(existing)
+                .filter(name -> name.startsWith(PARTITION_PREFIX))
+                .filter(name -> partitionEnd(name) <= cutoff)
+                .concatMap(name -> executeOnOneConnection(List.of(
+                                "SET lock_timeout = '2s'",
+                                // DETACH CONCURRENTLY must run outside a transaction block (autocommit)
+                                "ALTER TABLE sensor_data DETACH PARTITION " + name + " CONCURRENTLY",
+                                "DROP TABLE " + name))
+                        .doOnSuccess(v -> log.info("Dropped expired partition {}", name)))
+                .then(databaseClient.sql("DELETE FROM " + DEFAULT_PARTITION + " WHERE timestamp < :cutoff")
+                        .bind("cutoff", cutoff)
+                        .fetch()
+                        .rowsUpdated()
+                        .doOnNext(rows -> {
+                            if (rows > 0) {
+                                log.info("Purged {} expired readings from {}", rows, DEFAULT_PARTITION);
+                            }
+                        }))
+                .then();
+    }
+
+    private Mono<Void> rollUpMinutes() {
+        long closedUntil = Math.floorDiv(System.currentTimeMillis() - rollupLateness.toMillis(), MINUTE_MILLIS) * MINUTE_MILLIS;
+        return advanceRollup("1m", MINUTE_ROLLUP_SQL, closedUntil, MAX_MINUTE_ROLLUP_SPAN);
+    }
+
+    private Mono<Void> rollUpHours() {
+        // Hours are built from minutes, so they can only close as far as the minute rollup has
+        return readWatermark("1m")
+                .flatMap(minutesClosed -> advanceRollup("1h", HOUR_ROLLUP_SQL,
+                        Math.floorDiv(minutesClosed, HOUR_MILLIS) * HOUR_MILLIS, MAX_HOUR_ROLLUP_SPAN));
+    }
+
+    private Mono<Void> advanceRollup(String rollup, String sql, long closedUntil, long maxSpan) {
+        return readWatermark(rollup)
+                .filter(watermark -> watermark < closedUntil)
+                .flatMap(watermark -> {
+                    long to = Math.min(closedUntil, watermark + maxSpan);
+                    return databaseClient.sql(sql)
+                            .bind("fromTimestamp", watermark)
+                            .bind("toTimestamp", to)
+                            .fetch()
+                            .rowsUpdated()
+                            .then(databaseClient.sql("UPDATE sensor_rollup_watermark SET closed_until = :closedUntil WHERE rollup = :rollup")
+                                    .bind("closedUntil", to)
+                                    .bind("rollup", rollup)
+                                    .then())
+                            .as(transactionalOperator::transactional)
+                            .doOnSuccess(v -> log.debug("Rolled up {} range [{}, {})", rollup, watermark, to))
+                            // Catch up in bounded steps, each one committed with its watermark
+                            .then(Mono.defer(() -> to < closedUntil
+                                    ? advanceRollup(rollup, sql, closedUntil, maxSpan)
+                                    : Mono.empty()));
+                });
+    }
+
+    private Mono<Long> readWatermark(String rollup) {
+        return databaseClient.sql("SELECT closed_until FROM sensor_rollup_watermark WHERE rollup = :rollup")
+                .bind("rollup", rollup)
+                .map(row -> row.get("closed_until", Long.class))
+                .one();
+    }
+
+    private Mono<Void> purgeRollups() {
+        long now = System.currentTimeMillis();
+        return databaseClient.sql("DELETE FROM sensor_data_rollup_1m WHERE bucket_start < :cutoff")
+                .bind("cutoff", now - minuteRollupRetention.toMillis())
+                .then()
+                .then(databaseClient.sql("DELETE FROM sensor_data_rollup_1h WHERE bucket_start < :cutoff")
+                        .bind("cutoff", now - hourRollupRetention.toMillis())
+                        .then());
+    }
+
+    private Mono<Void> executeAll(List<String> statements) {
+        // Runs on the connection of the surrounding transaction
+        return Flux.fromIterable(statements)
+                .concatMap(sql -> databaseClient.sql(sql).then())
+                .then();
+    }
+
+    private Mono<Void> executeOnOneConnection(List<String> statements) {
+        // Session settings such as lock_timeout must apply to the DDL, so use a single connection
+        return databaseClient.inConnection(connection -> Flux.fromIterable(statements)
+                        .concatMap(sql -> Flux.from(connection.createStatement(sql).execute())
+                                .concatMap(result -> result.getRowsUpdated()))
+                        .then(Mono.from(connection.createStatement("RESET lock_timeout").execute()))
+                        .then(Mono.just(Boolean.TRUE)))
+                .then();
+    }
+
+    private static String partitionName(long dayStart) {
+        LocalDate day = Instant.ofEpochMilli(dayStart).atZone(ZoneOffset.UTC).toLocalDate();
+        return PARTITION_PREFIX + PARTITION_SUFFIX.format(day);
+    }
+
+    private static long partitionEnd(String name) {
+        try {
+            LocalDate day = LocalDate.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+            return day.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli() + DAY_MILLIS;
+        } catch (RuntimeException e) {
+            // Not one of our daily partitions, never drop it
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.sensordata.service;
+
+import com.sensordata.util.RollupRing;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Incremental windowing engine: keeps per-sensor tumbling-window rollups at 1s, 1m and 1h
+ * resolution in preallocated ring slots, updated inline by SensorDataGenerator.
+ */
+@Slf4j
+@Component
+public class SensorRollupEngine {
+    private final Map<Long, RollupRing[]> sensorRollupCache = new ConcurrentHashMap<>();
+
+    public enum Resolution {
+        SECOND("1s", 1_000L, 60),
+        MINUTE("1m", 60_000L, 60),
+        HOUR("1h", 3_600_000L, 24);
+
+        private final String label;
+        private final long millis;
+        private final int slots;
+
+        Resolution(String label, long millis, int slots) {
+            this.label = label;
+            this.millis = millis;
+            this.slots = slots;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public int getSlots() {
+            return slots;
+        }
+
+        public static Resolution parse(String value) {
+            for (Resolution resolution : values()) {
+                if (resolution.label.equalsIgnoreCase(value) || resolution.name().equalsIgnoreCase(value)) {
+                    return resolution;
+                }
+            }
+            throw new IllegalArgumentException("Unknown resolution: " + value + ", expected one of 1s, 1m, 1h");
+        }
+    }
+
+    /**
+     * Adds a reading to all resolutions of the sensor
+     */
+    public void record(Long sensorId, long timestamp, double temperature, double humidity, double pressure, boolean anomaly) {
+        RollupRing[] rings = sensorRollupCache.computeIfAbsent(sensorId, k -> createRings());
+        for (RollupRing ring : rings) {
+            ring.add(timestamp, temperature, humidity, pressure, anomaly);
+        }
+    }
+
+    /**
+     * Returns closed windows of a sensor, oldest first
+     *
+     * @param panes number of consecutive windows merged into one hopping window (1 = tumbling)
+     * @param from  only windows starting at or after this timestamp
+     * @param limit maximum number of most recent windows
+     */
+    public List<RollupRing.Window> getClosedWindows(Long sensorId, Resolution resolution, int panes,
+                                                    long from, long now, int limit) {
+        RollupRing[] rings = sensorRollupCache.get(sensorId);
+        if (rings == null) {
+            return List.of();
+        }
+        return rings[resolution.ordinal()].closedWindows(now, panes, from, limit);
+    }
+
+    public void clear() {
+        sensorRollupCache.clear();
+        log.info("Cleared sensor rollups");
+    }
+
+    private static RollupRing[] createRings() {
+        Resolution[] resolutions = Resolution.values();
+        RollupRing[] rings = new RollupRing[resolutions.length];
+        for (Resolution resolution : resolutions) {
+            rings[resolution.ordinal()] = new RollupRing(resolution.millis, resolution.slots);
+        }
+        return rings;
+    }
+}
@@ -0,0 +1,166 @@
+package com.sensordata.service;
+
+import com.sensordata.dto.MetricStatsDto;
+import com.sensordata.dto.SensorRollupDto;
+import com.sensordata.dto.SensorStatsDto;
+import com.sensordata.util.MetricAggregator;
+import com.sensordata.util.QuantileSketch;
+import com.sensordata.util.RollupRing;
+import com.sensordata.util.SensorQuantiles;
+import com.sensordata.util.SensorStatsAccumulator;
+import com.sensordata.util.SensorStatsAccumulator.Metric;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds per-sensor and fleet-wide statistics (avg/min/max/stddev and p50/p95/p99)
+ * from the accumulators and quantile sketches maintained by SensorDataGenerator,
+ * and serves closed rollup windows from SensorRollupEngine.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SensorStatisticsService {
+    private final SensorDataGenerator sensorDataGenerator;
+    private final SensorRollupEngine sensorRollupEngine;
+
+    // Delay after a window boundary before the window is read, so readings of the last tick are in
+    private static final long CLOSE_GRACE_MILLIS = 50;
+
+    public Mono<SensorStatsDto> getSensorStats(Long sensorId) {
+        return Mono.fromSupplier(() -> {
+            SensorStatsAccumulator stats = sensorDataGenerator.getStatsAccumulator(sensorId);
+            SensorQuantiles quantiles = sensorDataGenerator.getQuantiles(sensorId);
+            return buildStats(sensorId,
+                    stats != null ? List.of(stats) : List.of(),
+                    quantiles != null ? List.of(quantiles) : List.of());
+        });
+    }
+
+    public Mono<SensorStatsDto> getFleetStats() {
+        // Merging thousands of sketches is CPU work, keep it off the event loop
+        return Mono.fromSupplier(() -> {
+                    Map<Long, SensorStatsAccumulator> stats = sensorDataGenerator.getAllStatistics();
+                    Map<Long, SensorQuantiles> quantiles = sensorDataGenerator.getAllQuantiles();
+                    log.debug("Merging fleet statistics for {} sensors", stats.size());
+                    return buildStats(null, stats.values(), quantiles.values());
+                })
+                .subscribeOn(Schedulers.parallel());
+    }
+
+    /**
+     * Returns closed rollup windows of a sensor and, if {@code follow} is set, keeps emitting
+     * each new window as soon as it closes.
+     */
+    public Flux<SensorRollupDto> getRollups(Long sensorId, String resolution, Integer window, Long from,
+                                            Integer limit, boolean follow) {
+        SensorRollupEngine.Resolution actualResolution = SensorRollupEngine.Resolution.parse(resolution != null ? resolution : "1m");
+        int panes = window != null && window > 0 ? window : 1;
+        if (panes > actualResolution.getSlots()) {
+            throw new IllegalArgumentException("window must not exceed " + actualResolution.getSlots()
+                    + " for resolution " + actualResolution.getLabel());
+        }
+        int actualLimit = limit != null && limit > 0 ? limit : actualResolution.getSlots();
+        long actualFrom = from != null ? from : Long.MIN_VALUE / 2;
+
+        Flux<SensorRollupDto> closed = Flux.defer(() -> {
+            List<RollupRing.Window> windows = sensorRollupEngine.getClosedWindows(sensorId, actualResolution, panes,
+                    actualFrom, now(), actualLimit);
+            return Flux.fromIterable(windows).map(w -> toRollupDto(sensorId, actualResolution, w));
+        });
+        if (!follow) {
+            return closed;
+        }
+
+        long resolutionMillis = actualResolution.getMillis();
+        return Flux.defer(() -> {
+            long now = now();
+            long openPane = now - Math.floorMod(now, resolutionMillis);
+            // First window that is still open: the one ending with the currently open pane
+            AtomicLong cursor = new AtomicLong(Math.max(actualFrom, openPane - (panes - 1) * resolutionMillis));
+            Duration firstClose = Duration.ofMillis(resolutionMillis - Math.floorMod(now, resolutionMillis) + CLOSE_GRACE_MILLIS);
+
+            Flux<SensorRollupDto> live = Flux.interval(firstClose, Duration.ofMillis(resolutionMillis))
+                    .concatMapIterable(tick -> sensorRollupEngine.getClosedWindows(sensorId, actualResolution, panes,
+                            cursor.get(), now(), actualResolution.getSlots()))
+                    .doOnNext(w -> cursor.set(w.getStart() + resolutionMillis))
+                    .map(w -> toRollupDto(sensorId, actualResolution, w));
+            return closed.concatWith(live).take(actualLimit);
+        });
+    }
+
+    // Clock of the scheduler Flux.interval runs on, so window boundaries and ticks agree (also under virtual time)
+    private static long now() {
+        return Schedulers.parallel().now(TimeUnit.MILLISECONDS);
+    }
+
+    private SensorRollupDto toRollupDto(Long sensorId, SensorRollupEngine.Resolution resolution, RollupRing.Window window) {
+        return SensorRollupDto.builder()
+                .sensorId(sensorId)
+                .resolution(resolution.getLabel())
+                .windowStart(window.getStart())
+                .windowEnd(window.getEnd())
+                .count(window.getCount())
+                .anomalies(window.getAnomalies())
+                .temperatureAvg(window.getAverage(RollupRing.TEMPERATURE))
+                .temperatureMin(window.getMin(RollupRing.TEMPERATURE))
+                .temperatureMax(window.getMax(RollupRing.TEMPERATURE))
+                .humidityAvg(window.getAverage(RollupRing.HUMIDITY))
+                .humidityMin(window.getMin(RollupRing.HUMIDITY))
+                .humidityMax(window.getMax(RollupRing.HUMIDITY))
+                .pressureAvg(window.getAverage(RollupRing.PRESSURE))
+                .pressureMin(window.getMin(RollupRing.PRESSURE))
+                .pressureMax(window.getMax(RollupRing.PRESSURE))
+                .build();
+    }
+
+    private SensorStatsDto buildStats(Long sensorId, Collection<SensorStatsAccumulator> stats,
+                                      Collection<SensorQuantiles> quantiles) {
+        return SensorStatsDto.builder()
+                .sensorId(sensorId)
+                .sensorCount(stats.size())
+                .temperature(buildMetric(Metric.TEMPERATURE, stats, quantiles))
+                .humidity(buildMetric(Metric.HUMIDITY, stats, quantiles))
+                .pressure(buildMetric(Metric.PRESSURE, stats, quantiles))
+                .build();
+    }
+
+    private MetricStatsDto buildMetric(Metric metric, Collection<SensorStatsAccumulator> stats,
+                                       Collection<SensorQuantiles> quantiles) {
+        MetricAggregator aggregator = new MetricAggregator();
+        for (SensorStatsAccumulator accumulator : stats) {
+            accumulator.mergeInto(aggregator, metric);
+        }
+
+        QuantileSketch.Merged merged = null;
+        for (SensorQuantiles sensorQuantiles : quantiles) {
+            QuantileSketch sketch = sensorQuantiles.get(metric);
+            if (merged == null) {
+                merged = sketch.newMerged();
+            }
+            sketch.mergeInto(merged);
+        }
+
+        return MetricStatsDto.builder()
+                .count(aggregator.getCount())
+                .avg(aggregator.getAverage())
+                .min(aggregator.getMin())
+                .max(aggregator.getMax())
+                .stdDev(aggregator.getStdDev())
+                .p50(merged != null ? merged.quantile(0.50) : 0)
+                .p95(merged != null ? merged.quantile(0.95) : 0)
+                .p99(merged != null ? merged.quantile(0.99) : 0)
+                .build();
+    }
+}
@@ -0,0 +1,91 @@
+package com.sensordata.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Meters of the streaming endpoints: active streams per endpoint, readings emitted,
+ * and occupancy / overflow drops of the per-stream backpressure buffers.
+ *
+ * Per-element recording only touches LongAdders and pre-registered counters, so it does not allocate;
+ * the operators below allocate their state once per subscription.
+ */
+@Component
+public class SensorStreamMetrics {
+    public enum Endpoint {
+        STREAM, MULTI, FRAMES, RSOCKET, SNAPSHOT, ANOMALIES
+    }
+
+    private final Map<Endpoint, AtomicInteger> activeStreams = new EnumMap<>(Endpoint.class);
+    private final LongAdder emitted = new LongAdder();
+    private final LongAdder buffered = new LongAdder();
+    private final Counter overflowDrops;
+
+    public SensorStreamMetrics(MeterRegistry meterRegistry) {
+        for (Endpoint endpoint : Endpoint.values()) {
+            AtomicInteger active = new AtomicInteger();
+            activeStreams.put(endpoint, active);
+            Gauge.builder("sensor.streams.active", active, AtomicInteger::get)
+                    .tag("endpoint", endpoint.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+        FunctionCounter.builder("sensor.readings.emitted", emitted, LongAdder::sum)
+                .description("Readings sent to stream subscribers")
+                .register(meterRegistry);
+        Gauge.builder("sensor.stream.buffer.occupancy", buffered, LongAdder::sum)
+                .description("Elements waiting in stream backpressure buffers")
+                .register(meterRegistry);
+        this.overflowDrops = Counter.builder("sensor.stream.buffer.overflow")
+                .description("Elements dropped because a backpressure buffer was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts the stream as active for the endpoint while it is subscribed
+     */
+    public <T> Flux<T> trackActive(Flux<T> stream, Endpoint endpoint) {
+        AtomicInteger active = activeStreams.get(endpoint);
+        return stream
+                .doOnSubscribe(subscription -> active.incrementAndGet())
+                .doFinally(signal -> active.decrementAndGet());
+    }
+
+    /**
+     * onBackpressureBuffer that reports its occupancy and overflow drops
+     */
+    public <T> Flux<T> meteredBuffer(Flux<T> source, int capacity, BufferOverflowStrategy strategy) {
+        return Flux.defer(() -> {
+            AtomicInteger inBuffer = new AtomicInteger();
+            return source
+                    .doOnNext(item -> {
+                        inBuffer.incrementAndGet();
+                        buffered.increment();
+                    })
+                    .onBackpressureBuffer(capacity, dropped -> {
+                        inBuffer.decrementAndGet();
+                        buffered.decrement();
+                        overflowDrops.increment();
+                    }, strategy)
+                    .doOnNext(item -> {
+                        inBuffer.decrementAndGet();
+                        buffered.decrement();
+                    })
+                    // Elements still buffered when the stream ends are discarded with it
+                    .doFinally(signal -> buffered.add(-inBuffer.getAndSet(0)));
+        });
+    }
+
+    public void recordEmitted(int count) {
+        emitted.add(count);
+    }
+}
@@ -1,47 +1,120 @@
 package com.sensordata.service;
 
 import com.sensordata.dto.SensorDataDto;
+import com.sensordata.dto.SensorDataFrame;
+import com.sensordata.dto.SensorSnapshotChunk;
+import com.sensordata.dto.SensorStreamRequest;
+import com.sensordata.service.SensorStreamMetrics.Endpoint;
+import com.sensordata.util.SensorReadingQuery;
+import com.sensordata.util.SharedFluxRegistry;
+import com.sensordata.util.StreamLogSummary;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
 import reactor.core.publisher.Flux;
 import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 /**
  * Optimized SensorStreamService with backpressure and batch processing.
  *
  * Оптимизации:
  * 1. onBackpressureBuffer для управления нагрузкой на слабых клиентов
- * 2. buffer() для батч-обработки данных
+ * 2. Кадры (bufferTimeout) - до N показаний одного датчика за одну запись в сеть
  * 3. parallel() для многопоточной обработки
+ * 4. Один горячий publisher на датчик вместо Flux.interval на каждого подписчика
+ * 5. Общий SensorTickEngine вместо отдельного таймера на каждый поток
+ * 6. Для RSocket - спрос подписчика через сеть и ограниченный буфер на подписчика
+ * 7. Одна итоговая строка лога на поток вместо строки на элемент
+ * 8. Снимок парка датчиков: чанки считаются на всех ядрах и отдаются по мере готовности, без буферизации ответа
+ * 9. Поток только аномальных показаний - детекция на сервере вместо фильтрации всех показаний у потребителя
+ * 10. Проекция полей и фильтр показаний на сервере (SensorReadingQuery) - подписчику кодируется и отправляется только нужное
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class SensorStreamService {
     private final SensorDataGenerator sensorDataGenerator;
+    private final SensorTickEngine sensorTickEngine;
+    private final SensorStreamMetrics streamMetrics;
+    private final SensorAnomalyEngine sensorAnomalyEngine;
 
     // Configuration
-    private static final int BATCH_SIZE = 16;
+    private static final int DEFAULT_FRAME_SIZE = 16;
+    private static final int MAX_FRAME_SIZE = 1024;
+    private static final long DEFAULT_FRAME_MILLIS = 50;
+    private static final long MAX_FRAME_MILLIS = 5_000;
     private static final int OVERFLOW_BUFFER_SIZE = 512;
     private static final int PARALLEL_WORKERS = 4;
+    private static final long MAX_INTERVAL_MILLIS = 60_000;
+    // Per-subscriber buffer on demand-driven transports; must hold a full replay (history ring size)
+    private static final int SUBSCRIBER_BUFFER_SIZE = 256;
+    private static final int DEFAULT_SNAPSHOT_CHUNK_SIZE = 4096;
+    private static final int MAX_SNAPSHOT_CHUNK_SIZE = 65_536;
+    private static final long MAX_SNAPSHOT_SENSORS = 100_000_000L;
+    private static final int MAX_ANOMALY_SENSORS = 1000;
+    // A filtered stream examines at most this many source readings per requested match
+    private static final long MAX_SCANNED_PER_MATCH = 100;
+
+    @Value("${app.sensor-stream.default-interval-ms:100}")
+    private long defaultIntervalMillis;
+
+    // OPTIMIZED: One hot publisher per sensor and tick period, shared by all subscribers of that sensor
+    private final SharedFluxRegistry<PublisherKey, SensorDataDto> sensorPublishers = new SharedFluxRegistry<>();
 
     public Flux<SensorDataDto> streamSensorData(Long sensorId, Integer limit) {
-        log.info("Starting optimized sensor stream for sensorId={}, limit={}", sensorId, limit);
+        return streamSensorData(sensorId, limit, null, null, null);
+    }
 
+    /**
+     * @param replay number of past readings to send first
+     * @param since  resume cursor: send every buffered reading newer than this timestamp first
+     */
+    public Flux<SensorDataDto> streamSensorData(Long sensorId, Integer limit, Integer replay, Long since, Long intervalMs) {
+        return streamSensorData(sensorId, limit, replay, since, intervalMs, SensorReadingQuery.ALL);
+    }
+
+    /**
+     * A subscriber that falls more than OVERFLOW_BUFFER_SIZE readings behind loses the oldest buffered
+     * readings (counted in sensor.stream.buffer.overflow) and keeps receiving the newest ones; the stream
+     * is never ended because of a slow consumer.
+     *
+     * @param query projection and filter of the readings; limit counts matching readings, and with a filter
+     *              the stream ends after MAX_SCANNED_PER_MATCH * limit source readings even if fewer matched
+     */
+    public Flux<SensorDataDto> streamSensorData(Long sensorId, Integer limit, Integer replay, Long since, Long intervalMs,
+                                                SensorReadingQuery query) {
+        log.atDebug().setMessage("Starting optimized sensor stream")
+                .addKeyValue("sensorId", sensorId)
+                .addKeyValue("limit", limit)
+                .addKeyValue("replay", replay)
+                .addKeyValue("since", since)
+                .addKeyValue("intervalMs", intervalMs)
+                .addKeyValue("query", query)
+                .log();
+
+        Flux<SensorDataDto> stream = sensorStream(sensorId, limit, replay, since, intervalMs, query)
+                .doOnNext(data -> streamMetrics.recordEmitted(1));
+        return streamMetrics.trackActive(StreamLogSummary.summarize(stream, log, "Sensor stream", sensorId), Endpoint.STREAM);
+    }
+
+    private Flux<SensorDataDto> sensorStream(Long sensorId, Integer limit, Integer replay, Long since, Long intervalMs,
+                                             SensorReadingQuery query) {
         int actualLimit = limit != null && limit > 0 ? limit : 10;
+        int replayCount = replay != null && replay > 0 ? replay : 0;
+        long interval = resolveInterval(intervalMs);
 
-        return Flux.interval(Duration.ofMillis(100))  // Changed to 100ms for better throughput
-                .map(tick -> sensorDataGenerator.generateSensorData(sensorId))
-                .take(actualLimit)
-                // OPTIMIZED: Add backpressure handling for slow subscribers
-                .buffer(BATCH_SIZE)  // Batch elements for efficient processing
-                .onBackpressureBuffer(OVERFLOW_BUFFER_SIZE)  // Handle slow consumers
-                .flatMapIterable(batch -> batch)  // Flatten batches back to individual items
-                .doOnComplete(() -> log.info("Optimized sensor stream completed for sensorId={}", sensorId))
-                .doOnCancel(() -> log.warn("Optimized sensor stream cancelled for sensorId={}", sensorId))
+        // OPTIMIZED: Add backpressure handling for slow subscribers
+        // Fields are projected by the encoders (see SensorProjectionHints), so the readings are passed on as they are
+        return streamMetrics.meteredBuffer(firstMatching(replayThenLive(sensorId, replayCount, since, interval), query, actualLimit),
+                        OVERFLOW_BUFFER_SIZE, BufferOverflowStrategy.DROP_OLDEST)  // Slow consumers skip stale readings
                 .doOnError(error -> log.error("Error in optimized sensor stream for sensorId={}: {}", sensorId, error.getMessage(), error))
                 .onErrorResume(error -> {
                     log.error("Recovering from error in optimized sensor stream: {}", error.getMessage());
@@ -50,20 +123,315 @@ public class SensorStreamService {
     }
 
     public Flux<SensorDataDto> streamMultipleSensors(Integer sensorCount, Integer limit) {
-        log.info("Starting optimized multi-sensor stream with sensorCount={}, limit={}", sensorCount, limit);
+        return streamMultipleSensors(sensorCount, limit, null, null);
+    }
+
+    public Flux<SensorDataDto> streamMultipleSensors(Integer sensorCount, Integer limit, Long since, Long intervalMs) {
+        return streamMultipleSensors(sensorCount, limit, since, intervalMs, SensorReadingQuery.ALL);
+    }
+
+    public Flux<SensorDataDto> streamMultipleSensors(Integer sensorCount, Integer limit, Long since, Long intervalMs,
+                                                     SensorReadingQuery query) {
+        log.atDebug().setMessage("Starting optimized multi-sensor stream")
+                .addKeyValue("sensorCount", sensorCount)
+                .addKeyValue("limit", limit)
+                .addKeyValue("since", since)
+                .addKeyValue("intervalMs", intervalMs)
+                .addKeyValue("query", query)
+                .log();
 
         int count = sensorCount != null && sensorCount > 0 ? sensorCount : 5;
         int totalLimit = limit != null && limit > 0 ? limit : 20;
         int limitPerSensor = Math.max(1, totalLimit / count);
+        long interval = resolveInterval(intervalMs);
 
-        return Flux.range(1, count)
+        Flux<SensorDataDto> stream = Flux.range(1, count)
                 // OPTIMIZED: Use parallel processing with concurrency limit
                 .parallel(PARALLEL_WORKERS)
                 .runOn(Schedulers.parallel())
-                .flatMap(sensorId -> streamSensorData((long) sensorId, limitPerSensor))
+                .flatMap(sensorId -> sensorStream((long) sensorId, limitPerSensor, null, since, interval, query))
                 .sequential()  // Merge back to sequential stream
-                .doOnComplete(() -> log.info("Optimized multi-sensor stream completed"))
-                .doOnCancel(() -> log.warn("Optimized multi-sensor stream cancelled"))
+                .doOnNext(data -> streamMetrics.recordEmitted(1))
                 .doOnError(error -> log.error("Error in optimized multi-sensor stream: {}", error.getMessage()));
+        return streamMetrics.trackActive(StreamLogSummary.summarize(stream, log, "Multi-sensor stream", count), Endpoint.MULTI);
+    }
+
+    /**
+     * Streams readings packed into frames of up to frameSize readings or frameMillis milliseconds,
+     * whichever comes first. Each frame holds readings of one sensor and is encoded and written as one unit,
+     * so encoder and flush overhead is paid per frame rather than per reading.
+     * With sensorId set only that sensor is streamed, otherwise the first sensorCount sensors.
+     * Readings are filtered by the query before framing, and only the selected columns are filled.
+     * A subscriber more than OVERFLOW_BUFFER_SIZE frames behind loses the oldest frames (counted in
+     * sensor.stream.buffer.overflow), as in streamSensorData.
+     */
+    public Flux<SensorDataFrame> streamFrames(Long sensorId, Integer sensorCount, Integer limit, Integer replay,
+                                              Long since, Long intervalMs, Integer frameSize, Long frameMillis,
+                                              SensorReadingQuery query) {
+        log.atDebug().setMessage("Starting framed sensor stream")
+                .addKeyValue("sensorId", sensorId)
+                .addKeyValue("sensorCount", sensorCount)
+                .addKeyValue("limit", limit)
+                .addKeyValue("frameSize", frameSize)
+                .addKeyValue("frameMillis", frameMillis)
+                .addKeyValue("query", query)
+                .log();
+
+        long interval = resolveInterval(intervalMs);
+        int replayCount = replay != null && replay > 0 ? replay : 0;
+        int maxSize = frameSize != null ? frameSize : DEFAULT_FRAME_SIZE;
+        long maxMillis = frameMillis != null ? frameMillis : DEFAULT_FRAME_MILLIS;
+        if (maxSize < 1 || maxSize > MAX_FRAME_SIZE) {
+            throw new IllegalArgumentException("frameSize must be between 1 and " + MAX_FRAME_SIZE);
+        }
+        if (maxMillis < 1 || maxMillis > MAX_FRAME_MILLIS) {
+            throw new IllegalArgumentException("frameMillis must be between 1 and " + MAX_FRAME_MILLIS);
+        }
+
+        Flux<SensorDataFrame> frames;
+        if (sensorId != null) {
+            int actualLimit = limit != null && limit > 0 ? limit : 10;
+            frames = framesOf(firstMatching(replayThenLive(sensorId, replayCount, since, interval), query, actualLimit),
+                    maxSize, maxMillis, query);
+        } else {
+            int count = sensorCount != null && sensorCount > 0 ? sensorCount : 5;
+            int totalLimit = limit != null && limit > 0 ? limit : 20;
+            int limitPerSensor = Math.max(1, totalLimit / count);
+            // Frames are built per sensor before merging, so every frame shares one sensor id
+            frames = Flux.range(1, count)
+                    .flatMap(id -> framesOf(firstMatching(replayThenLive((long) id, replayCount, since, interval), query,
+                            limitPerSensor), maxSize, maxMillis, query), count);
+        }
+
+        Flux<SensorDataFrame> stream = streamMetrics.meteredBuffer(frames, OVERFLOW_BUFFER_SIZE, BufferOverflowStrategy.DROP_OLDEST)
+                .doOnNext(frame -> streamMetrics.recordEmitted(frame.size()))
+                .doOnError(error -> log.error("Error in framed sensor stream: {}", error.getMessage()))
+                .onErrorResume(error -> Flux.empty());
+        Object key = sensorId != null ? sensorId : "sensorCount=" + sensorCount;
+        return streamMetrics.trackActive(StreamLogSummary.summarize(stream, log, "Framed stream", key), Endpoint.FRAMES);
+    }
+
+    /**
+     * Stream for transports that carry reactive-streams demand end to end (RSocket).
+     *
+     * Readings are emitted only as the remote subscriber requests them. The shared live publisher is
+     * decoupled from each subscriber by a bounded buffer that drops the oldest readings, so a slow
+     * subscriber holds at most SUBSCRIBER_BUFFER_SIZE readings and never slows down the others.
+     * Without a limit the stream runs until the subscriber cancels. With a limit and a filter every sensor
+     * is scanned for at most MAX_SCANNED_PER_MATCH * limit readings, as in streamSensorData.
+     */
+    public Flux<SensorDataDto> streamWithDemand(SensorStreamRequest request) {
+        log.atDebug().setMessage("Starting demand-driven sensor stream")
+                .addKeyValue("request", request)
+                .log();
+
+        long interval = resolveInterval(request.getIntervalMs());
+        int replayCount = request.getReplay() != null && request.getReplay() > 0 ? request.getReplay() : 0;
+        SensorReadingQuery query = SensorReadingQuery.parse(request.getFields(), request.getFilter());
+        Integer limit = request.getLimit() != null && request.getLimit() > 0 ? request.getLimit() : null;
+        long scanBudget = limit != null ? scanBudget(query, limit) : Long.MAX_VALUE;
+
+        Flux<SensorDataDto> stream;
+        if (request.getSensorId() != null) {
+            stream = boundedStream(request.getSensorId(), replayCount, request.getSince(), interval, query, scanBudget);
+        } else {
+            int count = request.getSensorCount() != null && request.getSensorCount() > 0 ? request.getSensorCount() : 5;
+            // All sensors of the request are multiplexed into one stream, demand is shared between them
+            stream = Flux.range(1, count)
+                    .flatMap(sensorId -> boundedStream((long) sensorId, replayCount, request.getSince(), interval, query,
+                            scanBudget), count);
+        }
+
+        Flux<SensorDataDto> limited = (limit != null ? stream.take(limit) : stream)
+                .doOnNext(data -> streamMetrics.recordEmitted(1));
+        return streamMetrics.trackActive(StreamLogSummary.summarize(limited, log, "Demand-driven stream", request), Endpoint.RSOCKET);
+    }
+
+    /**
+     * Streams one reading of every sensor fromId..toId (inclusive), all taken at the same timestamp,
+     * in chunks of consecutive sensors ordered by id.
+     *
+     * Chunks are computed in parallel on one rail per core. Each rail prefetches a single chunk and
+     * the ordered merge holds at most one per rail, so memory stays at a few chunks per core for any
+     * range size and the first chunk is sent as soon as it is computed. A slow subscriber pauses
+     * generation through backpressure instead of being buffered for.
+     */
+    public Flux<SensorSnapshotChunk> streamSnapshot(Long fromId, Long toId, Integer chunkSize) {
+        log.atDebug().setMessage("Starting snapshot stream")
+                .addKeyValue("fromId", fromId)
+                .addKeyValue("toId", toId)
+                .addKeyValue("chunkSize", chunkSize)
+                .log();
+
+        long from = fromId != null ? fromId : 1;
+        int size = chunkSize != null ? chunkSize : DEFAULT_SNAPSHOT_CHUNK_SIZE;
+        if (toId == null || from < 1 || toId < from) {
+            throw new IllegalArgumentException("toId is required and must be >= fromId >= 1");
+        }
+        if (toId - from + 1 > MAX_SNAPSHOT_SENSORS) {
+            throw new IllegalArgumentException("snapshot range must not exceed " + MAX_SNAPSHOT_SENSORS + " sensors");
+        }
+        if (size < 1 || size > MAX_SNAPSHOT_CHUNK_SIZE) {
+            throw new IllegalArgumentException("chunkSize must be between 1 and " + MAX_SNAPSHOT_CHUNK_SIZE);
+        }
+        long end = toId + 1;
+        int chunkCount = (int) ((end - from + size - 1) / size);
+
+        Flux<SensorSnapshotChunk> stream = Flux.defer(() -> {
+                    long timestamp = System.currentTimeMillis();
+                    // OPTIMIZED: Parallel rails with prefetch 1 instead of generating the whole fleet into one list
+                    return Flux.range(0, chunkCount)
+                            .parallel(Schedulers.DEFAULT_POOL_SIZE)
+                            .runOn(Schedulers.parallel(), 1)
+                            .map(chunk -> {
+                                long chunkFrom = from + (long) chunk * size;
+                                return sensorDataGenerator.computeSnapshotChunk(chunkFrom, Math.min(chunkFrom + size, end), timestamp);
+                            })
+                            .ordered(Comparator.comparingLong(SensorSnapshotChunk::getFirstSensorId), 1);
+                })
+                .doOnNext(chunk -> streamMetrics.recordEmitted(chunk.size()))
+                .doOnError(error -> log.error("Error in snapshot stream: {}", error.getMessage()));
+        return streamMetrics.trackActive(StreamLogSummary.summarize(stream, log, "Snapshot stream", from + ".." + toId),
+                Endpoint.SNAPSHOT);
+    }
+
+    /**
+     * Streams only readings flagged by the anomaly detector.
+     *
+     * With sensorIds the stream subscribes to the shared live publishers of those sensors (so they are
+     * generated even if nobody else streams them) and passes their anomalies through. Without sensorIds
+     * it follows the fleet-wide anomaly feed: anomalies of every sensor that is currently being generated.
+     * Each subscriber has its own drop-oldest buffer, so a slow alerting consumer never holds up generation.
+     */
+    public Flux<SensorDataDto> streamAnomalies(List<Long> sensorIds, Integer limit, Long intervalMs) {
+        log.atDebug().setMessage("Starting anomaly stream")
+                .addKeyValue("sensorIds", sensorIds)
+                .addKeyValue("limit", limit)
+                .addKeyValue("intervalMs", intervalMs)
+                .log();
+
+        if (sensorIds != null && sensorIds.size() > MAX_ANOMALY_SENSORS) {
+            throw new IllegalArgumentException("at most " + MAX_ANOMALY_SENSORS + " sensorIds per anomaly stream");
+        }
+        long interval = resolveInterval(intervalMs);
+
+        Flux<SensorDataDto> anomalies;
+        if (sensorIds == null || sensorIds.isEmpty()) {
+            anomalies = sensorAnomalyEngine.anomalies();
+        } else {
+            // OPTIMIZED: Shares the live publishers with regular streams, filtering happens once per reading
+            anomalies = Flux.fromIterable(new LinkedHashSet<>(sensorIds))
+                    .flatMap(sensorId -> livePublisher(sensorId, interval), sensorIds.size())
+                    .filter(data -> Boolean.TRUE.equals(data.getAnomaly()));
+        }
+        Flux<SensorDataDto> buffered = streamMetrics.meteredBuffer(anomalies, SUBSCRIBER_BUFFER_SIZE, BufferOverflowStrategy.DROP_OLDEST);
+        Flux<SensorDataDto> stream = (limit != null && limit > 0 ? buffered.take(limit) : buffered)
+                .doOnNext(data -> streamMetrics.recordEmitted(1));
+        Object key = sensorIds == null || sensorIds.isEmpty() ? "all" : sensorIds;
+        return streamMetrics.trackActive(StreamLogSummary.summarize(stream, log, "Anomaly stream", key), Endpoint.ANOMALIES);
+    }
+
+    /**
+     * Number of subscribed sensors that currently have a running publisher
+     */
+    public int getActiveSensorCount() {
+        return sensorPublishers.size();
+    }
+
+    /**
+     * Replays readings from history, then switches to the shared live publisher.
+     * With since set, every buffered reading newer than since is replayed (resume after reconnect),
+     * otherwise the last replayCount readings. Live readings not newer than the last replayed one
+     * (or than since) are skipped to avoid duplicates at the seam.
+     */
+    private Flux<SensorDataDto> replayThenLive(Long sensorId, int replayCount, Long since, long interval) {
+        if (replayCount == 0 && since == null) {
+            return livePublisher(sensorId, interval);
+        }
+        return Flux.defer(() -> {
+            // OPTIMIZED: A resumed stream continues from the history ring instead of starting over
+            List<SensorDataDto> history = since != null
+                    ? sensorDataGenerator.getHistoryRange(sensorId, since + 1, Long.MAX_VALUE)
+                    : sensorDataGenerator.getRecentHistory(sensorId, replayCount);
+            if (history.isEmpty()) {
+                long after = since != null ? since : Long.MIN_VALUE;
+                return livePublisher(sensorId, interval).filter(data -> data.getTimestamp() > after);
+            }
+            long lastReplayed = history.get(history.size() - 1).getTimestamp();
+            return Flux.fromIterable(history)
+                    .concatWith(livePublisher(sensorId, interval).filter(data -> data.getTimestamp() > lastReplayed));
+        });
+    }
+
+    private static Flux<SensorDataFrame> framesOf(Flux<SensorDataDto> readings, int maxSize, long maxMillis,
+                                                  SensorReadingQuery query) {
+        // OPTIMIZED: One frame per network write instead of one element per write
+        return readings
+                .bufferTimeout(maxSize, Duration.ofMillis(maxMillis))
+                .map(frame -> SensorDataFrame.of(frame, query));
+    }
+
+    private Flux<SensorDataDto> boundedStream(Long sensorId, int replayCount, Long since, long interval,
+                                              SensorReadingQuery query, long scanBudget) {
+        return streamMetrics.meteredBuffer(select(replayThenLive(sensorId, replayCount, since, interval).take(scanBudget), query),
+                SUBSCRIBER_BUFFER_SIZE, BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    /**
+     * The first limit readings matching the query. limit counts matches, so a filtered source is also cut
+     * after its scan budget: a rare filter ends the stream with fewer readings instead of holding the shared
+     * publisher and the admission slot open indefinitely
+     */
+    private static Flux<SensorDataDto> firstMatching(Flux<SensorDataDto> readings, SensorReadingQuery query, int limit) {
+        return matching(readings.take(scanBudget(query, limit)), query).take(limit);
+    }
+
+    private static long scanBudget(SensorReadingQuery query, int limit) {
+        return query.hasFilter() ? limit * MAX_SCANNED_PER_MATCH : limit;
+    }
+
+    /**
+     * Readings matching the query, before any per-subscriber buffering
+     */
+    private static Flux<SensorDataDto> matching(Flux<SensorDataDto> readings, SensorReadingQuery query) {
+        // OPTIMIZED: Non-matching readings are dropped before they are buffered, projected or encoded
+        return query.hasFilter() ? readings.filter(query::test) : readings;
+    }
+
+    /**
+     * Readings matching the query with only the selected fields. RSocket encoders get no per-request hints,
+     * so unlike HTTP responses these streams carry projected copies of the readings
+     */
+    private static Flux<SensorDataDto> select(Flux<SensorDataDto> readings, SensorReadingQuery query) {
+        Flux<SensorDataDto> matching = matching(readings, query);
+        return query.selectsAllFields() ? matching : matching.map(query::project);
+    }
+
+    private Flux<SensorDataDto> livePublisher(Long sensorId, long interval) {
+        return sensorPublishers.share(new PublisherKey(sensorId, interval), key -> streamMetrics.meteredBuffer(
+                        Flux.<SensorDataDto>create(sink -> {
+                            // OPTIMIZED: Register on the shared tick engine instead of owning a Flux.interval timer
+                            Disposable registration = sensorTickEngine.schedule(key.sensorId(), Duration.ofMillis(key.intervalMillis()),
+                                    () -> sink.next(sensorDataGenerator.generateSensorData(key.sensorId())));
+                            sink.onDispose(registration);
+                        }),
+                        // The tick driver must never wait, so ticks the publisher cannot take yet are bounded here
+                        OVERFLOW_BUFFER_SIZE, BufferOverflowStrategy.DROP_OLDEST)
+                .doOnSubscribe(subscription -> log.debug("Started shared publisher for {}", key))
+                .doOnCancel(() -> log.debug("Stopped shared publisher for {}", key)));
+    }
+
+    private long resolveInterval(Long intervalMs) {
+        if (intervalMs == null) {
+            return defaultIntervalMillis;
+        }
+        if (intervalMs < sensorTickEngine.getResolutionMillis() || intervalMs > MAX_INTERVAL_MILLIS) {
+            throw new IllegalArgumentException("intervalMs must be between " + sensorTickEngine.getResolutionMillis()
+                    + " and " + MAX_INTERVAL_MILLIS);
+        }
+        return intervalMs;
+    }
+
+    private record PublisherKey(long sensorId, long intervalMillis) {
     }
 }
@@ -0,0 +1,226 @@
+package com.sensordata.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Central tick engine driving all sensor streams.
+ *
+ * Instead of one Flux.interval timer per stream, a fixed number of drivers (one per core by default)
+ * each run a single periodic task over a hashed timer wheel. On every tick a driver runs all tasks
+ * that are due in its current bucket as one batch, so timer overhead does not grow with the
+ * number of open streams.
+ *
+ * Tasks registered with the same key always land on the same driver thread, so all readings
+ * of one sensor are produced by a single thread.
+ */
+@Slf4j
+@Component
+public class SensorTickEngine implements DisposableBean {
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final Scheduler scheduler;
+    private final long resolutionMillis;
+    private final Driver[] drivers;
+
+    @Autowired
+    public SensorTickEngine(
+            @Value("${app.sensor-stream.tick-resolution-ms:10}") long resolutionMillis,
+            @Value("${app.sensor-stream.tick-drivers:0}") int driverCount) {
+        this(Schedulers.newParallel("sensor-tick", effectiveDriverCount(driverCount), true),
+                resolutionMillis, effectiveDriverCount(driverCount));
+    }
+
+    /**
+     * Creates an engine on the given scheduler (e.g. a virtual-time scheduler in benchmarks)
+     */
+    public SensorTickEngine(Scheduler scheduler, long resolutionMillis, int driverCount) {
+        if (resolutionMillis <= 0) {
+            throw new IllegalArgumentException("resolutionMillis must be positive");
+        }
+        this.scheduler = scheduler;
+        this.resolutionMillis = resolutionMillis;
+        this.drivers = new Driver[effectiveDriverCount(driverCount)];
+        for (int i = 0; i < drivers.length; i++) {
+            drivers[i] = new Driver();
+        }
+        log.info("Sensor tick engine started: drivers={}, resolution={}ms, wheelSize={}",
+                drivers.length, resolutionMillis, WHEEL_SIZE);
+    }
+
+    /**
+     * Registers a periodic task. The first run happens one period after registration.
+     *
+     * @param key    affinity key, tasks with equal keys run on the same driver thread
+     * @param period run period, rounded to the engine resolution
+     * @param task   task to run on the driver thread
+     * @return handle that unregisters the task when disposed
+     */
+    public Disposable schedule(long key, Duration period, Runnable task) {
+        long periodTicks = Math.max(1, period.toMillis() / resolutionMillis);
+        Registration registration = new Registration(periodTicks, task);
+        drivers[Math.floorMod(Long.hashCode(key), drivers.length)].register(registration);
+        return registration;
+    }
+
+    /**
+     * Returns tick resolution in milliseconds
+     */
+    public long getResolutionMillis() {
+        return resolutionMillis;
+    }
+
+    /**
+     * Returns number of registered (not yet removed) tasks across all drivers
+     */
+    public int getActiveTaskCount() {
+        int total = 0;
+        for (Driver driver : drivers) {
+            total += driver.activeTasks;
+        }
+        return total;
+    }
+
+    @Override
+    public void destroy() {
+        for (Driver driver : drivers) {
+            driver.stop();
+        }
+        scheduler.dispose();
+    }
+
+    private static int effectiveDriverCount(int driverCount) {
+        return driverCount > 0 ? driverCount : Runtime.getRuntime().availableProcessors();
+    }
+
+    private static final class Registration implements Disposable {
+        private final long periodTicks;
+        private final Runnable task;
+        private long remainingRounds;
+        private volatile boolean disposed;
+
+        private Registration(long periodTicks, Runnable task) {
+            this.periodTicks = periodTicks;
+            this.task = task;
+        }
+
+        @Override
+        public void dispose() {
+            disposed = true;
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+
+    /**
+     * Single-threaded timer wheel. Only the driver's worker touches the buckets;
+     * other threads hand over registrations through the pending queue.
+     */
+    private final class Driver {
+        private final Queue<Registration> pending = new ConcurrentLinkedQueue<>();
+        @SuppressWarnings("unchecked")
+        private final List<Registration>[] buckets = new List[WHEEL_SIZE];
+        private final List<Registration> due = new ArrayList<>();
+        private final Scheduler.Worker worker;
+        private final Disposable ticker;
+        private long currentTick;
+        private volatile int activeTasks;
+
+        private Driver() {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                buckets[i] = new ArrayList<>();
+            }
+            this.worker = scheduler.createWorker();
+            this.ticker = worker.schedulePeriodically(this::tick, resolutionMillis, resolutionMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void register(Registration registration) {
+            pending.offer(registration);
+        }
+
+        private void tick() {
+            currentTick++;
+
+            List<Registration> bucket = buckets[(int) (currentTick & WHEEL_MASK)];
+            int removed = 0;
+            for (int i = bucket.size() - 1; i >= 0; i--) {
+                Registration candidate = bucket.get(i);
+                if (candidate.disposed) {
+                    removeAt(bucket, i);
+                    removed++;
+                } else if (candidate.remainingRounds > 0) {
+                    candidate.remainingRounds--;
+                } else {
+                    removeAt(bucket, i);
+                    due.add(candidate);
+                }
+            }
+
+            // Run everything due on this tick as one batch, then re-arm for the next period
+            for (int i = 0, size = due.size(); i < size; i++) {
+                Registration task = due.get(i);
+                try {
+                    task.task.run();
+                } catch (RuntimeException e) {
+                    log.error("Tick task failed: {}", e.getMessage(), e);
+                }
+                if (task.disposed) {
+                    removed++;
+                } else {
+                    insert(task);
+                }
+            }
+            due.clear();
+
+            // New tasks join only after the current bucket is done: a period of a whole number of wheel turns
+            // lands in this very bucket and must wait those turns instead of firing right away
+            Registration registration;
+            while ((registration = pending.poll()) != null) {
+                if (!registration.disposed) {
+                    activeTasks++;
+                    insert(registration);
+                }
+            }
+
+            if (removed > 0) {
+                activeTasks -= removed;
+            }
+        }
+
+        private void insert(Registration registration) {
+            long ticksAhead = registration.periodTicks;
+            registration.remainingRounds = (ticksAhead - 1) / WHEEL_SIZE;
+            buckets[(int) ((currentTick + ticksAhead) & WHEEL_MASK)].add(registration);
+        }
+
+        private void removeAt(List<Registration> bucket, int index) {
+            int last = bucket.size() - 1;
+            if (index != last) {
+                bucket.set(index, bucket.get(last));
+            }
+            bucket.remove(last);
+        }
+
+        private void stop() {
+            ticker.dispose();
+            worker.dispose();
+        }
+    }
+}
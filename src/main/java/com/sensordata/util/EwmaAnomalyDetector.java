@@ -0,0 +1,90 @@
+package com.sensordata.util;
+
+/**
+ * Streaming z-score anomaly detector for temperature, humidity and pressure of one sensor.
+ *
+ * Keeps an exponentially weighted mean and variance per metric (48 bytes of state, O(1) per reading).
+ * A reading is anomalous when any metric deviates from its mean by more than zThreshold standard
+ * deviations. The first warmup readings only train the detector. Anomalous readings are folded into
+ * the baseline clamped to zThreshold standard deviations: a single spike barely moves it, while a
+ * lasting level shift is still learned after a while instead of being flagged forever.
+ *
+ * Решает проблему: фиксированный порог вокруг захардкоженных базовых значений, который никогда не срабатывает
+ */
+public class EwmaAnomalyDetector {
+    private static final int METRICS = 3;
+    // Below this variance a metric is treated as constant and cannot produce a z-score
+    private static final double MIN_VARIANCE = 1e-9;
+
+    private final double alpha;
+    private final double zThreshold;
+    private final int warmup;
+
+    private final double[] mean = new double[METRICS];
+    private final double[] variance = new double[METRICS];
+    private long count;
+
+    /**
+     * @param alpha      weight of a new reading in the moving mean and variance, 0 < alpha < 1
+     * @param zThreshold deviation in standard deviations above which a reading is anomalous
+     * @param warmup     readings used only for training before the first verdict
+     */
+    public EwmaAnomalyDetector(double alpha, double zThreshold, int warmup) {
+        if (alpha <= 0 || alpha >= 1 || zThreshold <= 0 || warmup < 1) {
+            throw new IllegalArgumentException("alpha must be in (0, 1), zThreshold and warmup must be positive");
+        }
+        this.alpha = alpha;
+        this.zThreshold = zThreshold;
+        this.warmup = warmup;
+    }
+
+    /**
+     * Scores a reading and updates the baseline; returns true if the reading is anomalous
+     */
+    public synchronized boolean update(double temperature, double humidity, double pressure) {
+        if (count == 0) {
+            mean[0] = temperature;
+            mean[1] = humidity;
+            mean[2] = pressure;
+            count = 1;
+            return false;
+        }
+        boolean anomaly = count >= warmup
+                && (isOutlier(0, temperature) || isOutlier(1, humidity) || isOutlier(2, pressure));
+        train(0, anomaly ? clamp(0, temperature) : temperature);
+        train(1, anomaly ? clamp(1, humidity) : humidity);
+        train(2, anomaly ? clamp(2, pressure) : pressure);
+        count++;
+        return anomaly;
+    }
+
+    /**
+     * Current z-score of a value against the baseline of one metric, 0 while the metric is constant
+     */
+    public synchronized double zScore(SensorStatsAccumulator.Metric metric, double value) {
+        int index = metric.ordinal();
+        return variance[index] < MIN_VARIANCE ? 0 : Math.abs(value - mean[index]) / Math.sqrt(variance[index]);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    private boolean isOutlier(int index, double value) {
+        double deviation = value - mean[index];
+        return variance[index] >= MIN_VARIANCE && deviation * deviation > zThreshold * zThreshold * variance[index];
+    }
+
+    private double clamp(int index, double value) {
+        double limit = zThreshold * Math.sqrt(variance[index]);
+        return mean[index] + Math.max(-limit, Math.min(limit, value - mean[index]));
+    }
+
+    private void train(int index, double value) {
+        // West / Finch incremental EWMA variance
+        double deviation = value - mean[index];
+        double increment = alpha * deviation;
+        mean[index] += increment;
+        variance[index] = (1 - alpha) * (variance[index] + deviation * increment);
+    }
+}
@@ -0,0 +1,39 @@
+package com.sensordata.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 1-in-N log sampling per key (route, sensor id).
+ *
+ * Keys are hashed into a fixed array of counters, so sampling never allocates and memory does not
+ * grow with the number of keys; keys that share a slot simply share their sampling sequence.
+ * The first occurrence of every key is always sampled.
+ *
+ * Решает проблему: логирование каждого запроса и каждого элемента потока
+ */
+public class LogSampler {
+    private static final int SLOTS = 1024;
+
+    private final int rate;
+    private final AtomicLongArray counters = new AtomicLongArray(SLOTS);
+
+    /**
+     * @param rate log one of every rate events per key; 1 logs everything, 0 or less logs nothing
+     */
+    public LogSampler(int rate) {
+        this.rate = rate;
+    }
+
+    public boolean sample(long key) {
+        if (rate <= 1) {
+            return rate == 1;
+        }
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 54);
+        return counters.getAndIncrement(slot) % rate == 0;
+    }
+
+    public boolean sample(String key) {
+        // String.hashCode() is cached by the string, no allocation
+        return sample(key.hashCode());
+    }
+}
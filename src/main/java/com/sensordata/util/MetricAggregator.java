@@ -0,0 +1,142 @@
+package com.sensordata.util;
+
+/**
+ * Efficient aggregator for statistics of a single metric (temperature, humidity, pressure).
+ * Stores count, sum, min, max and Welford mean/M2 instead of List<Double> with all historical values.
+ * Not thread-safe on its own; see SensorStatsAccumulator for concurrent updates.
+ *
+ * Решает проблему: Полная история для статистики (List<Double> вместо агрегированных метрик)
+ */
+public class MetricAggregator {
+    private double sum;
+    private double min;
+    private double max;
+    private long count;
+    private double mean;
+    private double m2;
+
+    /**
+     * Creates aggregator with initial value
+     */
+    public MetricAggregator(double initialValue) {
+        this();
+        add(initialValue);
+    }
+
+    /**
+     * Creates empty aggregator
+     */
+    public MetricAggregator() {
+        reset();
+    }
+
+    /**
+     * Creates aggregator from already accumulated moments
+     */
+    static MetricAggregator of(long count, double sum, double mean, double m2, double min, double max) {
+        MetricAggregator aggregator = new MetricAggregator();
+        aggregator.count = count;
+        aggregator.sum = sum;
+        aggregator.mean = mean;
+        aggregator.m2 = m2;
+        aggregator.min = min;
+        aggregator.max = max;
+        return aggregator;
+    }
+
+    /**
+     * Adds a value to aggregation
+     */
+    public void add(double value) {
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        count++;
+        // Welford's online update
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    /**
+     * Returns average value
+     */
+    public double getAverage() {
+        return count == 0 ? 0 : mean;
+    }
+
+    /**
+     * Returns minimum value
+     */
+    public double getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * Returns maximum value
+     */
+    public double getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    /**
+     * Returns sum of all values
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns count of measurements
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns sample variance
+     */
+    public double getVariance() {
+        return count < 2 ? 0 : m2 / (count - 1);
+    }
+
+    /**
+     * Returns sample standard deviation
+     */
+    public double getStdDev() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Resets all statistics
+     */
+    public void reset() {
+        sum = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+        count = 0;
+        mean = 0;
+        m2 = 0;
+    }
+
+    /**
+     * Merges another aggregator into this one (Chan et al. parallel variance)
+     */
+    public void merge(MetricAggregator other) {
+        if (other.count == 0) return;
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        count = total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MetricAggregator{avg=%.2f, min=%.2f, max=%.2f, stdDev=%.2f, count=%d}",
+                getAverage(), getMin(), getMax(), getStdDev(), count);
+    }
+}
@@ -0,0 +1,158 @@
+package com.sensordata.util;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-memory, mergeable quantile sketch over a known value range.
+ * Values are counted in equal-width buckets (values outside the range land in the edge buckets),
+ * exact min/max are tracked separately and quantiles are interpolated inside a bucket.
+ * Updates are allocation-free and thread-safe; memory is 4 bytes per bucket.
+ *
+ * Решает проблему: перцентили без хранения сырой истории показаний
+ */
+public class QuantileSketch {
+    private final double lowest;
+    private final double highest;
+    private final double bucketWidth;
+    private final AtomicIntegerArray counts;
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong minBits = new AtomicLong(Double.doubleToRawLongBits(Double.POSITIVE_INFINITY));
+    private final AtomicLong maxBits = new AtomicLong(Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY));
+
+    /**
+     * Creates a sketch for values in [lowest, highest) split into bucketCount buckets
+     */
+    public QuantileSketch(double lowest, double highest, int bucketCount) {
+        if (!(highest > lowest) || bucketCount <= 0) {
+            throw new IllegalArgumentException("highest must be greater than lowest and bucketCount positive");
+        }
+        this.lowest = lowest;
+        this.highest = highest;
+        this.bucketWidth = (highest - lowest) / bucketCount;
+        this.counts = new AtomicIntegerArray(bucketCount);
+    }
+
+    /**
+     * Records a value
+     */
+    public void add(double value) {
+        int bucket = (int) ((value - lowest) / bucketWidth);
+        if (bucket < 0) {
+            bucket = 0;
+        } else if (bucket >= counts.length()) {
+            bucket = counts.length() - 1;
+        }
+        counts.incrementAndGet(bucket);
+        total.incrementAndGet();
+        updateMin(value);
+        updateMax(value);
+    }
+
+    /**
+     * Returns number of recorded values
+     */
+    public long getCount() {
+        return total.get();
+    }
+
+    /**
+     * Creates an empty merge target with the same bucket layout
+     */
+    public Merged newMerged() {
+        return new Merged(lowest, highest, counts.length());
+    }
+
+    /**
+     * Adds this sketch's buckets into a merge target with the same layout
+     */
+    public void mergeInto(Merged target) {
+        if (target.counts.length != counts.length() || target.lowest != lowest || target.highest != highest) {
+            throw new IllegalArgumentException("Cannot merge sketches with different bucket layouts");
+        }
+        for (int i = 0; i < target.counts.length; i++) {
+            target.counts[i] += counts.get(i);
+        }
+        target.total += total.get();
+        target.min = Math.min(target.min, Double.longBitsToDouble(minBits.get()));
+        target.max = Math.max(target.max, Double.longBitsToDouble(maxBits.get()));
+    }
+
+    /**
+     * Returns the estimated q-quantile (0..1) of this sketch
+     */
+    public double quantile(double q) {
+        Merged merged = newMerged();
+        mergeInto(merged);
+        return merged.quantile(q);
+    }
+
+    private void updateMin(double value) {
+        long current;
+        while (value < Double.longBitsToDouble(current = minBits.get())) {
+            if (minBits.compareAndSet(current, Double.doubleToRawLongBits(value))) {
+                return;
+            }
+        }
+    }
+
+    private void updateMax(double value) {
+        long current;
+        while (value > Double.longBitsToDouble(current = maxBits.get())) {
+            if (maxBits.compareAndSet(current, Double.doubleToRawLongBits(value))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Single-threaded merge result of one or more sketches with 64-bit bucket counts
+     */
+    public static class Merged {
+        private final double lowest;
+        private final double highest;
+        private final double bucketWidth;
+        private final long[] counts;
+        private long total;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        private Merged(double lowest, double highest, int bucketCount) {
+            this.lowest = lowest;
+            this.highest = highest;
+            this.bucketWidth = (highest - lowest) / bucketCount;
+            this.counts = new long[bucketCount];
+        }
+
+        /**
+         * Returns number of merged values
+         */
+        public long getCount() {
+            return total;
+        }
+
+        /**
+         * Returns the estimated q-quantile (0..1), or 0 if empty
+         */
+        public double quantile(double q) {
+            if (total == 0) {
+                return 0;
+            }
+            double rank = Math.max(0, Math.min(1, q)) * total;
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                long count = counts[i];
+                if (count > 0 && cumulative + count >= rank) {
+                    // Edge buckets also hold out-of-range values, so they stretch to the exact min / max
+                    double from = i == 0 ? Math.min(min, lowest) : lowest + bucketWidth * i;
+                    double to = i == counts.length - 1 ? Math.max(max, highest) : lowest + bucketWidth * (i + 1);
+                    double fraction = (rank - cumulative) / count;
+                    double estimate = from + (to - from) * fraction;
+                    return Math.max(min, Math.min(max, estimate));
+                }
+                cumulative += count;
+            }
+            return max;
+        }
+    }
+}
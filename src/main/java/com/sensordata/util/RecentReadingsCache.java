@@ -0,0 +1,305 @@
+package com.sensordata.util;
+
+import com.sensordata.dto.SensorDataDto;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Most recent readings per sensor, bounded by a byte budget.
+ *
+ * Entries are created on a query miss and then filled by whatever upstream stream carries the sensor.
+ * A query is served only if every returned reading is younger than maxAge. Entries not read for idleTtl expire.
+ *
+ * Admission follows W-TinyLFU, per segment: a new sensor enters a small LRU window (1% of entries).
+ * When the window overflows, its least recently used entry competes with the least recently used entry
+ * of the probation segment of the main area, and the one with the higher sketched query frequency stays.
+ * A probation entry that is hit again moves to the protected segment (80% of the main area).
+ * One-off queries for rarely used sensors therefore cannot flush popular ones.
+ *
+ * Оптимизации:
+ * 1. Три LRU-очереди (LinkedHashMap в порядке доступа) - жертва вытеснения берётся с головы за O(1)
+ * 2. Сегменты по sensorId со своими блокировками - промахи разных датчиков не сериализуются
+ * 3. Попадание читает запись из ConcurrentHashMap без блокировки сегмента; порядок LRU обновляется
+ *    только если блокировка свободна (как read buffer в Caffeine - потеря обновления допустима)
+ *
+ * Решает проблему: каждый запрос последних показаний шёл на сервер и ждал новых тиков
+ */
+public class RecentReadingsCache {
+    // Boxed SensorDataDto with its Long/Double fields, plus the slot reference and its write time
+    private static final int READING_BYTES = 160;
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    private static final int MIN_ENTRIES_PER_SEGMENT = 16;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Segment[] segments;
+    private final FrequencySketch sketch;
+    private final int readingsPerSensor;
+    private final long maxAgeNanos;
+    private final long idleTtlNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxBytes          memory budget for cached readings
+     * @param readingsPerSensor readings kept per sensor (largest limit served from cache)
+     * @param maxAge            readings older than this are not served
+     * @param idleTtl           entries not read for this long expire
+     */
+    public RecentReadingsCache(long maxBytes, int readingsPerSensor, Duration maxAge, Duration idleTtl) {
+        if (readingsPerSensor <= 0) {
+            throw new IllegalArgumentException("readingsPerSensor must be positive");
+        }
+        long entryBytes = ENTRY_OVERHEAD_BYTES + (long) readingsPerSensor * READING_BYTES;
+        if (maxBytes < entryBytes) {
+            throw new IllegalArgumentException("maxBytes must hold at least one sensor (" + entryBytes + " bytes)");
+        }
+        int maxEntries = (int) Math.min(Integer.MAX_VALUE, maxBytes / entryBytes);
+        int segmentCount = Integer.highestOneBit(Math.max(1,
+                Math.min(Runtime.getRuntime().availableProcessors() * 4, maxEntries / MIN_ENTRIES_PER_SEGMENT)));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // The first segments take the remainder, so the capacities add up to maxEntries
+            segments[i] = new Segment(maxEntries / segmentCount + (i < maxEntries % segmentCount ? 1 : 0));
+        }
+        this.readingsPerSensor = readingsPerSensor;
+        this.maxAgeNanos = maxAge.toNanos();
+        this.idleTtlNanos = idleTtl.toNanos();
+        this.sketch = new FrequencySketch(maxEntries);
+    }
+
+    /**
+     * Returns the last {@code limit} readings of the sensor, oldest first, or null on a miss.
+     * A miss reserves an entry for the sensor (if admitted), so the caller's upstream fills it.
+     */
+    public List<SensorDataDto> getRecent(long sensorId, int limit) {
+        sketch.increment(sensorId);
+        long now = System.nanoTime();
+        Segment segment = segmentFor(sensorId);
+        Entry entry = entries.get(sensorId);
+        if (entry == null) {
+            segment.admit(sensorId, now);
+        } else if (now - entry.lastAccessNanos > idleTtlNanos) {
+            // The idle entry may hold readings of a stream that has ended; start over with a fresh one
+            segment.remove(entry);
+            segment.admit(sensorId, now);
+        } else {
+            entry.lastAccessNanos = now;
+            segment.onHit(entry);
+            List<SensorDataDto> readings = limit <= readingsPerSensor ? entry.lastFresh(limit, now - maxAgeNanos) : null;
+            if (readings != null) {
+                hits.increment();
+                return readings;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Stores a reading if its sensor has an entry
+     */
+    public void record(SensorDataDto data) {
+        Entry entry = entries.get(data.getSensorId());
+        if (entry != null) {
+            entry.add(data, System.nanoTime());
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long estimatedBytes() {
+        return (long) entries.size() * (ENTRY_OVERHEAD_BYTES + (long) readingsPerSensor * READING_BYTES);
+    }
+
+    private Segment segmentFor(long sensorId) {
+        int h = Long.hashCode(sensorId * 0x9E3779B97F4A7C15L);
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    private enum Region {
+        WINDOW, PROBATION, PROTECTED
+    }
+
+    /**
+     * W-TinyLFU structure of a slice of the sensors; all fields are guarded by lock
+     */
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        // Access-ordered: iteration starts at the least recently used entry
+        private final LinkedHashMap<Long, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<Long, Entry> probation = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<Long, Entry> protectedEntries = new LinkedHashMap<>(16, 0.75f, true);
+        private final int windowMax;
+        private final int mainMax;
+        private final int protectedMax;
+
+        private Segment(int capacity) {
+            this.windowMax = Math.max(1, capacity / 100);
+            this.mainMax = Math.max(0, capacity - windowMax);
+            this.protectedMax = mainMax * 8 / 10;
+        }
+
+        private void onHit(Entry entry) {
+            // Recency is best effort: a hit never waits for a miss that holds the lock
+            if (!lock.tryLock()) {
+                return;
+            }
+            try {
+                switch (entry.region) {
+                    case WINDOW -> window.get(entry.sensorId);
+                    case PROTECTED -> protectedEntries.get(entry.sensorId);
+                    case PROBATION -> {
+                        if (probation.remove(entry.sensorId) != null) {
+                            entry.region = Region.PROTECTED;
+                            protectedEntries.put(entry.sensorId, entry);
+                            if (protectedEntries.size() > protectedMax) {
+                                Entry demoted = pollEldest(protectedEntries);
+                                demoted.region = Region.PROBATION;
+                                probation.put(demoted.sensorId, demoted);
+                            }
+                        }
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void admit(long sensorId, long now) {
+            lock.lock();
+            try {
+                if (entries.containsKey(sensorId)) {
+                    return;
+                }
+                expireIdle(window, now);
+                expireIdle(probation, now);
+                expireIdle(protectedEntries, now);
+
+                Entry entry = new Entry(sensorId, readingsPerSensor);
+                entry.lastAccessNanos = now;
+                window.put(sensorId, entry);
+                entries.put(sensorId, entry);
+                if (window.size() > windowMax) {
+                    promote(pollEldest(window));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * A window entry moves to probation, competing with its eldest entry once the main area is full
+         */
+        private void promote(Entry candidate) {
+            if (probation.size() + protectedEntries.size() < mainMax) {
+                candidate.region = Region.PROBATION;
+                probation.put(candidate.sensorId, candidate);
+                return;
+            }
+            LinkedHashMap<Long, Entry> victims = probation.isEmpty() ? protectedEntries : probation;
+            Entry victim = victims.isEmpty() ? null : victims.values().iterator().next();
+            if (victim != null && sketch.frequency(candidate.sensorId) > sketch.frequency(victim.sensorId)) {
+                victims.remove(victim.sensorId);
+                entries.remove(victim.sensorId, victim);
+                candidate.region = Region.PROBATION;
+                probation.put(candidate.sensorId, candidate);
+            } else {
+                entries.remove(candidate.sensorId, candidate);
+            }
+        }
+
+        private void remove(Entry entry) {
+            lock.lock();
+            try {
+                if (entries.remove(entry.sensorId, entry)) {
+                    regionOf(entry).remove(entry.sensorId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void expireIdle(LinkedHashMap<Long, Entry> region, long now) {
+            // LRU order: once the eldest entry is not idle, none of the others are
+            for (Iterator<Entry> it = region.values().iterator(); it.hasNext(); ) {
+                Entry entry = it.next();
+                if (now - entry.lastAccessNanos <= idleTtlNanos) {
+                    return;
+                }
+                it.remove();
+                entries.remove(entry.sensorId, entry);
+            }
+        }
+
+        private LinkedHashMap<Long, Entry> regionOf(Entry entry) {
+            return switch (entry.region) {
+                case WINDOW -> window;
+                case PROBATION -> probation;
+                case PROTECTED -> protectedEntries;
+            };
+        }
+
+        private static Entry pollEldest(LinkedHashMap<Long, Entry> region) {
+            Iterator<Entry> it = region.values().iterator();
+            Entry eldest = it.next();
+            it.remove();
+            return eldest;
+        }
+    }
+
+    private static final class Entry {
+        private final long sensorId;
+        private final SensorDataDto[] readings;
+        private final long[] writeNanos;
+        private int next;
+        private int size;
+        private volatile long lastAccessNanos;
+        // Guarded by the lock of the entry's segment
+        private Region region = Region.WINDOW;
+
+        private Entry(long sensorId, int capacity) {
+            this.sensorId = sensorId;
+            this.readings = new SensorDataDto[capacity];
+            this.writeNanos = new long[capacity];
+        }
+
+        private synchronized void add(SensorDataDto data, long now) {
+            readings[next] = data;
+            writeNanos[next] = now;
+            next = (next + 1) % readings.length;
+            size = Math.min(size + 1, readings.length);
+        }
+
+        /**
+         * The last count readings, or null unless there are that many and even the oldest of them is fresh
+         */
+        private synchronized List<SensorDataDto> lastFresh(int count, long freshSince) {
+            if (size < count || writeNanos[(next - count + readings.length) % readings.length] < freshSince) {
+                return null;
+            }
+            List<SensorDataDto> result = new ArrayList<>(count);
+            for (int i = count; i > 0; i--) {
+                result.add(readings[(next - i + readings.length) % readings.length]);
+            }
+            return result;
+        }
+    }
+}
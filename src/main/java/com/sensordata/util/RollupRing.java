@@ -0,0 +1,213 @@
+package com.sensordata.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Incremental tumbling-window rollup of one sensor at a fixed resolution.
+ * Window aggregates live in preallocated slots of a ring (one slot per window), so recording
+ * a reading is O(1) and allocation-free. Hopping windows are built at query time by merging
+ * consecutive tumbling panes. The ring has one slot more than the windows it keeps, so the open
+ * window never recycles the slot of the oldest closed one.
+ *
+ * Решает проблему: агрегаты "за последнюю минуту" считаются на стороне потребителя по сырым данным
+ */
+public class RollupRing {
+    public static final int TEMPERATURE = 0;
+    public static final int HUMIDITY = 1;
+    public static final int PRESSURE = 2;
+    private static final int METRICS = 3;
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final long resolutionMillis;
+    private final int slots;
+    // slots closed windows plus the open one
+    private final int ringSize;
+    private final long[] windowStarts;
+    private final long[] counts;
+    private final int[] anomalies;
+    private final double[] sums;
+    private final double[] mins;
+    private final double[] maxs;
+
+    /**
+     * Creates a ring keeping the last {@code slots} windows of {@code resolutionMillis} each
+     */
+    public RollupRing(long resolutionMillis, int slots) {
+        if (resolutionMillis <= 0 || slots <= 0) {
+            throw new IllegalArgumentException("resolutionMillis and slots must be positive");
+        }
+        this.resolutionMillis = resolutionMillis;
+        this.slots = slots;
+        this.ringSize = slots + 1;
+        this.windowStarts = new long[ringSize];
+        this.counts = new long[ringSize];
+        this.anomalies = new int[ringSize];
+        this.sums = new double[ringSize * METRICS];
+        this.mins = new double[ringSize * METRICS];
+        this.maxs = new double[ringSize * METRICS];
+        Arrays.fill(windowStarts, EMPTY);
+    }
+
+    /**
+     * Adds a reading to the window containing its timestamp
+     */
+    public synchronized void add(long timestamp, double temperature, double humidity, double pressure, boolean anomaly) {
+        long windowStart = timestamp - Math.floorMod(timestamp, resolutionMillis);
+        int slot = slotOf(windowStart);
+        if (windowStarts[slot] != windowStart) {
+            if (windowStarts[slot] != EMPTY && windowStart < windowStarts[slot]) {
+                // Late reading for a window that has already been recycled
+                return;
+            }
+            resetSlot(slot, windowStart);
+        }
+        counts[slot]++;
+        if (anomaly) {
+            anomalies[slot]++;
+        }
+        int base = slot * METRICS;
+        accumulate(base + TEMPERATURE, temperature);
+        accumulate(base + HUMIDITY, humidity);
+        accumulate(base + PRESSURE, pressure);
+    }
+
+    /**
+     * Returns window resolution in milliseconds
+     */
+    public long getResolutionMillis() {
+        return resolutionMillis;
+    }
+
+    /**
+     * Returns number of closed windows kept
+     */
+    public int getSlots() {
+        return slots;
+    }
+
+    /**
+     * Returns closed, non-empty windows of {@code panes} consecutive slots hopping by one slot.
+     * panes = 1 gives plain tumbling windows.
+     *
+     * @param now   current time; the window containing it is still open
+     * @param panes number of slots per window (1..slots)
+     * @param from  only windows starting at or after this timestamp
+     * @param limit maximum number of most recent windows to consider
+     * @return windows, oldest first
+     */
+    public synchronized List<Window> closedWindows(long now, int panes, long from, int limit) {
+        if (panes < 1 || panes > slots) {
+            throw new IllegalArgumentException("panes must be between 1 and " + slots);
+        }
+        long span = (panes - 1) * resolutionMillis;
+        long lastClosedPane = now - Math.floorMod(now, resolutionMillis) - resolutionMillis;
+        long oldestPane = lastClosedPane - (slots - 1) * resolutionMillis;
+        long fromPane = from - Math.floorMod(from, resolutionMillis);
+        if (fromPane < from) {
+            fromPane += resolutionMillis;
+        }
+
+        long firstEnd = Math.max(oldestPane, fromPane) + span;
+        firstEnd = Math.max(firstEnd, lastClosedPane - (Math.max(1, limit) - 1L) * resolutionMillis);
+
+        List<Window> result = new ArrayList<>();
+        for (long lastPane = firstEnd; lastPane <= lastClosedPane; lastPane += resolutionMillis) {
+            Window window = new Window(lastPane - span, lastPane + resolutionMillis);
+            for (long pane = lastPane - span; pane <= lastPane; pane += resolutionMillis) {
+                int slot = slotOf(pane);
+                if (windowStarts[slot] == pane) {
+                    window.merge(this, slot);
+                }
+            }
+            if (window.count > 0) {
+                result.add(window);
+            }
+        }
+        return result;
+    }
+
+    private int slotOf(long windowStart) {
+        return (int) Math.floorMod(Math.floorDiv(windowStart, resolutionMillis), (long) ringSize);
+    }
+
+    private void resetSlot(int slot, long windowStart) {
+        windowStarts[slot] = windowStart;
+        counts[slot] = 0;
+        anomalies[slot] = 0;
+        int base = slot * METRICS;
+        for (int i = base; i < base + METRICS; i++) {
+            sums[i] = 0;
+            mins[i] = Double.POSITIVE_INFINITY;
+            maxs[i] = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    private void accumulate(int index, double value) {
+        sums[index] += value;
+        if (value < mins[index]) {
+            mins[index] = value;
+        }
+        if (value > maxs[index]) {
+            maxs[index] = value;
+        }
+    }
+
+    /**
+     * Aggregate of one closed window
+     */
+    public static class Window {
+        private final long start;
+        private final long end;
+        private long count;
+        private int anomalies;
+        private final double[] sums = new double[METRICS];
+        private final double[] mins = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        private final double[] maxs = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+        private Window(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        private void merge(RollupRing ring, int slot) {
+            count += ring.counts[slot];
+            anomalies += ring.anomalies[slot];
+            int base = slot * METRICS;
+            for (int metric = 0; metric < METRICS; metric++) {
+                sums[metric] += ring.sums[base + metric];
+                mins[metric] = Math.min(mins[metric], ring.mins[base + metric]);
+                maxs[metric] = Math.max(maxs[metric], ring.maxs[base + metric]);
+            }
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public int getAnomalies() {
+            return anomalies;
+        }
+
+        public double getAverage(int metric) {
+            return count == 0 ? 0 : sums[metric] / count;
+        }
+
+        public double getMin(int metric) {
+            return count == 0 ? 0 : mins[metric];
+        }
+
+        public double getMax(int metric) {
+            return count == 0 ? 0 : maxs[metric];
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.sensordata.util;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Bounded history of sensor readings stored as primitive columns (struct-of-arrays).
+ * One reading costs about 40 bytes (5 longs/doubles plus one bit) instead of a boxed DTO.
+ *
+ * Writes are serialized, reads are lock-free: a reader snapshots the write sequence,
+ * copies the slot into locals and re-checks the sequence, discarding slots that were
+ * overwritten while being read (seqlock style). The writer fences the published sequence
+ * before the stores into a reused slot, and readers fence the slot loads before the re-check. The ring is always in time order,
+ * so no sorting is needed on read.
+ *
+ * Решает проблему: SlidingWindow с boxed DTO, копированием deque под локом и O(n) get(index)
+ */
+public class SensorHistoryRing {
+    private final int capacity;
+    // One spare slot so that the oldest readable slot is never the one being written
+    private final int slots;
+    private final long[] timestamps;
+    private final double[] temperatures;
+    private final double[] humidities;
+    private final double[] pressures;
+    private final double[] values;
+    private final long[] anomalies;
+    private final Object writeLock = new Object();
+
+    // Total number of readings ever written; slot of sequence s is s % slots
+    private volatile long writeSequence;
+    // Sequences below this one were cleared
+    private volatile long clearedSequence;
+
+    /**
+     * Visitor receiving readings without allocating intermediate objects
+     */
+    @FunctionalInterface
+    public interface ReadingVisitor {
+        void visit(long timestamp, double temperature, double humidity, double pressure, double value, boolean anomaly);
+    }
+
+    /**
+     * Creates a ring with specified max capacity
+     * @param capacity maximum number of readings to keep
+     */
+    public SensorHistoryRing(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.slots = capacity + 1;
+        this.timestamps = new long[slots];
+        this.temperatures = new double[slots];
+        this.humidities = new double[slots];
+        this.pressures = new double[slots];
+        this.values = new double[slots];
+        this.anomalies = new long[(slots + 63) >>> 6];
+    }
+
+    /**
+     * Appends a reading, overwriting the oldest one when full
+     */
+    public void add(long timestamp, double temperature, double humidity, double pressure, double value, boolean anomaly) {
+        synchronized (writeLock) {
+            long sequence = writeSequence;
+            int slot = slot(sequence);
+            // The previous sequence store must be visible before any store to the reused slot: a volatile store
+            // only orders the stores before it, so without the fence a reader could see new slot data
+            // and still validate it against the old sequence
+            VarHandle.storeStoreFence();
+            timestamps[slot] = timestamp;
+            temperatures[slot] = temperature;
+            humidities[slot] = humidity;
+            pressures[slot] = pressure;
+            values[slot] = value;
+            if (anomaly) {
+                anomalies[slot >>> 6] |= 1L << slot;
+            } else {
+                anomalies[slot >>> 6] &= ~(1L << slot);
+            }
+            // Volatile store publishes the slot to readers
+            writeSequence = sequence + 1;
+        }
+    }
+
+    /**
+     * Returns number of readings currently held
+     */
+    public int size() {
+        long end = writeSequence;
+        return (int) (end - firstSequence(end));
+    }
+
+    /**
+     * Returns max capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns approximate retained size in bytes
+     */
+    public long estimatedBytes() {
+        return slots * 40L + anomalies.length * 8L + 128;
+    }
+
+    /**
+     * Returns timestamp of the oldest retained reading, or -1 if empty
+     */
+    public long oldestTimestamp() {
+        while (true) {
+            long end = writeSequence;
+            long first = firstSequence(end);
+            if (first >= end) {
+                return -1;
+            }
+            long timestamp = timestamps[slot(first)];
+            VarHandle.acquireFence();
+            if (isValid(first)) {
+                return timestamp;
+            }
+        }
+    }
+
+    /**
+     * Returns timestamp of the newest retained reading, or -1 if empty
+     */
+    public long newestTimestamp() {
+        while (true) {
+            long end = writeSequence;
+            if (firstSequence(end) >= end) {
+                return -1;
+            }
+            long timestamp = timestamps[slot(end - 1)];
+            VarHandle.acquireFence();
+            if (isValid(end - 1)) {
+                return timestamp;
+            }
+        }
+    }
+
+    /**
+     * Visits the reading at index (0 = oldest, size-1 = newest) in O(1).
+     *
+     * @return false if the index is out of range or the slot was overwritten while reading
+     */
+    public boolean get(int index, ReadingVisitor visitor) {
+        long end = writeSequence;
+        long first = firstSequence(end);
+        if (index < 0 || index >= end - first) {
+            return false;
+        }
+        return visit(first + index, visitor);
+    }
+
+    /**
+     * Visits all retained readings, oldest first
+     * @return number of readings visited
+     */
+    public int forEach(ReadingVisitor visitor) {
+        return forEachLast(capacity, visitor);
+    }
+
+    /**
+     * Visits up to {@code count} most recent readings, oldest first
+     * @return number of readings visited
+     */
+    public int forEachLast(int count, ReadingVisitor visitor) {
+        long end = writeSequence;
+        long start = Math.max(firstSequence(end), end - Math.max(0, count));
+        int visited = 0;
+        for (long sequence = start; sequence < end; sequence++) {
+            if (visit(sequence, visitor)) {
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Visits readings with {@code from <= timestamp < to}, oldest first
+     * @return number of readings visited
+     */
+    public int forEachInRange(long from, long to, ReadingVisitor visitor) {
+        long end = writeSequence;
+        long sequence = firstSequence(end);
+        int visited = 0;
+        // Binary search is not worth it for the small rings used per sensor; skip older slots linearly
+        for (; sequence < end; sequence++) {
+            if (timestamps[slot(sequence)] >= from) {
+                break;
+            }
+        }
+        for (; sequence < end; sequence++) {
+            if (timestamps[slot(sequence)] >= to) {
+                break;
+            }
+            if (visit(sequence, visitor)) {
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Clears all readings
+     */
+    public void clear() {
+        synchronized (writeLock) {
+            clearedSequence = writeSequence;
+        }
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % slots);
+    }
+
+    private long firstSequence(long end) {
+        return Math.max(clearedSequence, end - capacity);
+    }
+
+    private boolean isValid(long sequence) {
+        // The slot may be reused only once the writer reaches sequence + slots
+        long current = writeSequence;
+        return current - sequence < slots && sequence >= clearedSequence;
+    }
+
+    private boolean visit(long sequence, ReadingVisitor visitor) {
+        int slot = slot(sequence);
+        long timestamp = timestamps[slot];
+        double temperature = temperatures[slot];
+        double humidity = humidities[slot];
+        double pressure = pressures[slot];
+        double value = values[slot];
+        boolean anomaly = (anomalies[slot >>> 6] & (1L << slot)) != 0;
+
+        // Make sure the slot reads above complete before the sequence is re-checked
+        VarHandle.acquireFence();
+        if (!isValid(sequence)) {
+            // Slot has been overwritten (or cleared) while we were reading it
+            return false;
+        }
+        visitor.visit(timestamp, temperature, humidity, pressure, value, anomaly);
+        return true;
+    }
+}
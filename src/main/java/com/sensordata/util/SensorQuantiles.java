@@ -0,0 +1,32 @@
+package com.sensordata.util;
+
+/**
+ * Quantile sketches for temperature, humidity and pressure of one sensor (~3 KB in total).
+ */
+public class SensorQuantiles {
+    private static final int BUCKETS = 256;
+
+    private final QuantileSketch temperature = new QuantileSketch(-40, 85, BUCKETS);
+    private final QuantileSketch humidity = new QuantileSketch(0, 100, BUCKETS);
+    private final QuantileSketch pressure = new QuantileSketch(900, 1100, BUCKETS);
+
+    /**
+     * Records one reading
+     */
+    public void add(double temperatureValue, double humidityValue, double pressureValue) {
+        temperature.add(temperatureValue);
+        humidity.add(humidityValue);
+        pressure.add(pressureValue);
+    }
+
+    /**
+     * Returns the sketch of one metric
+     */
+    public QuantileSketch get(SensorStatsAccumulator.Metric metric) {
+        return switch (metric) {
+            case TEMPERATURE -> temperature;
+            case HUMIDITY -> humidity;
+            case PRESSURE -> pressure;
+        };
+    }
+}
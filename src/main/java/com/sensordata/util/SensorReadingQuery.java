@@ -0,0 +1,269 @@
+package com.sensordata.util;
+
+import com.sensordata.dto.SensorDataDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Field projection and predicate of one stream subscription, parsed once when the stream is opened.
+ *
+ * fields is a comma-separated list of the reading fields to send; sensor_id and timestamp are always sent,
+ * they identify a reading (and resumed streams rely on them). filter is a comma-separated conjunction of clauses:
+ * <pre>
+ *   temperature>30          comparisons: =, !=, >, >=, <, <=
+ *   humidity=40..60         inclusive range
+ *   sensor_id=1|2|3         set of values
+ *   anomaly=true            anomaly flag (= and != only)
+ * </pre>
+ * Every clause is compiled into a closed interval or a sorted set of doubles (strict bounds are moved to the
+ * adjacent double), so test() reads the fields of the shared reading and compares primitives without allocating.
+ *
+ * Оптимизации:
+ * 1. Фильтр выполняется до буферизации, проекции и сериализации - отброшенные показания ничего не стоят подписчику
+ * 2. Непереданные поля пропускаются кодировщиками HTTP при записи общего показания - без копии на каждое показание
+ *
+ * Решает проблему: каждое показание целиком кодируется и отправляется, а фильтрация происходит у потребителя
+ */
+public final class SensorReadingQuery {
+    public static final SensorReadingQuery ALL = new SensorReadingQuery(EnumSet.allOf(Field.class), new Clause[0]);
+
+    private static final int MAX_CLAUSES = 16;
+    private static final int MAX_SET_SIZE = 1000;
+    private static final String[] OPERATORS = {">=", "<=", "!=", ">", "<", "="};
+
+    private final Set<Field> fields;
+    private final Clause[] clauses;
+
+    private SensorReadingQuery(Set<Field> fields, Clause[] clauses) {
+        this.fields = fields;
+        this.clauses = clauses;
+    }
+
+    public enum Field {
+        SENSOR_ID("sensor_id"),
+        TIMESTAMP("timestamp"),
+        TEMPERATURE("temperature"),
+        HUMIDITY("humidity"),
+        PRESSURE("pressure"),
+        VALUE("value"),
+        ANOMALY("anomaly");
+
+        private final String jsonName;
+
+        Field(String jsonName) {
+            this.jsonName = jsonName;
+        }
+
+        public String getJsonName() {
+            return jsonName;
+        }
+
+        static Field of(String name) {
+            for (Field field : values()) {
+                if (field.jsonName.equals(name)) {
+                    return field;
+                }
+            }
+            throw new IllegalArgumentException("unknown field '" + name + "', expected one of "
+                    + Arrays.stream(values()).map(Field::getJsonName).toList());
+        }
+    }
+
+    /**
+     * Parses the fields and filter parameters; null or blank means all fields / no filter
+     */
+    public static SensorReadingQuery parse(String fields, String filter) {
+        Set<Field> selected = EnumSet.of(Field.SENSOR_ID, Field.TIMESTAMP);
+        if (fields == null || fields.isBlank()) {
+            selected = EnumSet.allOf(Field.class);
+        } else {
+            for (String name : fields.split(",")) {
+                selected.add(Field.of(name.trim().toLowerCase(Locale.ROOT)));
+            }
+        }
+
+        List<Clause> clauses = new ArrayList<>();
+        if (filter != null && !filter.isBlank()) {
+            for (String clause : filter.split(",")) {
+                clauses.add(Clause.parse(clause.trim()));
+            }
+        }
+        if (clauses.size() > MAX_CLAUSES) {
+            throw new IllegalArgumentException("filter must not have more than " + MAX_CLAUSES + " clauses");
+        }
+
+        if (selected.size() == Field.values().length && clauses.isEmpty()) {
+            return ALL;
+        }
+        return new SensorReadingQuery(selected, clauses.toArray(Clause[]::new));
+    }
+
+    /**
+     * True if the reading matches every clause; a clause on a missing field never matches
+     */
+    public boolean test(SensorDataDto data) {
+        for (Clause clause : clauses) {
+            if (!clause.test(read(clause.field(), data))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The reading with unselected fields set to null; the reading itself when every field is selected.
+     * Only for transports whose encoders cannot skip the fields themselves (RSocket)
+     */
+    public SensorDataDto project(SensorDataDto data) {
+        if (selectsAllFields()) {
+            return data;
+        }
+        return SensorDataDto.builder()
+                .sensorId(data.getSensorId())
+                .timestamp(data.getTimestamp())
+                .temperature(includes(Field.TEMPERATURE) ? data.getTemperature() : null)
+                .humidity(includes(Field.HUMIDITY) ? data.getHumidity() : null)
+                .pressure(includes(Field.PRESSURE) ? data.getPressure() : null)
+                .value(includes(Field.VALUE) ? data.getValue() : null)
+                .anomaly(includes(Field.ANOMALY) ? data.getAnomaly() : null)
+                .build();
+    }
+
+    public boolean includes(Field field) {
+        return fields.contains(field);
+    }
+
+    public boolean selectsAllFields() {
+        return fields.size() == Field.values().length;
+    }
+
+    public boolean hasFilter() {
+        return clauses.length > 0;
+    }
+
+    /**
+     * True if the query passes every reading unchanged
+     */
+    public boolean isAll() {
+        return selectsAllFields() && !hasFilter();
+    }
+
+    @Override
+    public String toString() {
+        return "fields=" + fields + ", filter=" + Arrays.toString(clauses);
+    }
+
+    private static double read(Field field, SensorDataDto data) {
+        // NaN stands for a missing field and fails every clause
+        return switch (field) {
+            case SENSOR_ID -> data.getSensorId() != null ? data.getSensorId() : Double.NaN;
+            case TIMESTAMP -> data.getTimestamp() != null ? data.getTimestamp() : Double.NaN;
+            case TEMPERATURE -> data.getTemperature() != null ? data.getTemperature() : Double.NaN;
+            case HUMIDITY -> data.getHumidity() != null ? data.getHumidity() : Double.NaN;
+            case PRESSURE -> data.getPressure() != null ? data.getPressure() : Double.NaN;
+            case VALUE -> data.getValue() != null ? data.getValue() : Double.NaN;
+            case ANOMALY -> data.getAnomaly() != null ? (data.getAnomaly() ? 1 : 0) : Double.NaN;
+        };
+    }
+
+    /**
+     * One compiled clause: value in [min, max], or value in the sorted set when set is not null
+     */
+    private record Clause(Field field, double min, double max, double[] set, boolean negate, String source) {
+        boolean test(double value) {
+            if (Double.isNaN(value)) {
+                return false;
+            }
+            boolean matches = set != null ? Arrays.binarySearch(set, value) >= 0 : value >= min && value <= max;
+            return matches != negate;
+        }
+
+        @Override
+        public String toString() {
+            return source;
+        }
+
+        static Clause parse(String source) {
+            for (String operator : OPERATORS) {
+                int index = source.indexOf(operator);
+                if (index > 0) {
+                    Field field = Field.of(source.substring(0, index).trim().toLowerCase(Locale.ROOT));
+                    String operand = source.substring(index + operator.length()).trim();
+                    return compile(field, operator, operand, source);
+                }
+            }
+            throw new IllegalArgumentException("invalid filter clause '" + source + "', expected <field><operator><value>");
+        }
+
+        private static Clause compile(Field field, String operator, String operand, String source) {
+            boolean equality = operator.equals("=") || operator.equals("!=");
+            boolean negate = operator.equals("!=");
+            if (field == Field.ANOMALY) {
+                if (!equality) {
+                    throw new IllegalArgumentException("anomaly supports only = and !=");
+                }
+                double flag = parseBoolean(operand) ? 1 : 0;
+                return new Clause(field, flag, flag, null, negate, source);
+            }
+            if (!equality) {
+                double bound = parseNumber(operand);
+                return switch (operator) {
+                    case ">" -> new Clause(field, Math.nextUp(bound), Double.POSITIVE_INFINITY, null, false, source);
+                    case ">=" -> new Clause(field, bound, Double.POSITIVE_INFINITY, null, false, source);
+                    case "<" -> new Clause(field, Double.NEGATIVE_INFINITY, Math.nextDown(bound), null, false, source);
+                    default -> new Clause(field, Double.NEGATIVE_INFINITY, bound, null, false, source);
+                };
+            }
+            int range = operand.indexOf("..");
+            if (range >= 0) {
+                double min = parseNumber(operand.substring(0, range));
+                double max = parseNumber(operand.substring(range + 2));
+                if (min > max) {
+                    throw new IllegalArgumentException("empty range in filter clause '" + source + "'");
+                }
+                return new Clause(field, min, max, null, negate, source);
+            }
+            String[] items = operand.split("\\|");
+            if (items.length == 1) {
+                double value = parseNumber(operand);
+                return new Clause(field, value, value, null, negate, source);
+            }
+            if (items.length > MAX_SET_SIZE) {
+                throw new IllegalArgumentException("filter sets must not have more than " + MAX_SET_SIZE + " values");
+            }
+            double[] set = new double[items.length];
+            for (int i = 0; i < items.length; i++) {
+                set[i] = parseNumber(items[i]);
+            }
+            Arrays.sort(set);
+            return new Clause(field, 0, 0, set, negate, source);
+        }
+
+        private static double parseNumber(String text) {
+            try {
+                double value = Double.parseDouble(text.trim());
+                if (Double.isFinite(value)) {
+                    return value;
+                }
+            } catch (NumberFormatException ignored) {
+                // reported below
+            }
+            throw new IllegalArgumentException("invalid number '" + text.trim() + "' in filter");
+        }
+
+        private static boolean parseBoolean(String text) {
+            if (text.equalsIgnoreCase("true")) {
+                return true;
+            }
+            if (text.equalsIgnoreCase("false")) {
+                return false;
+            }
+            throw new IllegalArgumentException("invalid anomaly flag '" + text + "', expected true or false");
+        }
+    }
+}
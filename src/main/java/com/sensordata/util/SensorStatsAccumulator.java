@@ -0,0 +1,228 @@
+package com.sensordata.util;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free statistics accumulator for temperature, humidity and pressure of one sensor.
+ *
+ * Updates are striped over cells in the spirit of LongAdder. Each cell keeps count, sum, min, max and
+ * Welford mean/M2 of every metric in preallocated primitive fields, updated in place under a per-cell
+ * seqlock: a writer claims the cell by moving its sequence from even to odd with one CAS and releases it
+ * by storing the next even value. If the CAS fails the writer moves on to another cell instead of waiting,
+ * so writers never block or spin on a cell held by a preempted thread, and a reading allocates nothing.
+ * The cell table starts with one cell and grows (up to the number of cores) only when writers actually
+ * collide, so uncontended sensors stay small.
+ * Reads copy each cell and re-check its sequence (retrying while a write is in progress), then merge
+ * the cells with MetricAggregator.merge().
+ *
+ * Решает проблему: гонки при обновлении статистики из параллельных потоках одного датчика
+ */
+public class SensorStatsAccumulator {
+    private static final int MAX_CELLS = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    private volatile Cell[] cells = {new Cell()};
+    private final AtomicBoolean resizing = new AtomicBoolean();
+
+    public enum Metric {
+        TEMPERATURE, HUMIDITY, PRESSURE
+    }
+
+    /**
+     * Adds one reading
+     */
+    public void add(double temperature, double humidity, double pressure) {
+        int probe = probe();
+        boolean collided = false;
+        while (true) {
+            Cell[] cs = cells;
+            Cell cell = cs[probe & (cs.length - 1)];
+            long sequence = cell.get();
+            if ((sequence & 1) == 0 && cell.compareAndSet(sequence, sequence + 1)) {
+                cell.add(temperature, humidity, pressure);
+                cell.set(sequence + 2);
+                return;
+            }
+            // Second collision in a row: spread writers over more cells
+            if (collided && cs.length < MAX_CELLS) {
+                grow(cs);
+            }
+            collided = true;
+            probe = rehash(probe);
+        }
+    }
+
+    /**
+     * Returns merged statistics of one metric
+     */
+    public MetricAggregator snapshot(Metric metric) {
+        MetricAggregator result = new MetricAggregator();
+        mergeInto(result, metric);
+        return result;
+    }
+
+    /**
+     * Merges statistics of one metric into the target aggregator
+     */
+    public void mergeInto(MetricAggregator target, Metric metric) {
+        for (Cell cell : cells) {
+            MetricAggregator stripe = cell.read(metric);
+            if (stripe.getCount() > 0) {
+                target.merge(stripe);
+            }
+        }
+    }
+
+    /**
+     * Returns number of readings added
+     */
+    public long getCount() {
+        long count = 0;
+        for (Cell cell : cells) {
+            count += cell.readCount();
+        }
+        return count;
+    }
+
+    /**
+     * Returns current number of cells
+     */
+    public int getCellCount() {
+        return cells.length;
+    }
+
+    /**
+     * Resets all statistics
+     */
+    public void reset() {
+        for (Cell cell : cells) {
+            cell.reset();
+        }
+    }
+
+    private void grow(Cell[] current) {
+        if (resizing.compareAndSet(false, true)) {
+            try {
+                if (cells == current) {
+                    Cell[] expanded = new Cell[current.length << 1];
+                    System.arraycopy(current, 0, expanded, 0, current.length);
+                    for (int i = current.length; i < expanded.length; i++) {
+                        expanded[i] = new Cell();
+                    }
+                    cells = expanded;
+                }
+            } finally {
+                resizing.set(false);
+            }
+        }
+    }
+
+    private static int probe() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32));
+        return h ^ (h >>> 16);
+    }
+
+    private static int rehash(int probe) {
+        // Marsaglia xorshift, as in ThreadLocalRandom.advanceProbe
+        probe ^= probe << 13;
+        probe ^= probe >>> 17;
+        probe ^= probe << 5;
+        return probe;
+    }
+
+    /**
+     * One stripe; the AtomicLong value is the seqlock sequence, odd while a writer owns the cell.
+     * FIELDS values per metric: sum, mean, M2, min, max
+     */
+    private static final class Cell extends AtomicLong {
+        private static final int FIELDS = 5;
+        private static final int SUM = 0;
+        private static final int MEAN = 1;
+        private static final int M2 = 2;
+        private static final int MIN = 3;
+        private static final int MAX = 4;
+
+        private long count;
+        private final double[] values = new double[Metric.values().length * FIELDS];
+
+        private Cell() {
+            clear();
+        }
+
+        /**
+         * Caller owns the cell
+         */
+        private void add(double temperature, double humidity, double pressure) {
+            long total = ++count;
+            update(Metric.TEMPERATURE, temperature, total);
+            update(Metric.HUMIDITY, humidity, total);
+            update(Metric.PRESSURE, pressure, total);
+        }
+
+        private MetricAggregator read(Metric metric) {
+            int base = metric.ordinal() * FIELDS;
+            while (true) {
+                long sequence = get();
+                long n = count;
+                double sum = values[base + SUM];
+                double mean = values[base + MEAN];
+                double m2 = values[base + M2];
+                double min = values[base + MIN];
+                double max = values[base + MAX];
+                // Field loads complete before the sequence is re-checked
+                VarHandle.acquireFence();
+                if ((sequence & 1) == 0 && get() == sequence) {
+                    return MetricAggregator.of(n, sum, mean, m2, min, max);
+                }
+                Thread.onSpinWait();
+            }
+        }
+
+        private long readCount() {
+            while (true) {
+                long sequence = get();
+                long n = count;
+                VarHandle.acquireFence();
+                if ((sequence & 1) == 0 && get() == sequence) {
+                    return n;
+                }
+                Thread.onSpinWait();
+            }
+        }
+
+        private void reset() {
+            // Unlike a writer, reset has to wait for the cell
+            long sequence;
+            while (((sequence = get()) & 1) != 0 || !compareAndSet(sequence, sequence + 1)) {
+                Thread.onSpinWait();
+            }
+            clear();
+            set(sequence + 2);
+        }
+
+        private void clear() {
+            count = 0;
+            for (Metric metric : Metric.values()) {
+                int base = metric.ordinal() * FIELDS;
+                values[base + SUM] = 0;
+                values[base + MEAN] = 0;
+                values[base + M2] = 0;
+                values[base + MIN] = Double.POSITIVE_INFINITY;
+                values[base + MAX] = Double.NEGATIVE_INFINITY;
+            }
+        }
+
+        private void update(Metric metric, double value, long total) {
+            int base = metric.ordinal() * FIELDS;
+            values[base + SUM] += value;
+            values[base + MIN] = Math.min(values[base + MIN], value);
+            values[base + MAX] = Math.max(values[base + MAX], value);
+            // Welford's online update
+            double delta = value - values[base + MEAN];
+            values[base + MEAN] += delta / total;
+            values[base + M2] += delta * (value - values[base + MEAN]);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.sensordata.util;
+
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Registry of hot, ref-counted publishers keyed by an arbitrary key.
+ * The first subscriber for a key connects the upstream, later subscribers attach to it,
+ * and the upstream is cancelled (and the key removed) once the last subscriber leaves.
+ *
+ * Entries are created lazily on subscription and counted per subscriber inside {@code compute},
+ * so a publisher that is assembled but never subscribed leaves nothing behind, and the key is
+ * removed atomically with its last subscriber: a late subscriber either joins the live entry or
+ * creates a new one, never reconnects an entry that is already on its way out.
+ *
+ * Решает проблему: отдельный источник данных на каждого подписчика одного и того же потока
+ */
+public class SharedFluxRegistry<K, T> {
+    private final Map<K, Entry<T>> shared = new ConcurrentHashMap<>();
+    private final Duration gracePeriod;
+
+    /**
+     * Creates a registry that disconnects immediately after the last subscriber leaves
+     */
+    public SharedFluxRegistry() {
+        this(Duration.ZERO);
+    }
+
+    /**
+     * Creates a registry that keeps the upstream alive for the given grace period
+     * after the last subscriber leaves
+     */
+    public SharedFluxRegistry(Duration gracePeriod) {
+        if (gracePeriod == null || gracePeriod.isNegative()) {
+            throw new IllegalArgumentException("gracePeriod must not be negative");
+        }
+        this.gracePeriod = gracePeriod;
+    }
+
+    /**
+     * Returns a publisher attached to the shared upstream of the key. The upstream is created
+     * from the factory when the first subscriber arrives, not when this method is called.
+     */
+    public Flux<T> share(K key, Function<? super K, ? extends Flux<T>> sourceFactory) {
+        return Flux.defer(() -> {
+            Entry<T> entry = shared.compute(key, (k, current) -> {
+                Entry<T> acquired = current != null ? current : createEntry(k, sourceFactory);
+                acquired.subscribers++;
+                return acquired;
+            });
+            return entry.flux.doFinally(signal -> release(key, entry));
+        });
+    }
+
+    /**
+     * Returns number of currently registered publishers
+     */
+    public int size() {
+        return shared.size();
+    }
+
+    private Entry<T> createEntry(K key, Function<? super K, ? extends Flux<T>> sourceFactory) {
+        var published = sourceFactory.apply(key).publish();
+        return new Entry<>(gracePeriod.isZero() ? published.refCount(1) : published.refCount(1, gracePeriod));
+    }
+
+    private void release(K key, Entry<T> entry) {
+        shared.computeIfPresent(key, (k, current) -> {
+            if (current != entry || --current.subscribers > 0) {
+                return current;
+            }
+            if (gracePeriod.isZero()) {
+                return null;
+            }
+            // refCount keeps the upstream for the grace period; the entry stays resolvable just as long
+            Schedulers.parallel().schedule(() -> expire(key, entry), gracePeriod.toMillis(), TimeUnit.MILLISECONDS);
+            return current;
+        });
+    }
+
+    private void expire(K key, Entry<T> entry) {
+        shared.computeIfPresent(key, (k, current) -> current == entry && current.subscribers == 0 ? null : current);
+    }
+
+    private static final class Entry<T> {
+        private final Flux<T> flux;
+        // Guarded by the map's compute on this entry's key
+        private int subscribers;
+
+        private Entry(Flux<T> flux) {
+            this.flux = flux;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.sensordata.util;
+
+import org.slf4j.Logger;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs one summary line per stream when it terminates (elements, duration, final signal)
+ * instead of a line per element. Per-element work is a single counter increment.
+ */
+public final class StreamLogSummary {
+
+    private StreamLogSummary() {
+    }
+
+    public static <T> Flux<T> summarize(Flux<T> stream, Logger log, String name, Object key) {
+        return Flux.defer(() -> {
+            long startNanos = System.nanoTime();
+            AtomicLong elements = new AtomicLong();
+            return stream
+                    .doOnNext(item -> elements.incrementAndGet())
+                    .doFinally(signal -> {
+                        if (log.isInfoEnabled()) {
+                            log.atInfo().setMessage(name + " finished")
+                                    .addKeyValue("key", key)
+                                    .addKeyValue("elements", elements.get())
+                                    .addKeyValue("durationMs", (System.nanoTime() - startNanos) / 1_000_000)
+                                    .addKeyValue("signal", signal)
+                                    .log();
+                        }
+                    });
+        });
+    }
+}
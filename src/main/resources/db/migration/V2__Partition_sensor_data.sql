@@ -0,0 +1,85 @@
+-- Native time-range partitioning of sensor_data (one partition per UTC day, timestamp in epoch ms).
+-- The old single table with three B-tree indexes is replaced by a partitioned table with a BRIN index on
+-- timestamp and one B-tree on (sensor_id, timestamp) per partition. Upcoming partitions are created and
+-- expired ones dropped at runtime by SensorPartitionManager.
+
+ALTER TABLE sensor_data RENAME TO sensor_data_legacy;
+ALTER INDEX idx_sensor_id RENAME TO idx_legacy_sensor_id;
+ALTER INDEX idx_timestamp RENAME TO idx_legacy_timestamp;
+ALTER INDEX idx_sensor_timestamp RENAME TO idx_legacy_sensor_timestamp;
+
+CREATE TABLE sensor_data (
+    id BIGINT NOT NULL DEFAULT nextval('sensor_data_id_seq'),
+    sensor_id BIGINT NOT NULL,
+    timestamp BIGINT NOT NULL,
+    temperature DOUBLE PRECISION NOT NULL,
+    humidity DOUBLE PRECISION NOT NULL,
+    pressure DOUBLE PRECISION NOT NULL,
+    value DOUBLE PRECISION NOT NULL,
+    anomaly BOOLEAN DEFAULT FALSE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+) PARTITION BY RANGE (timestamp);
+
+CREATE INDEX idx_sensor_timestamp ON sensor_data (sensor_id, timestamp);
+CREATE INDEX idx_sensor_data_timestamp_brin ON sensor_data USING BRIN (timestamp);
+
+-- Partitions for already persisted data, today and the next two days
+DO $$
+DECLARE
+    day_ms CONSTANT BIGINT := 86400000;
+    now_ms BIGINT := (EXTRACT(EPOCH FROM now()) * 1000)::BIGINT;
+    day_start BIGINT;
+    last_day BIGINT;
+BEGIN
+    SELECT COALESCE(MIN(timestamp), now_ms) / day_ms * day_ms INTO day_start FROM sensor_data_legacy;
+    SELECT GREATEST(COALESCE(MAX(timestamp), now_ms), now_ms) / day_ms * day_ms + 2 * day_ms INTO last_day FROM sensor_data_legacy;
+    WHILE day_start <= last_day LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF sensor_data FOR VALUES FROM (%s) TO (%s)',
+                       'sensor_data_p' || to_char(to_timestamp(day_start / 1000) AT TIME ZONE 'UTC', 'YYYYMMDD'),
+                       day_start, day_start + day_ms);
+        day_start := day_start + day_ms;
+    END LOOP;
+END $$;
+
+INSERT INTO sensor_data (id, sensor_id, timestamp, temperature, humidity, pressure, value, anomaly, created_at)
+SELECT id, sensor_id, timestamp, temperature, humidity, pressure, value, anomaly, created_at
+FROM sensor_data_legacy;
+
+ALTER SEQUENCE sensor_data_id_seq OWNED BY sensor_data.id;
+DROP TABLE sensor_data_legacy;
+
+-- Continuous downsampled rollups, maintained by SensorPartitionManager as time ranges close.
+-- Sums (not averages) are stored so that minute rollups can be merged into hour rollups.
+CREATE TABLE IF NOT EXISTS sensor_data_rollup_1m (
+    sensor_id BIGINT NOT NULL,
+    bucket_start BIGINT NOT NULL,
+    count BIGINT NOT NULL,
+    anomalies BIGINT NOT NULL,
+    temperature_sum DOUBLE PRECISION NOT NULL,
+    temperature_min DOUBLE PRECISION NOT NULL,
+    temperature_max DOUBLE PRECISION NOT NULL,
+    humidity_sum DOUBLE PRECISION NOT NULL,
+    humidity_min DOUBLE PRECISION NOT NULL,
+    humidity_max DOUBLE PRECISION NOT NULL,
+    pressure_sum DOUBLE PRECISION NOT NULL,
+    pressure_min DOUBLE PRECISION NOT NULL,
+    pressure_max DOUBLE PRECISION NOT NULL,
+    PRIMARY KEY (sensor_id, bucket_start)
+);
+
+CREATE TABLE IF NOT EXISTS sensor_data_rollup_1h (LIKE sensor_data_rollup_1m INCLUDING ALL);
+
+-- Rollups are complete for bucket_start < closed_until
+CREATE TABLE IF NOT EXISTS sensor_rollup_watermark (
+    rollup VARCHAR(8) PRIMARY KEY,
+    closed_until BIGINT NOT NULL
+);
+
+INSERT INTO sensor_rollup_watermark (rollup, closed_until)
+SELECT '1m', COALESCE(MIN(timestamp) / 60000 * 60000, (EXTRACT(EPOCH FROM now()) * 1000)::BIGINT / 60000 * 60000)
+FROM sensor_data
+ON CONFLICT (rollup) DO NOTHING;
+
+INSERT INTO sensor_rollup_watermark (rollup, closed_until)
+SELECT '1h', closed_until / 3600000 * 3600000 FROM sensor_rollup_watermark WHERE rollup = '1m'
+ON CONFLICT (rollup) DO NOTHING;
@@ -0,0 +1,5 @@
+-- Catch-all partition for readings outside the daily partitions (a skewed sensor clock, a day whose
+-- partition the maintenance run has not created yet). Without it a single such row fails the whole
+-- multi-row INSERT batch of the write-behind queue. SensorPartitionManager moves rows out of it before
+-- attaching the matching day and purges it with the same retention as the daily partitions.
+CREATE TABLE IF NOT EXISTS sensor_data_default PARTITION OF sensor_data DEFAULT;
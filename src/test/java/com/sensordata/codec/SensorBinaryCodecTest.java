@@ -0,0 +1,245 @@
+package com.sensordata.codec;
+
+import com.sensordata.dto.SensorDataDto;
+import com.sensordata.dto.SensorDataFrame;
+import com.sensordata.dto.SensorSnapshotChunk;
+import com.sensordata.util.SensorReadingQuery;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SensorBinaryCodecTest {
+    private static final ResolvableType READING_TYPE = ResolvableType.forClass(SensorDataDto.class);
+    private static final DefaultDataBufferFactory BUFFERS = DefaultDataBufferFactory.sharedInstance;
+
+    private final SensorBinaryEncoder encoder = new SensorBinaryEncoder();
+    private final SensorBinaryDecoder decoder = new SensorBinaryDecoder();
+
+    @Test
+    void roundTripsReadingsWithDeltaAndAbsoluteTimestamps() {
+        List<SensorDataDto> readings = List.of(
+                reading(1, 1_700_000_000_000L, true),
+                reading(1, 1_700_000_000_100L, false),
+                // Delta beyond 32 bits falls back to an absolute timestamp
+                reading(2, 1_700_000_000_100L + (1L << 40), false),
+                reading(3, 1_600_000_000_000L, null));
+
+        StepVerifier.create(decoder.decode(Flux.fromIterable(chunks(encode(readings, Map.of()), List.of())),
+                        READING_TYPE, SensorBinaryFormat.MEDIA_TYPE, Map.of()))
+                .expectNextSequence(readings)
+                .verifyComplete();
+    }
+
+    @Test
+    void fullReadingTakesFortyEightBytesWithATimestampDelta() {
+        byte[] bytes = encode(List.of(reading(1, 1_000, true), reading(1, 1_100, true)), Map.of());
+
+        // The first record carries the absolute timestamp (4 more bytes)
+        assertThat(bytes).hasSize(52 + 48);
+    }
+
+    @Test
+    void decodesRecordsSplitAtEveryByteBoundary() {
+        List<SensorDataDto> readings = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            readings.add(reading(i % 3, 5_000L + i * 250, i % 2 == 0));
+        }
+        byte[] bytes = encode(readings, Map.of());
+
+        for (int chunkSize = 1; chunkSize <= 50; chunkSize++) {
+            List<Integer> splits = new ArrayList<>();
+            for (int at = chunkSize; at < bytes.length; at += chunkSize) {
+                splits.add(at);
+            }
+            StepVerifier.create(decoder.decode(Flux.fromIterable(chunks(bytes, splits)),
+                            READING_TYPE, SensorBinaryFormat.MEDIA_TYPE, Map.of()))
+                    .as("chunk size " + chunkSize)
+                    .expectNextSequence(readings)
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    void decodesRecordsSplitAtRandomBoundaries() {
+        List<SensorDataDto> readings = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            readings.add(reading(7, 10_000L + i * 100, i % 5 == 0));
+        }
+        byte[] bytes = encode(readings, Map.of());
+        Random random = new Random(11);
+
+        for (int round = 0; round < 20; round++) {
+            List<Integer> splits = new ArrayList<>();
+            for (int at = 1 + random.nextInt(100); at < bytes.length; at += 1 + random.nextInt(100)) {
+                splits.add(at);
+            }
+            StepVerifier.create(decoder.decode(Flux.fromIterable(chunks(bytes, splits)),
+                            READING_TYPE, SensorBinaryFormat.MEDIA_TYPE, Map.of()))
+                    .expectNextSequence(readings)
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    void nullFieldsAreOmittedAndDecodedAsNull() {
+        SensorDataDto sparse = SensorDataDto.builder().sensorId(4L).timestamp(42L).humidity(55.5).build();
+        byte[] bytes = encode(List.of(sparse), Map.of());
+
+        // Header, sensor id, absolute timestamp and one double
+        assertThat(bytes).hasSize(2 + 2 + 8 + 8 + 8);
+        StepVerifier.create(decoder.decode(Flux.fromIterable(chunks(bytes, List.of())),
+                        READING_TYPE, SensorBinaryFormat.MEDIA_TYPE, Map.of()))
+                .expectNext(sparse)
+                .verifyComplete();
+    }
+
+    @Test
+    void projectionHintLeavesUnselectedFieldsOut() {
+        SensorDataDto full = reading(9, 1_000, true);
+        Map<String, Object> hints = Map.of(SensorProjectionHints.QUERY_HINT,
+                SensorReadingQuery.parse("temperature,anomaly", null));
+
+        StepVerifier.create(decoder.decode(Flux.fromIterable(chunks(encode(List.of(full), hints), List.of())),
+                        READING_TYPE, SensorBinaryFormat.MEDIA_TYPE, Map.of()))
+                .expectNext(SensorDataDto.builder().sensorId(9L).timestamp(1_000L)
+                        .temperature(full.getTemperature()).anomaly(true).build())
+                .verifyComplete();
+    }
+
+    @Test
+    void framesDecodeAsIndividualReadings() {
+        List<SensorDataDto> readings = List.of(reading(5, 100, false), reading(5, 200, true), reading(5, 300, false));
+        DataBuffer frame = new SensorFrameBinaryEncoder().encodeValue(SensorDataFrame.of(readings), BUFFERS,
+                ResolvableType.forClass(SensorDataFrame.class), SensorBinaryFormat.MEDIA_TYPE, Map.of());
+
+        StepVerifier.create(decoder.decode(Flux.just(frame), READING_TYPE, SensorBinaryFormat.MEDIA_TYPE, Map.of()))
+                .expectNextSequence(readings)
+                .verifyComplete();
+    }
+
+    @Test
+    void frameRecordsTakeTheSensorIdFromTheFrameHeader() {
+        List<SensorDataDto> readings = List.of(reading(5, 100, false), reading(5, 200, true), reading(5, 300, false));
+
+        // 16-byte header, then 44 bytes for the absolute first timestamp and 40 for each delta
+        assertThat(encodeFrames(List.of(SensorDataFrame.of(readings)))).hasSize(16 + 44 + 40 + 40);
+    }
+
+    @Test
+    void consecutiveFramesDecodeAcrossEveryByteBoundary() {
+        List<SensorDataDto> first = List.of(reading(1, 100, false), reading(1, 200, true));
+        List<SensorDataDto> second = List.of(reading(2, 150, null), reading(2, 250, false), reading(2, 350, true));
+        SensorReadingQuery projection = SensorReadingQuery.parse("humidity", null);
+        byte[] bytes = encodeFrames(List.of(SensorDataFrame.of(first), SensorDataFrame.of(second, projection)));
+
+        List<SensorDataDto> expected = new ArrayList<>(first);
+        for (SensorDataDto data : second) {
+            expected.add(SensorDataDto.builder().sensorId(2L).timestamp(data.getTimestamp()).humidity(data.getHumidity()).build());
+        }
+        for (int chunkSize = 1; chunkSize <= 64; chunkSize++) {
+            List<Integer> splits = new ArrayList<>();
+            for (int at = chunkSize; at < bytes.length; at += chunkSize) {
+                splits.add(at);
+            }
+            StepVerifier.create(decoder.decode(Flux.fromIterable(chunks(bytes, splits)),
+                            READING_TYPE, SensorBinaryFormat.MEDIA_TYPE, Map.of()))
+                    .as("chunk size " + chunkSize)
+                    .expectNextSequence(expected)
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    void snapshotChunksDecodeWithSequentialSensorIds() {
+        SensorSnapshotChunk chunk = SensorSnapshotChunk.builder()
+                .firstSensorId(41)
+                .timestamp(7_000)
+                .temperatures(new double[]{20.5, 21.5, 22.5})
+                .humidities(new double[]{40, 41, 42})
+                .pressures(new double[]{1000, 1001, 1002})
+                .values(new double[]{1, 2, 3})
+                .anomalies(new boolean[]{false, true, false})
+                .build();
+        DataBuffer buffer = new SensorSnapshotBinaryEncoder().encodeValue(chunk, BUFFERS,
+                ResolvableType.forClass(SensorSnapshotChunk.class), SensorBinaryFormat.MEDIA_TYPE, Map.of());
+
+        StepVerifier.create(decoder.decode(Flux.just(buffer), READING_TYPE, SensorBinaryFormat.MEDIA_TYPE, Map.of()))
+                .expectNextSequence(chunk.readings())
+                .verifyComplete();
+    }
+
+    @Test
+    void streamEndingInsideARecordFails() {
+        byte[] bytes = encode(List.of(reading(1, 1_000, false)), Map.of());
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 3);
+
+        StepVerifier.create(decoder.decode(Flux.fromIterable(chunks(truncated, List.of())),
+                        READING_TYPE, SensorBinaryFormat.MEDIA_TYPE, Map.of()))
+                .expectError(DecodingException.class)
+                .verify();
+    }
+
+    private byte[] encode(List<SensorDataDto> readings, Map<String, Object> hints) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.encode(Flux.fromIterable(readings), BUFFERS, READING_TYPE, SensorBinaryFormat.MEDIA_TYPE, hints)
+                .doOnNext(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    out.writeBytes(bytes);
+                })
+                .blockLast();
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeFrames(List<SensorDataFrame> frames) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new SensorFrameBinaryEncoder().encode(Flux.fromIterable(frames), BUFFERS,
+                        ResolvableType.forClass(SensorDataFrame.class), SensorBinaryFormat.MEDIA_TYPE, Map.of())
+                .doOnNext(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    out.writeBytes(bytes);
+                })
+                .blockLast();
+        return out.toByteArray();
+    }
+
+    private static List<DataBuffer> chunks(byte[] bytes, List<Integer> splits) {
+        List<DataBuffer> chunks = new ArrayList<>();
+        int from = 0;
+        for (int to : splits) {
+            chunks.add(BUFFERS.wrap(Arrays.copyOfRange(bytes, from, to)));
+            from = to;
+        }
+        chunks.add(BUFFERS.wrap(Arrays.copyOfRange(bytes, from, bytes.length)));
+        return chunks;
+    }
+
+    private static SensorDataDto reading(long sensorId, long timestamp, Boolean anomaly) {
+        return SensorDataDto.builder()
+                .sensorId(sensorId)
+                .timestamp(timestamp)
+                .temperature(20 + sensorId * 0.5 + timestamp % 7)
+                .humidity(40.25)
+                .pressure(1013.0 - sensorId)
+                .value(-3.5e-3 * timestamp)
+                .anomaly(anomaly)
+                .build();
+    }
+}
@@ -0,0 +1,40 @@
+package com.sensordata.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sensordata.dto.SensorDataDto;
+import com.sensordata.util.SensorReadingQuery;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SensorDataJsonSerializerTest {
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new SensorJsonModule());
+
+    @Test
+    void writesEveryFieldIncludingNullsWithoutProjection() throws Exception {
+        SensorDataDto reading = SensorDataDto.builder().sensorId(1L).timestamp(100L).temperature(21.5).build();
+
+        assertThat(objectMapper.writeValueAsString(reading)).isEqualTo(
+                "{\"sensor_id\":1,\"timestamp\":100,\"temperature\":21.5,\"humidity\":null,"
+                        + "\"pressure\":null,\"value\":null,\"anomaly\":null}");
+    }
+
+    @Test
+    void skipsUnselectedFieldsUnderProjection() throws Exception {
+        SensorDataDto reading = new SensorDataDto(1L, 100L, 21.5, 40.0, 1013.0, 2.5, true);
+
+        String json = objectMapper.writer()
+                .withAttribute(SensorProjectionHints.QUERY_HINT, SensorReadingQuery.parse("humidity,anomaly", null))
+                .writeValueAsString(reading);
+
+        assertThat(json).isEqualTo("{\"sensor_id\":1,\"timestamp\":100,\"humidity\":40.0,\"anomaly\":true}");
+    }
+
+    @Test
+    void readsBackWhatItWrites() throws Exception {
+        SensorDataDto reading = new SensorDataDto(3L, 200L, -4.25, 80.0, 990.5, 0.0, false);
+
+        assertThat(objectMapper.readValue(objectMapper.writeValueAsString(reading), SensorDataDto.class))
+                .isEqualTo(reading);
+    }
+}
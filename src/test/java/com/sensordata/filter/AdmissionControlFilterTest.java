@@ -0,0 +1,210 @@
+package com.sensordata.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sensordata.service.EventLoopLagMonitor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdmissionControlFilterTest {
+    private static final String EXTERNAL = "203.0.113.7";
+
+    private final EventLoopLagMonitor lagMonitor = mock(EventLoopLagMonitor.class);
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final List<Sinks.Empty<Void>> runningStreams = new ArrayList<>();
+    private final List<Disposable> subscriptions = new ArrayList<>();
+    // Every admitted request stays open until its sink is completed, like a long-lived stream
+    private final WebFilterChain streamChain = exchange -> {
+        Sinks.Empty<Void> stream = Sinks.empty();
+        runningStreams.add(stream);
+        return stream.asMono();
+    };
+    private AdmissionControlFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new AdmissionControlFilter(lagMonitor, new SimpleMeterRegistry(), objectMapper);
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "paths", List.of("/api/sensors/stream", "/api/client/sensors"));
+        ReflectionTestUtils.setField(filter, "initialLimit", 3);
+        ReflectionTestUtils.setField(filter, "minLimit", 2);
+        ReflectionTestUtils.setField(filter, "maxLimit", 100);
+        ReflectionTestUtils.setField(filter, "perClientLimit", 2);
+        ReflectionTestUtils.setField(filter, "exemptClients", Set.of("sensor-gateway"));
+        ReflectionTestUtils.setField(filter, "trustedAddresses", List.of("127.0.0.1", "::1"));
+        ReflectionTestUtils.setField(filter, "lagTarget", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(filter, "lagReject", Duration.ofMillis(250));
+        // The periodic adjustment is driven by hand in these tests
+        ReflectionTestUtils.setField(filter, "adjustInterval", Duration.ofHours(1));
+        filter.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        filter.stop();
+        subscriptions.forEach(Disposable::dispose);
+    }
+
+    @Test
+    void rejectsStreamsAboveTheLimitWith429AndRetryAfter() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(open("client-" + i).getResponse().getStatusCode()).isNull();
+        }
+
+        MockServerWebExchange rejected = open("client-3");
+
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(rejected.getResponse().getBodyAsString().block())
+                .contains("\"status\":429")
+                .contains("Too many active streams")
+                .contains("/api/sensors/stream");
+        assertThat(filter.getActiveStreams()).isEqualTo(3);
+    }
+
+    @Test
+    void finishedStreamsFreeTheirSlot() {
+        for (int i = 0; i < 3; i++) {
+            open("client-" + i);
+        }
+        runningStreams.get(0).tryEmitEmpty();
+
+        assertThat(filter.getActiveStreams()).isEqualTo(2);
+        assertThat(open("client-3").getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    void limitsStreamsPerClientButNotOtherClients() {
+        open("greedy");
+        open("greedy");
+
+        MockServerWebExchange rejected = open("greedy");
+
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(rejected.getResponse().getBodyAsString().block()).contains("client greedy");
+        // The rejected request gave its global slot back
+        assertThat(filter.getActiveStreams()).isEqualTo(2);
+        assertThat(open("polite").getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    void exemptClientsAreBoundByTheGlobalLimitOnly() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(open("sensor-gateway").getResponse().getStatusCode()).isNull();
+        }
+
+        assertThat(open("sensor-gateway").getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    void untrustedCallerCannotPoseAsAnExemptClient() {
+        open("/api/sensors/stream", "sensor-gateway", EXTERNAL);
+        open("/api/sensors/stream", "sensor-gateway", EXTERNAL);
+
+        MockServerWebExchange rejected = open("/api/sensors/stream", "sensor-gateway", EXTERNAL);
+
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(rejected.getResponse().getBodyAsString().block()).contains("client 203.0.113.7");
+    }
+
+    @Test
+    void untrustedCallerCannotRotateTheHeaderForAFreshQuota() {
+        open("/api/sensors/stream", "first", EXTERNAL);
+        open("/api/sensors/stream", "second", EXTERNAL);
+
+        MockServerWebExchange rejected = open("/api/sensors/stream", "third", EXTERNAL);
+
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        // Another address still has its own quota
+        assertThat(open("/api/sensors/stream", "first", "203.0.113.8").getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    void trustedAddressesMustBeIpLiterals() {
+        ReflectionTestUtils.setField(filter, "trustedAddresses", List.of("localhost"));
+
+        assertThatThrownBy(filter::start).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsEverythingWhileTheEventLoopLags() {
+        when(lagMonitor.getLagMillis()).thenReturn(2_600.0);
+
+        MockServerWebExchange rejected = open("client");
+
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        // One second plus the lag, rounded
+        assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("4");
+        assertThat(rejected.getResponse().getBodyAsString().block()).contains("event loop lag 2600 ms");
+        assertThat(filter.getActiveStreams()).isZero();
+    }
+
+    @Test
+    void otherPathsAndDisabledFilterPassThrough() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(open("/api/sensors/stats", "client").getResponse().getStatusCode()).isNull();
+        }
+        ReflectionTestUtils.setField(filter, "enabled", false);
+        for (int i = 0; i < 5; i++) {
+            assertThat(open("client").getResponse().getStatusCode()).isNull();
+        }
+
+        assertThat(filter.getActiveStreams()).isZero();
+    }
+
+    @Test
+    void limitShrinksUnderLagAndGrowsWhenNearlyUsed() {
+        when(lagMonitor.getLagMillis()).thenReturn(100.0);
+        ReflectionTestUtils.invokeMethod(filter, "adjustLimit");
+        // 3 * 0.8 = 2, the minimum
+        assertThat(filter.getLimit()).isEqualTo(2);
+        ReflectionTestUtils.invokeMethod(filter, "adjustLimit");
+        assertThat(filter.getLimit()).isEqualTo(2);
+
+        when(lagMonitor.getLagMillis()).thenReturn(0.0);
+        ReflectionTestUtils.invokeMethod(filter, "adjustLimit");
+        assertThat(filter.getLimit()).isEqualTo(2);
+
+        open("a");
+        open("b");
+        ReflectionTestUtils.invokeMethod(filter, "adjustLimit");
+        assertThat(filter.getLimit()).isEqualTo(12);
+    }
+
+    private MockServerWebExchange open(String clientId) {
+        return open("/api/sensors/stream", clientId);
+    }
+
+    private MockServerWebExchange open(String path, String clientId) {
+        return open(path, clientId, "127.0.0.1");
+    }
+
+    private MockServerWebExchange open(String path, String clientId, String remoteAddress) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path)
+                .remoteAddress(new InetSocketAddress(remoteAddress, 40_000))
+                .header("X-Client-Id", clientId));
+        subscriptions.add(filter.filter(exchange, streamChain).subscribe());
+        return exchange;
+    }
+}
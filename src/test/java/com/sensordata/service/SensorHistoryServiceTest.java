@@ -0,0 +1,149 @@
+package com.sensordata.service;
+
+import com.sensordata.dto.SensorDataDto;
+import io.r2dbc.spi.Readable;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.r2dbc.core.RowsFetchSpec;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SensorHistoryServiceTest {
+    private final List<Map<String, Object>> table = new ArrayList<>();
+    private final List<Map<String, Object>> pageQueries = new ArrayList<>();
+    private final DatabaseClient databaseClient = mock(DatabaseClient.class);
+    private final SensorDataGenerator generator = mock(SensorDataGenerator.class);
+    private final SensorHistoryService service = new SensorHistoryService(databaseClient, generator);
+
+    SensorHistoryServiceTest() {
+        when(databaseClient.sql(anyString())).thenAnswer(invocation -> pageSpec());
+        ReflectionTestUtils.setField(service, "persistenceEnabled", true);
+        ReflectionTestUtils.setField(service, "pageSize", 3);
+        ReflectionTestUtils.setField(service, "fetchSize", 3);
+    }
+
+    @Test
+    void pageBoundaryInsideOneTimestampNeitherSkipsNorRepeatsRows() {
+        insert(1, 1, 10);
+        // Five readings share timestamp 20, so both page boundaries fall inside that group
+        insert(2, 1, 20);
+        insert(3, 1, 20);
+        insert(4, 2, 20);
+        insert(5, 1, 20);
+        insert(6, 1, 20);
+        insert(7, 1, 20);
+        insert(8, 1, 30);
+
+        List<SensorDataDto> history = service.getHistory(1L, 0L, 100L, null).collectList().block();
+
+        assertThat(history).extracting(SensorDataDto::getValue)
+                .containsExactly(1.0, 2.0, 3.0, 5.0, 6.0, 7.0, 8.0);
+        // Two full pages and a last, partial one
+        assertThat(pageQueries).hasSize(3);
+        assertThat(pageQueries.get(1)).containsEntry("fromTimestamp", 20L).containsEntry("afterId", 3L);
+        assertThat(pageQueries.get(2)).containsEntry("fromTimestamp", 20L).containsEntry("afterId", 7L);
+    }
+
+    @Test
+    void rowsOfOneTimestampFollowIdOrder() {
+        insert(9, 1, 20);
+        insert(4, 1, 20);
+        insert(6, 1, 20);
+        insert(5, 1, 20);
+
+        List<SensorDataDto> history = service.getHistory(1L, 0L, 100L, null).collectList().block();
+
+        assertThat(history).extracting(SensorDataDto::getValue).containsExactly(4.0, 5.0, 6.0, 9.0);
+    }
+
+    @Test
+    void exactlyFullLastPageEndsWithOneEmptyQuery() {
+        for (long id = 1; id <= 6; id++) {
+            insert(id, 1, 10 * id);
+        }
+
+        List<SensorDataDto> history = service.getHistory(1L, 20L, 70L, null).collectList().block();
+
+        assertThat(history).extracting(SensorDataDto::getTimestamp).containsExactly(20L, 30L, 40L, 50L, 60L);
+        assertThat(pageQueries).hasSize(2);
+    }
+
+    private void insert(long id, long sensorId, long timestamp) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", id);
+        row.put("sensor_id", sensorId);
+        row.put("timestamp", timestamp);
+        // The id doubles as the value, so results show which rows were returned
+        row.put("value", (double) id);
+        table.add(row);
+    }
+
+    /**
+     * Statement spec that runs the keyset page query against the in-memory table
+     */
+    @SuppressWarnings("unchecked")
+    private GenericExecuteSpec pageSpec() {
+        Map<String, Object> bindings = new HashMap<>();
+        return mock(GenericExecuteSpec.class, invocation -> {
+            String method = invocation.getMethod().getName();
+            if (method.equals("bind")) {
+                bindings.put(invocation.getArgument(0), invocation.getArgument(1));
+            }
+            if (method.equals("map")) {
+                Function<Readable, SensorDataDto> mapper = invocation.getArgument(0);
+                RowsFetchSpec<SensorDataDto> rows = mock(RowsFetchSpec.class);
+                when(rows.all()).thenAnswer(all -> Flux.defer(() -> {
+                    pageQueries.add(Map.copyOf(bindings));
+                    return Flux.fromIterable(page(bindings)).map(row -> mapper.apply(readable(row)));
+                }));
+                return rows;
+            }
+            return invocation.getMock();
+        });
+    }
+
+    private List<Map<String, Object>> page(Map<String, Object> bindings) {
+        long sensorId = (Long) bindings.get("sensorId");
+        long from = (Long) bindings.get("fromTimestamp");
+        long afterId = (Long) bindings.get("afterId");
+        long to = (Long) bindings.get("toTimestamp");
+        int pageSize = (Integer) bindings.get("pageSize");
+        return table.stream()
+                .filter(row -> (Long) row.get("sensor_id") == sensorId)
+                .filter(row -> {
+                    long timestamp = (Long) row.get("timestamp");
+                    return timestamp >= from && (timestamp > from || (Long) row.get("id") > afterId) && timestamp < to;
+                })
+                .sorted(Comparator.comparing((Map<String, Object> row) -> (Long) row.get("timestamp"))
+                        .thenComparing(row -> (Long) row.get("id")))
+                .limit(pageSize)
+                .toList();
+    }
+
+    private static Readable readable(Map<String, Object> row) {
+        return new Readable() {
+            @Override
+            public <T> T get(int index, Class<T> type) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public <T> T get(String name, Class<T> type) {
+                return type.cast(row.get(name));
+            }
+        };
+    }
+}
@@ -0,0 +1,84 @@
+package com.sensordata.service;
+
+import com.sensordata.dto.SensorRollupDto;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class SensorStatisticsServiceTest {
+    private static final long SECOND = 1_000;
+    // Virtual time makes these instant; the timeout only stops a missing element from hanging the build
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final SensorRollupEngine rollupEngine = new SensorRollupEngine();
+    private final SensorStatisticsService service = new SensorStatisticsService(mock(SensorDataGenerator.class), rollupEngine);
+
+    @Test
+    void followEmitsEachWindowOnceItClosesAndSkipsEmptyOnes() {
+        record(100, 20);
+        record(900, 22);
+        record(1_500, 25);
+        // Nothing between 2s and 3s
+        record(3_200, 30);
+
+        StepVerifier.withVirtualTime(() -> service.getRollups(1L, "1s", 1, null, 3, true))
+                .expectSubscription()
+                // Read 50 ms after the boundary, so the last tick's readings are in
+                .expectNoEvent(Duration.ofMillis(1_049))
+                .thenAwait(Duration.ofMillis(1))
+                .assertNext(rollup -> {
+                    assertThat(rollup.getWindowStart()).isEqualTo(0);
+                    assertThat(rollup.getCount()).isEqualTo(2);
+                    assertThat(rollup.getTemperatureAvg()).isEqualTo(21);
+                })
+                .expectNoEvent(Duration.ofMillis(999))
+                .thenAwait(Duration.ofMillis(1))
+                .assertNext(rollup -> assertThat(rollup.getWindowStart()).isEqualTo(SECOND))
+                .expectNoEvent(Duration.ofMillis(1_999))
+                .thenAwait(Duration.ofMillis(1))
+                .assertNext(rollup -> assertThat(rollup.getWindowStart()).isEqualTo(3 * SECOND))
+                .expectComplete()
+                .verify(TIMEOUT);
+    }
+
+    @Test
+    void followContinuesClosedHistoryWithoutGapsOrRepeats() {
+        for (long pane = 8; pane <= 11; pane++) {
+            record(pane * SECOND + 100, pane);
+        }
+
+        StepVerifier.withVirtualTime(() -> service.getRollups(1L, "1s", 2, null, 4, true),
+                        () -> startingAt(10 * SECOND + 500), Long.MAX_VALUE)
+                .expectSubscription()
+                // Hopping windows of two panes that were already closed at subscription
+                .assertNext(rollup -> assertThat(rollup.getWindowStart()).isEqualTo(7 * SECOND))
+                .assertNext(rollup -> assertThat(rollup.getWindowStart()).isEqualTo(8 * SECOND))
+                .expectNoEvent(Duration.ofMillis(549))
+                .thenAwait(Duration.ofMillis(1))
+                .assertNext(rollup -> {
+                    assertThat(rollup.getWindowStart()).isEqualTo(9 * SECOND);
+                    assertThat(rollup.getWindowEnd()).isEqualTo(11 * SECOND);
+                    assertThat(rollup.getCount()).isEqualTo(2);
+                })
+                .thenAwait(Duration.ofSeconds(1))
+                .assertNext(rollup -> assertThat(rollup.getWindowStart()).isEqualTo(10 * SECOND))
+                .expectComplete()
+                .verify(TIMEOUT);
+    }
+
+    private void record(long timestamp, double temperature) {
+        rollupEngine.record(1L, timestamp, temperature, 50, 1000, false);
+    }
+
+    private static VirtualTimeScheduler startingAt(long millis) {
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+        scheduler.advanceTimeTo(Instant.ofEpochMilli(millis));
+        return scheduler;
+    }
+}
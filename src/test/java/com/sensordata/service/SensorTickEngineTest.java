@@ -0,0 +1,145 @@
+package com.sensordata.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SensorTickEngineTest {
+    private VirtualTimeScheduler scheduler;
+    private SensorTickEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = VirtualTimeScheduler.create();
+        engine = new SensorTickEngine(scheduler, 10, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.destroy();
+    }
+
+    @Test
+    void runsTaskOncePerPeriodAfterTheFirstPeriod() {
+        AtomicInteger runs = new AtomicInteger();
+        engine.schedule(1, Duration.ofMillis(30), runs::incrementAndGet);
+
+        scheduler.advanceTimeBy(Duration.ofMillis(30));
+        assertThat(runs).hasValue(0);
+
+        // Registrations are picked up on the next tick, so the first run is within one tick of the period
+        scheduler.advanceTimeBy(Duration.ofMillis(10));
+        assertThat(runs).hasValue(1);
+
+        scheduler.advanceTimeBy(Duration.ofMillis(300));
+        assertThat(runs).hasValue(11);
+        assertThat(engine.getActiveTaskCount()).isEqualTo(1);
+    }
+
+    @Test
+    void roundsPeriodToResolutionAndKeepsAtLeastOneTick() {
+        AtomicInteger runs = new AtomicInteger();
+        engine.schedule(1, Duration.ofMillis(1), runs::incrementAndGet);
+
+        scheduler.advanceTimeBy(Duration.ofMillis(100));
+
+        // One run per tick from the second tick on
+        assertThat(runs).hasValue(9);
+    }
+
+    @Test
+    void periodsLongerThanTheWheelWaitFullRounds() {
+        AtomicInteger runs = new AtomicInteger();
+        // 600 ticks, more than one turn of the 512-bucket wheel
+        engine.schedule(1, Duration.ofSeconds(6), runs::incrementAndGet);
+
+        scheduler.advanceTimeBy(Duration.ofMillis(5_200));
+        assertThat(runs).hasValue(0);
+
+        scheduler.advanceTimeBy(Duration.ofMillis(810));
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void periodOfExactlyOneWheelTurnWaitsTheFullTurn() {
+        AtomicInteger runs = new AtomicInteger();
+        // 512 ticks: the task lands in the bucket of the tick that registers it
+        engine.schedule(1, Duration.ofMillis(5_120), runs::incrementAndGet);
+
+        scheduler.advanceTimeBy(Duration.ofMillis(5_120));
+        assertThat(runs).hasValue(0);
+
+        scheduler.advanceTimeBy(Duration.ofMillis(10));
+        assertThat(runs).hasValue(1);
+
+        scheduler.advanceTimeBy(Duration.ofMillis(5_110));
+        assertThat(runs).hasValue(1);
+        scheduler.advanceTimeBy(Duration.ofMillis(10));
+        assertThat(runs).hasValue(2);
+    }
+
+    @Test
+    void periodOfTwoWheelTurnsDoesNotFireOneTurnEarly() {
+        AtomicInteger runs = new AtomicInteger();
+        engine.schedule(1, Duration.ofMillis(10_240), runs::incrementAndGet);
+
+        scheduler.advanceTimeBy(Duration.ofMillis(10_240));
+        assertThat(runs).hasValue(0);
+
+        scheduler.advanceTimeBy(Duration.ofMillis(10));
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void disposedTaskStopsRunningAndIsRemoved() {
+        AtomicInteger runs = new AtomicInteger();
+        Disposable registration = engine.schedule(1, Duration.ofMillis(20), runs::incrementAndGet);
+
+        scheduler.advanceTimeBy(Duration.ofMillis(100));
+        int runsBeforeCancel = runs.get();
+        assertThat(runsBeforeCancel).isPositive();
+
+        registration.dispose();
+        scheduler.advanceTimeBy(Duration.ofMillis(100));
+
+        assertThat(registration.isDisposed()).isTrue();
+        assertThat(runs).hasValue(runsBeforeCancel);
+        assertThat(engine.getActiveTaskCount()).isZero();
+    }
+
+    @Test
+    void taskDisposedBeforeItsFirstTickIsNeverRun() {
+        AtomicInteger runs = new AtomicInteger();
+        engine.schedule(1, Duration.ofMillis(10), runs::incrementAndGet).dispose();
+
+        scheduler.advanceTimeBy(Duration.ofMillis(100));
+
+        assertThat(runs).hasValue(0);
+        assertThat(engine.getActiveTaskCount()).isZero();
+    }
+
+    @Test
+    void failingTaskDoesNotStopOtherTasks() {
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger runs = new AtomicInteger();
+        // Same key: both tasks run on the same driver and in the same batch
+        engine.schedule(7, Duration.ofMillis(10), () -> {
+            failures.incrementAndGet();
+            throw new IllegalStateException("boom");
+        });
+        engine.schedule(7, Duration.ofMillis(10), runs::incrementAndGet);
+
+        scheduler.advanceTimeBy(Duration.ofMillis(50));
+
+        assertThat(failures).hasValue(4);
+        assertThat(runs).hasValue(4);
+        assertThat(engine.getActiveTaskCount()).isEqualTo(2);
+    }
+}
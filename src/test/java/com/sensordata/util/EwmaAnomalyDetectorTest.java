@@ -0,0 +1,129 @@
+package com.sensordata.util;
+
+import com.sensordata.util.SensorStatsAccumulator.Metric;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EwmaAnomalyDetectorTest {
+    private static final double ALPHA = 0.05;
+    private static final double THRESHOLD = 4;
+
+    @Test
+    void warmupReadingsAreNeverAnomalous() {
+        EwmaAnomalyDetector detector = new EwmaAnomalyDetector(ALPHA, THRESHOLD, 10);
+        for (int i = 0; i < 9; i++) {
+            assertThat(detector.update(20 + (i % 2), 50, 1000)).isFalse();
+        }
+
+        // Tenth reading is still training, the eleventh gets a verdict
+        assertThat(detector.update(500, 50, 1000)).isFalse();
+        assertThat(detector.getCount()).isEqualTo(10);
+        assertThat(detector.update(500, 50, 1000)).isTrue();
+    }
+
+    @Test
+    void normalNoiseIsNotFlagged() {
+        EwmaAnomalyDetector detector = trained(new Random(1));
+        Random random = new Random(2);
+
+        int flagged = 0;
+        for (int i = 0; i < 5_000; i++) {
+            if (detector.update(22 + random.nextGaussian() * 0.5, 45 + random.nextGaussian(), 1013 + random.nextGaussian() * 2)) {
+                flagged++;
+            }
+        }
+
+        // Beyond 4 sigma is about 6 in 100 000 per metric for Gaussian noise
+        assertThat(flagged).isLessThanOrEqualTo(5);
+    }
+
+    @Test
+    void flagsDeviationsAboveTheThresholdOnly() {
+        EwmaAnomalyDetector below = trained(new Random(3));
+        EwmaAnomalyDetector above = trained(new Random(3));
+
+        double belowThreshold = valueAtZScore(below, Metric.HUMIDITY, 45, THRESHOLD - 0.05);
+        double aboveThreshold = valueAtZScore(above, Metric.HUMIDITY, 45, THRESHOLD + 0.05);
+
+        assertThat(below.update(22, belowThreshold, 1013)).isFalse();
+        assertThat(above.update(22, aboveThreshold, 1013)).isTrue();
+    }
+
+    @Test
+    void anyMetricCanFlagAReading() {
+        EwmaAnomalyDetector detector = trained(new Random(4));
+
+        assertThat(detector.update(22, 45, 1013 + 100)).isTrue();
+        assertThat(detector.update(22 - 30, 45, 1013)).isTrue();
+    }
+
+    @Test
+    void singleSpikeBarelyMovesTheBaseline() {
+        EwmaAnomalyDetector detector = trained(new Random(5));
+        double zBefore = detector.zScore(Metric.TEMPERATURE, 22);
+
+        assertThat(detector.update(1_000, 45, 1013)).isTrue();
+
+        // The spike is folded in clamped to the threshold, so the usual level still looks normal
+        assertThat(detector.zScore(Metric.TEMPERATURE, 22)).isLessThan(zBefore + 1);
+        assertThat(detector.update(22, 45, 1013)).isFalse();
+    }
+
+    @Test
+    void lastingLevelShiftIsLearned() {
+        EwmaAnomalyDetector detector = trained(new Random(6));
+        Random random = new Random(7);
+
+        assertThat(detector.update(30, 45, 1013)).isTrue();
+        boolean flagged = true;
+        for (int i = 0; i < 500; i++) {
+            flagged = detector.update(30 + random.nextGaussian() * 0.5, 45 + random.nextGaussian(), 1013 + random.nextGaussian() * 2);
+        }
+
+        assertThat(flagged).isFalse();
+        assertThat(detector.zScore(Metric.TEMPERATURE, 30)).isLessThan(THRESHOLD);
+    }
+
+    @Test
+    void constantMetricCannotProduceAZScore() {
+        EwmaAnomalyDetector detector = new EwmaAnomalyDetector(ALPHA, THRESHOLD, 5);
+        for (int i = 0; i < 50; i++) {
+            detector.update(20, 50, 1000);
+        }
+
+        assertThat(detector.zScore(Metric.TEMPERATURE, 25)).isZero();
+        assertThat(detector.update(25, 50, 1000)).isFalse();
+    }
+
+    @Test
+    void rejectsInvalidParameters() {
+        assertThatThrownBy(() -> new EwmaAnomalyDetector(0, 3, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new EwmaAnomalyDetector(1, 3, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new EwmaAnomalyDetector(0.1, 0, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new EwmaAnomalyDetector(0.1, 3, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static EwmaAnomalyDetector trained(Random random) {
+        EwmaAnomalyDetector detector = new EwmaAnomalyDetector(ALPHA, THRESHOLD, 50);
+        for (int i = 0; i < 500; i++) {
+            detector.update(22 + random.nextGaussian() * 0.5, 45 + random.nextGaussian(), 1013 + random.nextGaussian() * 2);
+        }
+        return detector;
+    }
+
+    /**
+     * Value above the baseline mean with the given z-score, found from the detector's own scoring
+     */
+    private static double valueAtZScore(EwmaAnomalyDetector detector, Metric metric, double near, double z) {
+        // Two probes far below the mean, where zScore falls linearly: they give the standard deviation and mean
+        double probe = near - 100;
+        double zAtProbe = detector.zScore(metric, probe);
+        double sd = 1 / (zAtProbe - detector.zScore(metric, probe + 1));
+        double mean = probe + zAtProbe * sd;
+        return mean + z * sd;
+    }
+}
@@ -0,0 +1,102 @@
+package com.sensordata.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class QuantileSketchTest {
+    private static final double[] QUANTILES = {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99};
+
+    @Test
+    void estimatesQuantilesWithinOneBucketWidth() {
+        // Temperature-like values, 0.1 degree buckets
+        QuantileSketch sketch = new QuantileSketch(-50, 100, 1500);
+        Random random = new Random(42);
+        double[] values = new double[50_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 22 + random.nextGaussian() * 5;
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double q : QUANTILES) {
+            assertThat(sketch.quantile(q)).as("q=%s", q).isCloseTo(exactQuantile(values, q), within(0.1));
+        }
+        assertThat(sketch.getCount()).isEqualTo(values.length);
+    }
+
+    @Test
+    void extremeQuantilesAreTheExactMinAndMax() {
+        QuantileSketch sketch = new QuantileSketch(0, 100, 10);
+        sketch.add(12.5);
+        sketch.add(47.25);
+        sketch.add(81.75);
+
+        assertThat(sketch.quantile(0)).isEqualTo(12.5);
+        assertThat(sketch.quantile(1)).isEqualTo(81.75);
+        assertThat(sketch.quantile(-1)).isEqualTo(12.5);
+        assertThat(sketch.quantile(2)).isEqualTo(81.75);
+    }
+
+    @Test
+    void valuesOutsideTheRangeLandInEdgeBucketsAndKeepExactExtremes() {
+        QuantileSketch sketch = new QuantileSketch(0, 10, 10);
+        sketch.add(-100);
+        sketch.add(5);
+        sketch.add(1_000);
+
+        assertThat(sketch.quantile(0)).isEqualTo(-100);
+        assertThat(sketch.quantile(1)).isEqualTo(1_000);
+        assertThat(sketch.quantile(0.5)).isBetween(-100.0, 1_000.0);
+    }
+
+    @Test
+    void mergedSketchesMatchOneSketchOfAllValues() {
+        QuantileSketch first = new QuantileSketch(0, 1000, 1000);
+        QuantileSketch second = new QuantileSketch(0, 1000, 1000);
+        QuantileSketch all = new QuantileSketch(0, 1000, 1000);
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            double value = random.nextDouble() * 1000;
+            (i % 3 == 0 ? first : second).add(value);
+            all.add(value);
+        }
+
+        QuantileSketch.Merged merged = first.newMerged();
+        first.mergeInto(merged);
+        second.mergeInto(merged);
+
+        assertThat(merged.getCount()).isEqualTo(all.getCount());
+        for (double q : QUANTILES) {
+            assertThat(merged.quantile(q)).as("q=%s", q).isEqualTo(all.quantile(q));
+        }
+    }
+
+    @Test
+    void emptySketchReturnsZero() {
+        QuantileSketch sketch = new QuantileSketch(0, 1, 4);
+
+        assertThat(sketch.quantile(0.5)).isZero();
+        assertThat(sketch.newMerged().getCount()).isZero();
+    }
+
+    @Test
+    void rejectsInvalidLayoutsAndMismatchedMerges() {
+        assertThatThrownBy(() -> new QuantileSketch(10, 10, 4)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new QuantileSketch(0, 10, 0)).isInstanceOf(IllegalArgumentException.class);
+
+        QuantileSketch.Merged target = new QuantileSketch(0, 10, 10).newMerged();
+        assertThatThrownBy(() -> new QuantileSketch(0, 10, 20).mergeInto(target))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static double exactQuantile(double[] sorted, double q) {
+        int index = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,121 @@
+package com.sensordata.util;
+
+import com.sensordata.dto.SensorDataDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecentReadingsCacheTest {
+    // One reading per sensor: 96 bytes of entry overhead plus 160 per reading
+    private static final long ENTRY_BYTES = 96 + 160;
+    private static final Duration LONG = Duration.ofMinutes(5);
+
+    @Test
+    void servesTheLastReadingsOnceTheUpstreamFilledTheEntry() {
+        RecentReadingsCache cache = new RecentReadingsCache(ENTRY_BYTES * 10, 2, LONG, LONG);
+
+        assertThat(cache.getRecent(1, 2)).isNull();
+        cache.record(reading(1, 100));
+        cache.record(reading(1, 200));
+        cache.record(reading(1, 300));
+
+        assertThat(cache.getRecent(1, 2)).extracting(SensorDataDto::getTimestamp).containsExactly(200L, 300L);
+        assertThat(cache.getRecent(1, 3)).as("limit above readingsPerSensor").isNull();
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    void entryCountFollowsTheByteBudget() {
+        RecentReadingsCache cache = new RecentReadingsCache(ENTRY_BYTES * 10, 1, LONG, LONG);
+
+        for (long sensorId = 1; sensorId <= 50; sensorId++) {
+            cache.getRecent(sensorId, 1);
+        }
+
+        assertThat(cache.size()).isBetween(1, 10);
+        assertThat(cache.estimatedBytes()).isLessThanOrEqualTo(ENTRY_BYTES * 10);
+        assertThatThrownBy(() -> new RecentReadingsCache(ENTRY_BYTES - 1, 1, LONG, LONG))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void oneOffSensorsDoNotEvictFrequentlyQueriedOnes() {
+        RecentReadingsCache cache = new RecentReadingsCache(ENTRY_BYTES * 10, 1, LONG, LONG);
+        for (int round = 0; round < 5; round++) {
+            for (long sensorId = 1; sensorId <= 9; sensorId++) {
+                cache.getRecent(sensorId, 1);
+            }
+        }
+
+        for (long sensorId = 100; sensorId < 200; sensorId++) {
+            cache.getRecent(sensorId, 1);
+        }
+
+        for (long sensorId = 1; sensorId <= 9; sensorId++) {
+            assertThat(isCached(cache, sensorId)).as("sensor %d", sensorId).isTrue();
+        }
+    }
+
+    @Test
+    void probationEntryHitAgainIsProtectedFromEviction() {
+        RecentReadingsCache cache = new RecentReadingsCache(ENTRY_BYTES * 10, 1, LONG, LONG);
+        for (long sensorId = 1; sensorId <= 10; sensorId++) {
+            cache.getRecent(sensorId, 1);
+        }
+        // Sensor 1 is in probation; a second query moves it to the protected segment
+        cache.getRecent(1, 1);
+
+        // Candidates queried three times each beat every probation entry queried less often
+        for (long sensorId = 100; sensorId < 130; sensorId++) {
+            for (int i = 0; i < 3; i++) {
+                cache.getRecent(sensorId, 1);
+            }
+        }
+
+        assertThat(isCached(cache, 1)).isTrue();
+        assertThat(isCached(cache, 2)).isFalse();
+    }
+
+    @Test
+    void readingsOlderThanMaxAgeAreNotServed() throws InterruptedException {
+        RecentReadingsCache cache = new RecentReadingsCache(ENTRY_BYTES * 10, 1, Duration.ofMillis(50), LONG);
+        cache.getRecent(1, 1);
+        cache.record(reading(1, 100));
+        assertThat(cache.getRecent(1, 1)).isNotNull();
+
+        Thread.sleep(100);
+
+        assertThat(cache.getRecent(1, 1)).isNull();
+        cache.record(reading(1, 200));
+        assertThat(cache.getRecent(1, 1)).extracting(SensorDataDto::getTimestamp).containsExactly(200L);
+    }
+
+    @Test
+    void idleEntryIsReplacedByAFreshOne() throws InterruptedException {
+        RecentReadingsCache cache = new RecentReadingsCache(ENTRY_BYTES * 10, 1, LONG, Duration.ofMillis(50));
+        cache.getRecent(1, 1);
+        cache.record(reading(1, 100));
+
+        Thread.sleep(100);
+
+        assertThat(cache.getRecent(1, 1)).as("idle entry expired").isNull();
+        assertThat(cache.size()).isEqualTo(1);
+        cache.record(reading(1, 200));
+        assertThat(cache.getRecent(1, 1)).extracting(SensorDataDto::getTimestamp).containsExactly(200L);
+    }
+
+    private static boolean isCached(RecentReadingsCache cache, long sensorId) {
+        cache.record(reading(sensorId, 1_000));
+        List<SensorDataDto> readings = cache.getRecent(sensorId, 1);
+        return readings != null;
+    }
+
+    private static SensorDataDto reading(long sensorId, long timestamp) {
+        return SensorDataDto.builder().sensorId(sensorId).timestamp(timestamp).temperature(20.0).build();
+    }
+}
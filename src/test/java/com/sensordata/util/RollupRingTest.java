@@ -0,0 +1,127 @@
+package com.sensordata.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RollupRingTest {
+    private static final long SECOND = 1_000;
+
+    @Test
+    void windowOfAllSlotsIsNotRecycledByTheOpenPane() {
+        RollupRing ring = new RollupRing(SECOND, 3);
+        for (long pane = 0; pane <= 4; pane++) {
+            ring.add(pane * SECOND + 100, pane, 0, 0, false);
+            ring.add(pane * SECOND + 600, pane, 0, 0, false);
+        }
+        // The open pane takes a slot of its own
+        ring.add(5 * SECOND + 200, 99, 0, 0, true);
+
+        List<RollupRing.Window> windows = ring.closedWindows(5 * SECOND + 500, 3, 0, 10);
+
+        assertThat(windows).hasSize(1);
+        RollupRing.Window window = windows.get(0);
+        assertThat(window.getStart()).isEqualTo(2 * SECOND);
+        assertThat(window.getEnd()).isEqualTo(5 * SECOND);
+        assertThat(window.getCount()).isEqualTo(6);
+        assertThat(window.getMin(RollupRing.TEMPERATURE)).isEqualTo(2);
+        assertThat(window.getMax(RollupRing.TEMPERATURE)).isEqualTo(4);
+        assertThat(window.getAnomalies()).isZero();
+    }
+
+    @Test
+    void tumblingWindowsKeepTheLastSlotsClosedPanes() {
+        RollupRing ring = new RollupRing(SECOND, 3);
+        for (long pane = 0; pane <= 5; pane++) {
+            ring.add(pane * SECOND, pane, 0, 0, false);
+        }
+
+        List<RollupRing.Window> windows = ring.closedWindows(5 * SECOND + 1, 1, 0, 10);
+
+        assertThat(windows).extracting(RollupRing.Window::getStart).containsExactly(2 * SECOND, 3 * SECOND, 4 * SECOND);
+    }
+
+    @Test
+    void hoppingWindowsAdvanceByOnePane() {
+        RollupRing ring = new RollupRing(SECOND, 4);
+        for (long pane = 0; pane <= 4; pane++) {
+            ring.add(pane * SECOND + 500, pane, 0, 0, pane == 3);
+        }
+
+        List<RollupRing.Window> windows = ring.closedWindows(5 * SECOND + 500, 2, 0, 10);
+
+        // Pane 0 has left the ring, so the first window is panes 1-2
+        assertThat(windows).extracting(RollupRing.Window::getStart).containsExactly(SECOND, 2 * SECOND, 3 * SECOND);
+        assertThat(windows).extracting(RollupRing.Window::getEnd).containsExactly(3 * SECOND, 4 * SECOND, 5 * SECOND);
+        assertThat(windows).extracting(RollupRing.Window::getCount).containsOnly(2L);
+        assertThat(windows).extracting(RollupRing.Window::getAnomalies).containsExactly(0, 1, 1);
+        assertThat(windows.get(2).getMin(RollupRing.TEMPERATURE)).isEqualTo(3);
+        assertThat(windows.get(2).getMax(RollupRing.TEMPERATURE)).isEqualTo(4);
+        assertThat(windows.get(2).getAverage(RollupRing.TEMPERATURE)).isEqualTo(3.5);
+    }
+
+    @Test
+    void emptyPanesAreSkippedAndLeftOutOfHoppingWindows() {
+        RollupRing ring = new RollupRing(SECOND, 3);
+        ring.add(100, 10, 0, 0, false);
+        ring.add(2 * SECOND + 100, 30, 0, 0, false);
+
+        assertThat(ring.closedWindows(3 * SECOND + 500, 1, 0, 10))
+                .extracting(RollupRing.Window::getStart).containsExactly(0L, 2 * SECOND);
+
+        List<RollupRing.Window> hopping = ring.closedWindows(3 * SECOND + 500, 2, 0, 10);
+        assertThat(hopping).extracting(RollupRing.Window::getStart).containsExactly(0L, SECOND);
+        assertThat(hopping).extracting(RollupRing.Window::getCount).containsExactly(1L, 1L);
+        assertThat(hopping.get(1).getMin(RollupRing.TEMPERATURE)).isEqualTo(30);
+    }
+
+    @Test
+    void paneRecycledAfterSilenceIsNotReportedAsANewerWindow() {
+        RollupRing ring = new RollupRing(SECOND, 2);
+        ring.add(100, 10, 0, 0, false);
+
+        // Pane 3 maps to the slot still holding pane 0
+        assertThat(ring.closedWindows(4 * SECOND + 500, 1, 0, 10)).isEmpty();
+    }
+
+    @Test
+    void lateReadingOfARecycledPaneIsDropped() {
+        RollupRing ring = new RollupRing(SECOND, 2);
+        ring.add(3 * SECOND + 100, 30, 0, 0, false);
+        ring.add(100, 10, 0, 0, false);
+
+        List<RollupRing.Window> windows = ring.closedWindows(4 * SECOND + 500, 1, 0, 10);
+
+        assertThat(windows).hasSize(1);
+        assertThat(windows.get(0).getStart()).isEqualTo(3 * SECOND);
+        assertThat(windows.get(0).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void fromAndLimitTrimTheOldestWindows() {
+        RollupRing ring = new RollupRing(SECOND, 5);
+        for (long pane = 0; pane <= 4; pane++) {
+            ring.add(pane * SECOND, pane, 0, 0, false);
+        }
+
+        // from inside pane 1 starts at the next full pane
+        assertThat(ring.closedWindows(5 * SECOND, 1, SECOND + 1, 10))
+                .extracting(RollupRing.Window::getStart).containsExactly(2 * SECOND, 3 * SECOND, 4 * SECOND);
+        assertThat(ring.closedWindows(5 * SECOND, 1, 0, 2))
+                .extracting(RollupRing.Window::getStart).containsExactly(3 * SECOND, 4 * SECOND);
+    }
+
+    @Test
+    void panesOutsideOneToSlotsAreRejected() {
+        RollupRing ring = new RollupRing(SECOND, 3);
+
+        assertThatThrownBy(() -> ring.closedWindows(0, 0, 0, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ring.closedWindows(0, 4, 0, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(ring.closedWindows(0, 3, 0, 10)).isEmpty();
+        assertThatThrownBy(() -> new RollupRing(0, 3)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RollupRing(SECOND, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,138 @@
+package com.sensordata.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SensorHistoryRingTest {
+
+    @Test
+    void keepsLastCapacityReadingsInTimeOrder() {
+        SensorHistoryRing ring = new SensorHistoryRing(4);
+        for (long t = 1; t <= 10; t++) {
+            addDerived(ring, t);
+        }
+
+        List<Long> timestamps = new ArrayList<>();
+        int visited = ring.forEach((timestamp, temperature, humidity, pressure, value, anomaly) -> timestamps.add(timestamp));
+
+        assertThat(visited).isEqualTo(4);
+        assertThat(timestamps).containsExactly(7L, 8L, 9L, 10L);
+        assertThat(ring.size()).isEqualTo(4);
+        assertThat(ring.oldestTimestamp()).isEqualTo(7);
+        assertThat(ring.newestTimestamp()).isEqualTo(10);
+    }
+
+    @Test
+    void visitsRangeAndLastReadings() {
+        SensorHistoryRing ring = new SensorHistoryRing(8);
+        for (long t = 1; t <= 6; t++) {
+            addDerived(ring, t);
+        }
+
+        List<Long> range = new ArrayList<>();
+        ring.forEachInRange(2, 5, (timestamp, temperature, humidity, pressure, value, anomaly) -> range.add(timestamp));
+        List<Long> last = new ArrayList<>();
+        ring.forEachLast(2, (timestamp, temperature, humidity, pressure, value, anomaly) -> last.add(timestamp));
+
+        assertThat(range).containsExactly(2L, 3L, 4L);
+        assertThat(last).containsExactly(5L, 6L);
+    }
+
+    @Test
+    void getReadsEveryColumnOfTheSlot() {
+        SensorHistoryRing ring = new SensorHistoryRing(3);
+        for (long t = 1; t <= 5; t++) {
+            addDerived(ring, t);
+        }
+
+        AtomicReference<String> reading = new AtomicReference<>();
+        assertThat(ring.get(0, (timestamp, temperature, humidity, pressure, value, anomaly) ->
+                reading.set(timestamp + "/" + temperature + "/" + humidity + "/" + pressure + "/" + value + "/" + anomaly)))
+                .isTrue();
+
+        assertThat(reading.get()).isEqualTo("3/6.0/9.0/12.0/15.0/true");
+        assertThat(ring.get(3, (timestamp, temperature, humidity, pressure, value, anomaly) -> { })).isFalse();
+        assertThat(ring.get(-1, (timestamp, temperature, humidity, pressure, value, anomaly) -> { })).isFalse();
+    }
+
+    @Test
+    void clearHidesOlderReadings() {
+        SensorHistoryRing ring = new SensorHistoryRing(4);
+        addDerived(ring, 1);
+        addDerived(ring, 2);
+        ring.clear();
+
+        assertThat(ring.size()).isZero();
+        assertThat(ring.oldestTimestamp()).isEqualTo(-1);
+        assertThat(ring.newestTimestamp()).isEqualTo(-1);
+
+        addDerived(ring, 3);
+        List<Long> timestamps = new ArrayList<>();
+        ring.forEach((timestamp, temperature, humidity, pressure, value, anomaly) -> timestamps.add(timestamp));
+        assertThat(timestamps).containsExactly(3L);
+    }
+
+    @Test
+    void readersNeverSeeTornReadingsUnderConcurrentWrites() throws InterruptedException {
+        // Every column is derived from the timestamp, so a reading mixing two writes is detectable
+        SensorHistoryRing ring = new SensorHistoryRing(16);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        AtomicLong visits = new AtomicLong();
+
+        Thread writer = new Thread(() -> {
+            for (long t = 1; running.get(); t++) {
+                addDerived(ring, t);
+            }
+        });
+        Runnable readerTask = () -> {
+            long[] previous = new long[1];
+            while (running.get() && failure.get() == null) {
+                previous[0] = Long.MIN_VALUE;
+                ring.forEach((timestamp, temperature, humidity, pressure, value, anomaly) -> {
+                    visits.incrementAndGet();
+                    if (temperature != timestamp * 2.0 || humidity != timestamp * 3.0 || pressure != timestamp * 4.0
+                            || value != timestamp * 5.0 || anomaly != (timestamp % 3 == 0)) {
+                        failure.compareAndSet(null, "torn reading at timestamp " + timestamp);
+                    }
+                    if (timestamp <= previous[0]) {
+                        failure.compareAndSet(null, "out of order: " + timestamp + " after " + previous[0]);
+                    }
+                    previous[0] = timestamp;
+                });
+                ring.get(0, (timestamp, temperature, humidity, pressure, value, anomaly) -> {
+                    if (value != timestamp * 5.0) {
+                        failure.compareAndSet(null, "torn get() at timestamp " + timestamp);
+                    }
+                });
+            }
+        };
+        Thread[] readers = {new Thread(readerTask), new Thread(readerTask)};
+
+        writer.start();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        TimeUnit.MILLISECONDS.sleep(500);
+        running.set(false);
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertThat(failure.get()).isNull();
+        assertThat(visits.get()).isPositive();
+    }
+
+    private static void addDerived(SensorHistoryRing ring, long timestamp) {
+        ring.add(timestamp, timestamp * 2.0, timestamp * 3.0, timestamp * 4.0, timestamp * 5.0, timestamp % 3 == 0);
+    }
+}
@@ -0,0 +1,171 @@
+package com.sensordata.util;
+
+import com.sensordata.dto.SensorDataDto;
+import com.sensordata.util.SensorReadingQuery.Field;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SensorReadingQueryTest {
+    private static final SensorDataDto READING = SensorDataDto.builder()
+            .sensorId(2L).timestamp(1_000L).temperature(30.0).humidity(50.0).pressure(1013.0).value(7.5).anomaly(false)
+            .build();
+
+    @Test
+    void blankParametersSelectEverything() {
+        assertThat(SensorReadingQuery.parse(null, null)).isSameAs(SensorReadingQuery.ALL);
+        assertThat(SensorReadingQuery.parse(" ", "")).isSameAs(SensorReadingQuery.ALL);
+        assertThat(SensorReadingQuery.ALL.test(READING)).isTrue();
+        assertThat(SensorReadingQuery.ALL.project(READING)).isSameAs(READING);
+    }
+
+    @Test
+    void fieldsAlwaysIncludeSensorIdAndTimestamp() {
+        SensorReadingQuery query = SensorReadingQuery.parse(" Temperature , value", null);
+
+        assertThat(query.includes(Field.SENSOR_ID)).isTrue();
+        assertThat(query.includes(Field.TIMESTAMP)).isTrue();
+        assertThat(query.includes(Field.TEMPERATURE)).isTrue();
+        assertThat(query.includes(Field.VALUE)).isTrue();
+        assertThat(query.includes(Field.HUMIDITY)).isFalse();
+        assertThat(query.selectsAllFields()).isFalse();
+        assertThat(query.hasFilter()).isFalse();
+    }
+
+    @Test
+    void projectNullsUnselectedFields() {
+        SensorDataDto projected = SensorReadingQuery.parse("humidity,anomaly", null).project(READING);
+
+        assertThat(projected).isEqualTo(SensorDataDto.builder()
+                .sensorId(2L).timestamp(1_000L).humidity(50.0).anomaly(false).build());
+    }
+
+    @Test
+    void strictBoundsExcludeTheBoundItself() {
+        SensorReadingQuery greater = SensorReadingQuery.parse(null, "temperature>30");
+        SensorReadingQuery less = SensorReadingQuery.parse(null, "temperature<30");
+
+        assertThat(greater.test(READING)).isFalse();
+        assertThat(greater.test(withTemperature(Math.nextUp(30.0)))).isTrue();
+        assertThat(less.test(READING)).isFalse();
+        assertThat(less.test(withTemperature(Math.nextDown(30.0)))).isTrue();
+    }
+
+    @Test
+    void inclusiveBoundsIncludeTheBound() {
+        assertThat(SensorReadingQuery.parse(null, "temperature>=30").test(READING)).isTrue();
+        assertThat(SensorReadingQuery.parse(null, "temperature<=30").test(READING)).isTrue();
+        assertThat(SensorReadingQuery.parse(null, "temperature>=30.5").test(READING)).isFalse();
+        assertThat(SensorReadingQuery.parse(null, "value>-1").test(READING)).isTrue();
+    }
+
+    @Test
+    void equalityAndInequality() {
+        assertThat(SensorReadingQuery.parse(null, "pressure=1013").test(READING)).isTrue();
+        assertThat(SensorReadingQuery.parse(null, "pressure!=1013").test(READING)).isFalse();
+        assertThat(SensorReadingQuery.parse(null, "pressure!=1000").test(READING)).isTrue();
+    }
+
+    @Test
+    void rangesAreInclusiveAndCanBeNegated() {
+        SensorReadingQuery range = SensorReadingQuery.parse(null, "humidity=40..50");
+
+        assertThat(range.test(READING)).isTrue();
+        assertThat(range.test(withHumidity(40.0))).isTrue();
+        assertThat(range.test(withHumidity(Math.nextUp(50.0)))).isFalse();
+        assertThat(SensorReadingQuery.parse(null, "humidity!=40..50").test(READING)).isFalse();
+        assertThat(SensorReadingQuery.parse(null, "humidity=50..50").test(READING)).isTrue();
+    }
+
+    @Test
+    void setsMatchAnyOfTheirValues() {
+        assertThat(SensorReadingQuery.parse(null, "sensor_id=3|1|2").test(READING)).isTrue();
+        assertThat(SensorReadingQuery.parse(null, "sensor_id=4|5").test(READING)).isFalse();
+        assertThat(SensorReadingQuery.parse(null, "sensor_id!=1|2").test(READING)).isFalse();
+        assertThat(SensorReadingQuery.parse(null, "sensor_id!=4|5").test(READING)).isTrue();
+    }
+
+    @Test
+    void anomalyFlagSupportsEqualityOnly() {
+        assertThat(SensorReadingQuery.parse(null, "anomaly=false").test(READING)).isTrue();
+        assertThat(SensorReadingQuery.parse(null, "anomaly=TRUE").test(READING)).isFalse();
+        assertThat(SensorReadingQuery.parse(null, "anomaly!=true").test(READING)).isTrue();
+        assertThatThrownBy(() -> SensorReadingQuery.parse(null, "anomaly>0"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("anomaly");
+        assertThatThrownBy(() -> SensorReadingQuery.parse(null, "anomaly=yes"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void clausesAreAConjunction() {
+        assertThat(SensorReadingQuery.parse(null, "temperature>=30, humidity=40..60, sensor_id=2").test(READING)).isTrue();
+        assertThat(SensorReadingQuery.parse(null, "temperature>=30,humidity>60").test(READING)).isFalse();
+    }
+
+    @Test
+    void clauseOnAMissingFieldNeverMatches() {
+        SensorDataDto withoutTemperature = withTemperature(null);
+
+        assertThat(SensorReadingQuery.parse(null, "temperature<100").test(withoutTemperature)).isFalse();
+        assertThat(SensorReadingQuery.parse(null, "temperature!=1").test(withoutTemperature)).isFalse();
+        assertThat(SensorReadingQuery.parse(null, "anomaly=false").test(withAnomaly(null))).isFalse();
+    }
+
+    @Test
+    void rejectsInvalidQueries() {
+        assertThatThrownBy(() -> SensorReadingQuery.parse("speed", null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("unknown field 'speed'");
+        assertThatThrownBy(() -> SensorReadingQuery.parse(null, "temperature"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("invalid filter clause");
+        assertThatThrownBy(() -> SensorReadingQuery.parse(null, "=5"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SensorReadingQuery.parse(null, "temperature>abc"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("invalid number 'abc'");
+        assertThatThrownBy(() -> SensorReadingQuery.parse(null, "temperature>NaN"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SensorReadingQuery.parse(null, "humidity=60..40"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("empty range");
+    }
+
+    @Test
+    void limitsClausesAndSetSizes() {
+        String seventeenClauses = String.join(",", IntStream.range(0, 17).mapToObj(i -> "value>" + i).toList());
+        String bigSet = "sensor_id=" + String.join("|", IntStream.range(0, 1001).mapToObj(Integer::toString).toList());
+
+        assertThatThrownBy(() -> SensorReadingQuery.parse(null, seventeenClauses))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SensorReadingQuery.parse(null, bigSet))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static SensorDataDto withTemperature(Double temperature) {
+        SensorDataDto reading = copyOfReading();
+        reading.setTemperature(temperature);
+        return reading;
+    }
+
+    private static SensorDataDto withHumidity(Double humidity) {
+        SensorDataDto reading = copyOfReading();
+        reading.setHumidity(humidity);
+        return reading;
+    }
+
+    private static SensorDataDto withAnomaly(Boolean anomaly) {
+        SensorDataDto reading = copyOfReading();
+        reading.setAnomaly(anomaly);
+        return reading;
+    }
+
+    private static SensorDataDto copyOfReading() {
+        return new SensorDataDto(READING.getSensorId(), READING.getTimestamp(), READING.getTemperature(),
+                READING.getHumidity(), READING.getPressure(), READING.getValue(), READING.getAnomaly());
+    }
+}
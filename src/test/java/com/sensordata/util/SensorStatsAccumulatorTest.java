@@ -0,0 +1,148 @@
+package com.sensordata.util;
+
+import com.sensordata.util.SensorStatsAccumulator.Metric;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SensorStatsAccumulatorTest {
+
+    @Test
+    void snapshotMatchesSequentialAggregation() {
+        SensorStatsAccumulator accumulator = new SensorStatsAccumulator();
+        MetricAggregator temperature = new MetricAggregator();
+        MetricAggregator pressure = new MetricAggregator();
+        for (int i = 0; i < 100; i++) {
+            accumulator.add(20 + i % 7, 40 + i % 11, 1000 + i % 13);
+            temperature.add(20 + i % 7);
+            pressure.add(1000 + i % 13);
+        }
+
+        assertSameStatistics(accumulator.snapshot(Metric.TEMPERATURE), temperature);
+        assertSameStatistics(accumulator.snapshot(Metric.PRESSURE), pressure);
+        assertThat(accumulator.getCount()).isEqualTo(100);
+    }
+
+    @Test
+    void mergeIntoCombinesWithExistingStatistics() {
+        SensorStatsAccumulator accumulator = new SensorStatsAccumulator();
+        accumulator.add(10, 0, 0);
+        accumulator.add(30, 0, 0);
+
+        MetricAggregator target = new MetricAggregator();
+        target.add(-5);
+        target.add(5);
+        accumulator.mergeInto(target, Metric.TEMPERATURE);
+
+        MetricAggregator expected = new MetricAggregator();
+        for (double value : new double[]{-5, 5, 10, 30}) {
+            expected.add(value);
+        }
+        assertSameStatistics(target, expected);
+    }
+
+    @Test
+    void mergesStatisticsOfConcurrentWriters() throws InterruptedException {
+        SensorStatsAccumulator accumulator = new SensorStatsAccumulator();
+        int threads = 4;
+        int perThread = 25_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    accumulator.add(offset, i % 100, -i % 100);
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        MetricAggregator expected = new MetricAggregator();
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                expected.add(t);
+            }
+        }
+        MetricAggregator temperature = accumulator.snapshot(Metric.TEMPERATURE);
+        assertThat(accumulator.getCount()).isEqualTo((long) threads * perThread);
+        assertSameStatistics(temperature, expected);
+        assertThat(accumulator.snapshot(Metric.HUMIDITY).getMax()).isEqualTo(99);
+        assertThat(accumulator.snapshot(Metric.PRESSURE).getMin()).isEqualTo(-99);
+        assertThat(accumulator.getCellCount()).isPositive();
+    }
+
+    @Test
+    void readersSeeConsistentSnapshotsDuringWrites() throws InterruptedException {
+        SensorStatsAccumulator accumulator = new SensorStatsAccumulator();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            Thread writer = new Thread(() -> {
+                while (running.get()) {
+                    accumulator.add(1, 2, 3);
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+
+        String failure = null;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+        while (failure == null && System.nanoTime() < deadline) {
+            MetricAggregator humidity = accumulator.snapshot(Metric.HUMIDITY);
+            // Every reading adds exactly 2, so a torn cell shows up as a sum that does not match the count
+            if (humidity.getSum() != 2.0 * humidity.getCount()
+                    || humidity.getCount() > 0 && (humidity.getMin() != 2 || humidity.getMax() != 2)) {
+                failure = "inconsistent snapshot: count=" + humidity.getCount() + ", sum=" + humidity.getSum();
+            }
+        }
+        running.set(false);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertThat(failure).isNull();
+        assertThat(accumulator.snapshot(Metric.HUMIDITY).getCount()).isEqualTo(accumulator.getCount());
+    }
+
+    @Test
+    void emptyAndResetAccumulatorsReportNothing() {
+        SensorStatsAccumulator accumulator = new SensorStatsAccumulator();
+        assertThat(accumulator.snapshot(Metric.HUMIDITY).getCount()).isZero();
+
+        accumulator.add(1, 2, 3);
+        accumulator.reset();
+
+        assertThat(accumulator.getCount()).isZero();
+        assertThat(accumulator.snapshot(Metric.TEMPERATURE).getCount()).isZero();
+        assertThat(accumulator.snapshot(Metric.TEMPERATURE).getMax()).isZero();
+    }
+
+    private static void assertSameStatistics(MetricAggregator actual, MetricAggregator expected) {
+        assertThat(actual.getCount()).isEqualTo(expected.getCount());
+        assertThat(actual.getSum()).isCloseTo(expected.getSum(), within(1e-6));
+        assertThat(actual.getAverage()).isCloseTo(expected.getAverage(), within(1e-9));
+        assertThat(actual.getVariance()).isCloseTo(expected.getVariance(), within(1e-6));
+        assertThat(actual.getMin()).isEqualTo(expected.getMin());
+        assertThat(actual.getMax()).isEqualTo(expected.getMax());
+    }
+}
@@ -0,0 +1,91 @@
+package com.sensordata.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SharedFluxRegistryTest {
+
+    @Test
+    void assemblingWithoutSubscribingRegistersNothing() {
+        SharedFluxRegistry<String, Long> registry = new SharedFluxRegistry<>();
+        AtomicInteger created = new AtomicInteger();
+
+        registry.share("a", key -> {
+            created.incrementAndGet();
+            return Flux.never();
+        });
+
+        assertThat(registry.size()).isZero();
+        assertThat(created).hasValue(0);
+    }
+
+    @Test
+    void subscribersOfOneKeyShareOneUpstream() {
+        SharedFluxRegistry<String, Long> registry = new SharedFluxRegistry<>();
+        AtomicInteger connects = new AtomicInteger();
+        Sinks.Many<Long> source = Sinks.many().multicast().directBestEffort();
+        Flux<Long> upstream = source.asFlux().doOnSubscribe(s -> connects.incrementAndGet());
+
+        Disposable first = registry.share("a", key -> upstream).subscribe();
+        Disposable second = registry.share("a", key -> upstream).subscribe();
+
+        assertThat(connects).hasValue(1);
+        assertThat(registry.size()).isEqualTo(1);
+
+        first.dispose();
+        assertThat(registry.size()).isEqualTo(1);
+        second.dispose();
+        assertThat(registry.size()).isZero();
+        assertThat(source.currentSubscriberCount()).isZero();
+    }
+
+    @Test
+    void subscriberAfterTheLastOneLeftOpensAFreshUpstream() {
+        SharedFluxRegistry<String, Long> registry = new SharedFluxRegistry<>();
+        AtomicInteger connects = new AtomicInteger();
+        Sinks.Many<Long> source = Sinks.many().multicast().directBestEffort();
+        Flux<Long> upstream = source.asFlux()
+                .doOnSubscribe(s -> connects.incrementAndGet());
+
+        registry.share("a", key -> upstream).subscribe().dispose();
+        Disposable next = registry.share("a", key -> upstream).subscribe();
+
+        assertThat(connects).hasValue(2);
+        assertThat(source.currentSubscriberCount()).isEqualTo(1);
+        assertThat(registry.size()).isEqualTo(1);
+        next.dispose();
+        assertThat(registry.size()).isZero();
+    }
+
+    @Test
+    void completedUpstreamRemovesItsEntry() {
+        SharedFluxRegistry<String, Long> registry = new SharedFluxRegistry<>();
+
+        registry.share("a", key -> Flux.just(1L, 2L)).blockLast();
+
+        assertThat(registry.size()).isZero();
+    }
+
+    @Test
+    void gracePeriodKeepsTheEntryForALateSubscriber() throws InterruptedException {
+        SharedFluxRegistry<String, Long> registry = new SharedFluxRegistry<>(Duration.ofMillis(200));
+        AtomicInteger connects = new AtomicInteger();
+        Flux<Long> upstream = Flux.<Long>never().doOnSubscribe(s -> connects.incrementAndGet());
+
+        registry.share("a", key -> upstream).subscribe().dispose();
+        Disposable late = registry.share("a", key -> upstream).subscribe();
+
+        assertThat(connects).hasValue(1);
+        late.dispose();
+        assertThat(registry.size()).isEqualTo(1);
+        Thread.sleep(500);
+        assertThat(registry.size()).isZero();
+    }
+}